@@ -0,0 +1,95 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * An assembly writer that keeps its lines rather than writing them out, so that a piece of the assembly can be generated apart
+ * from (e.g., in parallel with) the rest and then spliced into the final output in its proper place.
+ */
+public class AssemblyBuffer extends AssemblyWriter {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The completed lines, in order. */
+    private List<Instruction> _lines;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty buffer.
+     */
+    public AssemblyBuffer () {
+
+	super(Writer.nullWriter());
+	_lines = new ArrayList<Instruction>();
+
+    } // AssemblyBuffer ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit every line held in this buffer, in order, into another writer.
+     *
+     * @param out The writer into which to splice the lines.
+     */
+    public void replayTo (AssemblyWriter out) {
+
+	flush();
+	for (Instruction line : _lines) {
+	    out.emit(line);
+	}
+
+    } // replayTo ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Rewrite the lines held in this buffer with a peephole optimizer.
+     *
+     * @param optimizer The optimizer.
+     */
+    public void optimize (PeepholeOptimizer optimizer) {
+
+	flush();
+	_lines = optimizer.optimize(_lines);
+
+    } // optimize ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Keep a completed line.
+     *
+     * @param line The line to keep.
+     */
+    protected void write (Instruction line) {
+
+	_lines.add(line);
+
+    } // write ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class AssemblyBuffer
+// =================================================================================================================================
@@ -0,0 +1,256 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The destination for generated assembly.  Code generation hands lines to this writer one at a time, and each is written out
+ * as soon as it is complete, so no procedure (or program) is ever held as a single string.
+ *
+ * The most recent line is held back until the next one arrives (or the writer is flushed) so that a comment can still be
+ * attached to it:
+ * <pre>
+ *     out.instruction("pop", "rax").comment("Value to assign");
+ * </pre>
+ */
+public class AssemblyWriter implements Closeable {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The text destination. */
+    private final Writer _out;
+
+    /** The most recent line, not yet written. */
+    private Instruction  _pending;
+
+    /** The number of instructions (as opposed to labels, comments, etc.) emitted so far. */
+    private int          _instructionCount;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an assembly writer.
+     *
+     * @param out The destination for the assembly text.  It should be buffered; the writer issues many small writes.
+     */
+    public AssemblyWriter (Writer out) {
+
+	_out              = out;
+	_pending          = null;
+	_instructionCount = 0;
+
+    } // AssemblyWriter ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit an instruction.
+     *
+     * @param opcode   The opcode.
+     * @param operands The operands, in order.
+     * @return the instruction, to which a comment may be attached.
+     */
+    public Instruction instruction (String opcode, Object... operands) {
+
+	return emit(Instruction.instruction(opcode, operands));
+
+    } // instruction ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit a label definition.
+     *
+     * @param name The label.
+     * @return the label line.
+     */
+    public Instruction label (String name) {
+
+	return emit(Instruction.label(name));
+
+    } // label ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit a line holding only a comment.
+     *
+     * @param text The comment text.
+     * @return the comment line.
+     */
+    public Instruction comment (String text) {
+
+	return emit(Instruction.commentLine(text));
+
+    } // comment ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit an assembler directive.
+     *
+     * @param name      The directive.
+     * @param arguments The arguments to the directive.
+     * @return the directive line.
+     */
+    public Instruction directive (String name, Object... arguments) {
+
+	return emit(Instruction.directive(name, arguments));
+
+    } // directive ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit a labeled static data definition.
+     *
+     * @param label     The label of the data.
+     * @param directive The data directive (<code>db</code>, <code>dq</code>, etc.).
+     * @param values    The initial values.
+     * @return the data line.
+     */
+    public Instruction data (String label, String directive, Object... values) {
+
+	return emit(Instruction.data(label, directive, values));
+
+    } // data ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit an empty line.
+     *
+     * @return the blank line.
+     */
+    public Instruction blank () {
+
+	return emit(Instruction.blank());
+
+    } // blank ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit a line, writing out the one before it.
+     *
+     * @param line The line to emit.
+     * @return the line.
+     */
+    public Instruction emit (Instruction line) {
+
+	if (_pending != null) {
+	    write(_pending);
+	}
+	_pending = line;
+	if (line._kind == Instruction.Kind.INSTRUCTION) {
+	    _instructionCount = _instructionCount + 1;
+	}
+	return line;
+
+    } // emit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of instructions emitted so far.
+     *
+     * @return the count.
+     */
+    public int getInstructionCount () {
+
+	return _instructionCount;
+
+    } // getInstructionCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Write out any held line and flush the destination.
+     */
+    public void flush () {
+
+	if (_pending != null) {
+	    write(_pending);
+	    _pending = null;
+	}
+	try {
+	    _out.flush();
+	} catch (IOException e) {
+	    Utility.abort("Unable to write assembly: " + e.getMessage());
+	}
+
+    } // flush ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Write out any held line and close the destination.
+     */
+    public void close () {
+
+	flush();
+	try {
+	    _out.close();
+	} catch (IOException e) {
+	    Utility.abort("Unable to write assembly: " + e.getMessage());
+	}
+
+    } // close ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Write a completed line to the destination.
+     *
+     * @param line The line to write.
+     */
+    protected void write (Instruction line) {
+
+	try {
+	    line.appendTo(_out);
+	} catch (IOException e) {
+	    Utility.abort("Unable to write assembly: " + e.getMessage());
+	}
+
+    } // write ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class AssemblyWriter
+// =================================================================================================================================
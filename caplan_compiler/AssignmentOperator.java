@@ -32,7 +32,8 @@ public class AssignmentOperator extends Operator {
         if ( (t0.getPointedType() != null) && (void_type.equals(t1.getPointedType())) ) {
             //technically should only warn if t0 isn't also a pointer to void expressions
             if (!void_type.equals(t0.getPointedType())) {
-		Utility.warn("Implicitly casting void* type to " + t0.toString() + " for assignment at " + _position);
+		operands[0].getProcedure().getProgram().getDiagnostics().warn("Implicitly casting void* type to " + t0.toString() +
+									      " for assignment", _position);
 	    }
         } else if (!t0.equals(t1)) {
 	    Utility.error("Cannot assign expression of type " + t1.toString() + " to l-value of type " + t0.toString(),
@@ -48,32 +49,27 @@ public class AssignmentOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        String assembly;
+        // Lower the right-side expression; the value assigned is also the value of this expression.
+        IRValue value = operands[1].toIRValue(ir);
 
-        // Evaluate the right-side expression, pushing its value to the top of the stack
-        assembly = operands[1].toAssembly();
-
-        // Evaluate the left-side expression, pushing the address of the l-value.
-        assembly += operands[0].toAssembly_l();
+	// A variable kept as an SSA value is simply given its new value.
+	if (operands[0] instanceof Variable variable && ir.isValue(variable.getDeclaration())) {
+	    ir.writeVariable(variable.getDeclaration(), value);
+	    return value;
+	}
 
-	// Assign, pushing the value assigned onto the stack as a result of this expression.
-	Type   type = operands[0].getType();
-	String size = type.getSizeAnnotation();
-	String reg  = type.getSizedRegister("a");
-	assembly += ( "\tpop\trbx\t\t; Location to be assigned\n" +
-		      "\tpop\trax\t\t; Value to assign\n" +
-		      "\tmov\t" + size + "[rbx],\t" + reg + "\t; Assign r-value into l-value\n" +
-		      "\tpush\trax\t\t; Result of assignment expression\n" );
-	    
-        return assembly;
+        // Otherwise, lower the left-side expression, yielding the address of the l-value, and assign.
+	IRValue address = operands[0].toIR_l(ir);
+	ir.store(operands[0].getType().getSize(), address, value);
+	return value;
 
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
-	
+
 // =================================================================================================================================
 } // class AssignmentOperator
 // =================================================================================================================================
@@ -0,0 +1,203 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * A basic block of the intermediate representation: a straight-line sequence of instructions, entered only at the top and left
+ * only through the terminator at the bottom.  The blocks and the edges between them form the function's control-flow graph.
+ */
+public class BasicBlock {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The number of the block, unique within its function. */
+    public final int                _number;
+
+    /** The instructions, phis first and the terminator last. */
+    final List<IRInstruction>       _instructions;
+
+    /** The blocks from which control may arrive, in the order matched by the operands of this block's phis. */
+    final List<BasicBlock>          _predecessors;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty block.
+     *
+     * @param number The number of the block, unique within its function.
+     */
+    public BasicBlock (int number) {
+
+	_number       = number;
+	_instructions = new ArrayList<IRInstruction>();
+	_predecessors = new ArrayList<BasicBlock>();
+
+    } // BasicBlock ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append an instruction.
+     *
+     * @param instruction The instruction.
+     */
+    public void add (IRInstruction instruction) {
+
+	instruction._block = this;
+	_instructions.add(instruction);
+
+    } // add ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Insert an instruction before the terminator.
+     *
+     * @param instruction The instruction.
+     */
+    public void addBeforeTerminator (IRInstruction instruction) {
+
+	instruction._block = this;
+	_instructions.add(_instructions.size() - 1, instruction);
+
+    } // addBeforeTerminator ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public List<IRInstruction> getInstructions () {
+
+	return _instructions;
+
+    } // getInstructions ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public List<BasicBlock> getPredecessors () {
+
+	return _predecessors;
+
+    } // getPredecessors ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the blocks to which control may pass from this one.
+     *
+     * @return the targets of the terminator; empty if the block has none yet, or returns.
+     */
+    public List<BasicBlock> getSuccessors () {
+
+	IRInstruction terminator = getTerminator();
+	return terminator == null ? List.of() : terminator._targets;
+
+    } // getSuccessors ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the terminator.
+     *
+     * @return the last instruction, if it is a terminator; <code>null</code> otherwise.
+     */
+    public IRInstruction getTerminator () {
+
+	if (_instructions.isEmpty()) {
+	    return null;
+	}
+	IRInstruction last = _instructions.get(_instructions.size() - 1);
+	return last.isTerminator() ? last : null;
+
+    } // getTerminator ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public boolean isTerminated () {
+
+	return getTerminator() != null;
+
+    } // isTerminated ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Redirect the edge from this block to one successor so that it leads to another instead.
+     *
+     * @param from The successor now targeted.
+     * @param to   The block to target instead.
+     */
+    public void retarget (BasicBlock from, BasicBlock to) {
+
+	List<BasicBlock> targets = getTerminator()._targets;
+	for (int i = 0; i < targets.size(); i += 1) {
+	    if (targets.get(i) == from) {
+		targets.set(i, to);
+	    }
+	}
+
+    } // retarget ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String getName () {
+
+	return "B" + _number;
+
+    } // getName ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	StringBuilder text = new StringBuilder(getName()).append(':');
+	if (!_predecessors.isEmpty()) {
+	    text.append("\t\t; from");
+	    for (BasicBlock predecessor : _predecessors) {
+		text.append(' ').append(predecessor.getName());
+	    }
+	}
+	text.append('\n');
+	for (IRInstruction instruction : _instructions) {
+	    text.append('\t').append(instruction).append('\n');
+	}
+	return text.toString();
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class BasicBlock
+// =================================================================================================================================
@@ -42,25 +42,25 @@ public class BitwiseNotOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	Long       value   = constantValue(operands[0]);
+	Expression literal = (value == null) ? null : literal(operation, ~value);
+	return literal != null ? literal : operation;
 
-        // Generate assembly for the operand.
-	assembly += operands[0].toAssembly();
+    } // fold ()
+    // =============================================================================================================================
 
-	// Pop the operand result into registers A.
-	assembly += "\tpop\trax\n";
 
-	// Apply bitwise-NOT to the register.
-	assembly += "\tnot\trax\n";
 
-	// Push the result.
-	assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-	return assembly;		
+        // Lower the operand, then apply bitwise-NOT to it.
+	return ir.emit(IRInstruction.Opcode.NOT, operands[0].toIRValue(ir));
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
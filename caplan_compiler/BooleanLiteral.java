@@ -39,21 +39,40 @@ public class BooleanLiteral extends Literal {
     // =============================================================================================================================
 
 
+
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this expression.
+     * A new literal boolean value.
      *
-     * @return the generated assembly code.
+     * @param position The position of the expression that yields the boolean.
+     * @param value    The boolean value itself.
      */
-    public String toAssembly () {
+    public BooleanLiteral (int position, boolean value) {
 
-	// Evaluating a literal involves pushing its value onto the stack.  A boolean is represented via 0 for false, 1 for true.
-	return "\tpush\t" + (_value ? 1 : 0) + "\t\t; " + _value + '\n';
-	
-    } // toAssembly ()
+        super(position, new TypeBoolean(position));
+	_value = value;
+
+    } // BooleanLiteral ()
     // =============================================================================================================================
+
+
     
+    // =============================================================================================================================
+    /**
+     * Lower this expression into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the literal.
+     */
+    public IRValue toIRValue (IRBuilder ir) {
+
+	// A boolean is represented via 0 for false, 1 for true.
+	return ir.constant(_value ? 1 : 0);
+
+    } // toIRValue ()
+    // =============================================================================================================================
+
 
 
     // =============================================================================================================================
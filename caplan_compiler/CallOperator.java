@@ -3,6 +3,7 @@
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -68,12 +69,13 @@ public class CallOperator extends Operator {
     /**
      * Binds this procedureCall to the Procedure object to which it corresponds (i.e. sets _procedure)
      *
-     * @param symbols The symbol table of variable declarations.
+     * @param procedure The procedure in which the call appears.
+     * @param symbols   The symbol table of variable declarations.
      */
-    public void bind (Map<String, Declaration> symbols) {
+    public void bind (Procedure procedure, Map<String, Declaration> symbols) {
 
         Declaration declaration = symbols.get(_name);
-	Utility.debug(2, "CallOperator.bind(): Lookup " + _name + " = " + declaration);
+	procedure.getProgram().getDiagnostics().debug(2, () -> "CallOperator.bind(): Lookup " + _name + " = " + declaration);
         if (declaration != null) {
 	    try {
 		_procedure = (Procedure)declaration;
@@ -85,6 +87,21 @@ public class CallOperator extends Operator {
     } // bind ()
     // =============================================================================================================================
 
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this operator refers: that of the procedure called.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	references.add(_procedure);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
     
     
     // =============================================================================================================================
@@ -144,65 +161,78 @@ public class CallOperator extends Operator {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will call the specified procedure.
+     * Lower a call of the specified procedure into the intermediate representation, or inline the procedure's body in its
+     * place if the inliner so decides (see <code>Inliner</code>).
      *
-     * @return the generated assembly code.
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The arguments to pass.
+     * @return the value returned.
      */
     @Override
-    public String toAssembly (Expression... operands) {
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        String    assembly  = new String();
-	Procedure procedure = operands[0].getProcedure();
+	IRValue[] arguments = toIR_arguments(ir, operands);
+	if (ir.shouldInline(_procedure, _position)) {
+	    return ir.inline((InternalProcedure)_procedure, arguments);
+	}
+	return ir.call(_procedure._name, _procedure.usesVarargs(), arguments);
 
-        // According to x86-64 calling conventions, the caller should save these registers and store operands in the second array registers
-        String[] operandRegisters   = {"rdi", "rsi", "rdx", "rcx", "r8", "r9"}; 
+    } // toIR ()
+    // =============================================================================================================================
 
-        assembly += "\t\t ; Setting up to call " + _procedure._name + "\n";
 
-        // Generate assembly for the operands in reverse order (so that evaluation is later done left-to-right).
-        for (int i = operands.length - 1; i >= 0; i -= 1) {
-            assembly += operands[i].toAssembly();
-        }
 
-        // Load operands into the right registers according to x86-64 calling conventions
-        for (int i = 0; i < operands.length; i++) {
-            assembly += String.format("\tpop\t%s\t\t; Loading operand %d into register %s\n", operandRegisters[i], i, operandRegisters[i]);
-        }
+    // =============================================================================================================================
+    /**
+     * Lower a return of the value of a call.  A call of the procedure in which it appears is a self tail call, which starts the
+     * body again with the new arguments rather than calling; other tail calls are left to the code generator.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The arguments to pass.
+     */
+    @Override
+    public void toIR_return (IRBuilder ir, Expression... operands) {
 
-	// If variadic arguments are used by the procedure, indicate zero vector arguments.
-	if (_procedure.usesVarargs()) {
-	    assembly += "\tmov\trax,\t0\t; No vector arguments for varargs\n";
+	if (!ir.isTailRecursive(_procedure)) {
+	    ir.ret(toIR(ir, operands));
+	    return;
 	}
+	ir.tailRecurse(toIR_arguments(ir, operands));
 
-        // Call the procedure
-        assembly += "\tcall\t" + _procedure._name + "\n";
+    } // toIR_return ()
+    // =============================================================================================================================
 
-        // Push the return value onto the stack
-        assembly += "\tpush\trax\t\t; Pushing the result of " + _procedure._name + " to the stack\n";
 
-        // As is done in InternalProcedure, replace every instance of PROCEDURENAME with the right name
-	// SK: But wait.  If we can do this replacement *here*, then we could have just used the proper name in the first place!
-        // assembly = assembly.replaceAll("PROCEDURENAME", _procedure._name._text);
 
-        return assembly;	
+    // =============================================================================================================================
+    /**
+     * Lower the arguments of a call, evaluating them in reverse order (as ever).
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The arguments.
+     * @return their values, in order.
+     */
+    private IRValue[] toIR_arguments (IRBuilder ir, Expression... operands) {
+
+	IRValue[] arguments = new IRValue[operands.length];
+	for (int i = operands.length - 1; i >= 0; i -= 1) {
+	    arguments[i] = operands[i].toIRValue(ir);
+	}
+	return arguments;
 
-    } // toAssembly ()
+    } // toIR_arguments ()
     // =============================================================================================================================
 
 
-    
+
     // =============================================================================================================================
     /**
      * Generate assembly code for any statics that are part of this expression.  The operands may generate statics, so recur to
      * them.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
-
-	return new String();
-
-    } // toStatics ()
+    public void toStatics (AssemblyWriter out) {}
     // =============================================================================================================================
 
 
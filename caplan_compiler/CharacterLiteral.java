@@ -47,19 +47,20 @@ public class CharacterLiteral extends Literal {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this expression.
+     * Lower this expression into the intermediate representation.
      *
-     * @return the generated assembly code.
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the literal.
      */
-    public String toAssembly() {
+    public IRValue toIRValue (IRBuilder ir) {
 
-	return "\tpush\t" + (int)_value + "\t\t; Character\n";
+	return ir.constant((int)_value);
 
-    } // toAssembly ()
+    } // toIRValue ()
     // =============================================================================================================================
 
 
-    
+
     // =============================================================================================================================
     public String toString() {
 
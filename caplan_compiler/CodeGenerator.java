@@ -0,0 +1,1272 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Translates the intermediate representation of one procedure into x86-64 assembly.
+ *
+ * Each temporary is first given a location: a register chosen by <code>LinearScan</code> over the whole function, or, if it
+ * is spilled, a word in the frame.  A temporary that lives across a call can only have a callee-saved register, which is then
+ * saved in a frame word on entry and restored on exit.  Phis are then replaced by copies at the ends of the predecessor blocks,
+ * after splitting any edge on which the copies could not otherwise be placed.
+ *
+ * RAX, RDX, and R11 are never allocated: RAX and RDX are needed for division and return values, and serve (with R11) as
+ * scratch registers within the code for one instruction.
+ *
+ * The frame is addressed through RBP, and RSP is kept 16-byte aligned at every call.  A leaf (a function that makes no calls,
+ * apart from tail calls) needs no frame unless it has memory-resident variables: its parameters stay in the registers in which
+ * they arrive where they can, and the few words that it may spill are kept in the red zone, the 128 bytes below RSP that the
+ * ABI leaves to the function that is running.
+ */
+public class CodeGenerator {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The function to translate. */
+    private final IRFunction           _function;
+
+    /** The location of each temporary that has one; temporaries that are never used have none. */
+    private final Map<IRValue, Location> _locations;
+
+    /** The comparisons emitted as part of the branches that use them, so that their values are never materialized. */
+    private final Set<IRInstruction>   _fused;
+
+    /** The calls whose values are returned at once, made as jumps that reuse the caller's frame, and the returns they replace. */
+    private final Set<IRInstruction>   _tailCalls;
+
+    /** The number of frame words in use (the slots of memory-resident variables, then the spilled temporaries). */
+    private int                        _frameWords;
+
+    /** The frame word in which each callee-saved register that is allocated is saved. */
+    private final Map<Register, Location> _saved;
+
+    /** Whether the function makes no calls, apart from tail calls. */
+    private boolean                    _leaf;
+
+    /** The register through which frame words are addressed: RBP, or RSP in a function that has no frame. */
+    private String                     _frameBase;
+
+    /** The destination for the generated assembly. */
+    private AssemblyWriter             _out;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /** The number of words below RSP that a leaf may use without moving RSP (the red zone). */
+    private static final int RED_ZONE_WORDS = 128 / Utility._bytesPerWord;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Where a value is kept: a register, or a word in the frame.
+     */
+    private final class Location {
+
+	/** The register, or <code>null</code> for a frame word. */
+	final Register _register;
+
+	/** The offset of the frame word below the frame base. */
+	final int      _offset;
+
+	Location (Register register) {
+	    _register = register;
+	    _offset   = 0;
+	}
+
+	Location (int offset) {
+	    _register = null;
+	    _offset   = offset;
+	}
+
+	boolean isRegister () {
+	    return _register != null;
+	}
+
+	/** The location as an operand of the given size (in bytes). */
+	String sized (int size) {
+	    if (_register != null) {
+		return size == 1 ? _register.low() : _register.toString();
+	    }
+	    return (size == 1 ? "byte " : "qword ") + "[" + _frameBase + " - " + _offset + "]";
+	}
+
+	public boolean equals (Object other) {
+	    return other instanceof Location location && location._register == _register && location._offset == _offset;
+	}
+
+	public int hashCode () {
+	    return _register == null ? _offset : _register.hashCode();
+	}
+
+	public String toString () {
+	    return sized(Utility._bytesPerWord);
+	}
+
+    } // class Location
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * One of a set of copies to be made as if simultaneously (see <code>parallelCopy()</code>).
+     */
+    private static final class Move {
+
+	/** Where the value goes. */
+	final Location _destination;
+
+	/** The value, if it is not in a location (a constant, symbol, or slot address). */
+	final IRValue  _value;
+
+	/** Where the value is, if it is in one. */
+	Location       _source;
+
+	Move (Location destination, IRValue value, Location source) {
+	    _destination = destination;
+	    _value       = value;
+	    _source      = source;
+	}
+
+    } // class Move
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /** The scratch registers, as locations. */
+    private final Location RAX = new Location(Register.RAX);
+    private final Location RDX = new Location(Register.RDX);
+    private final Location R11 = new Location(Register.R11);
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Prepare to translate a function.
+     *
+     * @param function The function.
+     */
+    public CodeGenerator (IRFunction function) {
+
+	_function   = function;
+	_locations  = new HashMap<IRValue, Location>();
+	_fused      = new HashSet<IRInstruction>();
+	_tailCalls  = new HashSet<IRInstruction>();
+	_saved      = new LinkedHashMap<Register, Location>();
+	_frameWords = function.getSlotCount();
+	_frameBase  = "rbp";
+
+    } // CodeGenerator ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Generate the assembly for the function.
+     *
+     * @param out The destination for the generated assembly.
+     */
+    public void toAssembly (AssemblyWriter out) {
+
+	_out = out;
+	selectAddresses();
+	removeUnusedValues();
+	selectBranches();
+	selectTailCalls();
+	splitCriticalEdges();
+	selectLeaf();
+	allocate();
+	if (_leaf && _function.getSlotCount() == 0 && _frameWords <= RED_ZONE_WORDS) {
+	    _frameBase = "rsp";
+	}
+
+	// Prologue: establish the frame, keeping RSP 16-byte aligned, and move the parameters to where they are kept.
+	int frameSize = (_frameWords * Utility._bytesPerWord + 15) / 16 * 16;
+	out.label(_function._name);
+	out.blank();
+	out.comment("Callee prologue (" + _function._name + ")");
+	if (hasFrame()) {
+	    out.instruction("push", "rbp").comment("Preserve rbp");
+	    out.instruction("mov", "rbp", "rsp").comment("Update base pointer");
+	    if (frameSize > 0) {
+		out.instruction("sub", "rsp", frameSize).comment("Frame for " + _frameWords + " words");
+	    }
+	} else if (_frameWords > 0) {
+	    out.comment("No frame: " + _frameWords + " words in the red zone");
+	} else {
+	    out.comment("No frame");
+	}
+	for (Map.Entry<Register, Location> saved : _saved.entrySet()) {
+	    out.instruction("mov", saved.getValue(), saved.getKey()).comment("Preserve " + saved.getKey());
+	}
+	List<Move> parameters = new ArrayList<Move>();
+	for (IRInstruction instruction : _function.getEntry()._instructions) {
+	    Location location = _locations.get(instruction._result);
+	    if (instruction._opcode == IRInstruction.Opcode.PARAMETER && location != null) {
+		if (instruction._size >= Register.ARGUMENTS.length) {
+		    Utility.abort("CodeGenerator: more than " + Register.ARGUMENTS.length + " parameters in " + _function._name);
+		}
+		parameters.add(new Move(location, null, new Location(Register.ARGUMENTS[instruction._size])));
+	    }
+	}
+	parallelCopy(parameters);
+	out.blank();
+	out.comment("Callee body (" + _function._name + ")");
+
+	// Body: each block in turn, each falling through to the next where it can.
+	List<BasicBlock> blocks = _function.getBlocks();
+	for (int i = 0; i < blocks.size(); i += 1) {
+	    BasicBlock block = blocks.get(i);
+	    BasicBlock next  = (i + 1 < blocks.size()) ? blocks.get(i + 1) : null;
+	    if (i > 0) {
+		out.label(label(block));
+	    }
+	    for (IRInstruction instruction : block._instructions) {
+		toAssembly(instruction, next);
+	    }
+	}
+
+    } // toAssembly ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Fold address arithmetic into the addressing modes of x86-64, <code>[base + index*scale + displacement]</code>.  A sum
+     * that has an index scaled by a multiplication (by 2, 4, or 8) becomes an address instruction (for <code>lea</code>); a
+     * load or store through a sum or address formed earlier in the same block takes over its parts.  What is then left unused
+     * is removed by <code>removeUnusedValues()</code>.
+     */
+    private void selectAddresses () {
+
+	for (BasicBlock block : _function.getBlocks()) {
+	    List<IRInstruction> instructions = block._instructions;
+	    for (int i = 0; i < instructions.size(); i += 1) {
+
+		IRInstruction instruction = instructions.get(i);
+		if (instruction._opcode == IRInstruction.Opcode.ADD) {
+		    IRInstruction address = new IRInstruction(IRInstruction.Opcode.ADDRESS, null);
+		    if (formAddress(address, instruction) && address._scale > 1) {
+			IRInstruction replacement = new IRInstruction(IRInstruction.Opcode.ADDRESS, instruction._result,
+								      address._operands.toArray(new IRValue[0]));
+			replacement._scale        = address._scale;
+			replacement._displacement = address._displacement;
+			replacement._block        = block;
+			instructions.set(i, replacement);
+		    }
+		    continue;
+		}
+		if (instruction._opcode != IRInstruction.Opcode.LOAD && instruction._opcode != IRInstruction.Opcode.STORE) {
+		    continue;
+		}
+
+		// Take over the parts of an address computed in this block.
+		IRInstruction definition = localDefinition(instruction.getOperand(0), block);
+		if (definition == null) {
+		    continue;
+		}
+		IRInstruction address = new IRInstruction(IRInstruction.Opcode.ADDRESS, null);
+		if (definition._opcode == IRInstruction.Opcode.ADDRESS) {
+		    address._operands.addAll(definition._operands);
+		    address._scale        = definition._scale;
+		    address._displacement = definition._displacement;
+		} else if (definition._opcode != IRInstruction.Opcode.ADD || !formAddress(address, definition)) {
+		    continue;
+		}
+		instruction._operands.set(0, address._operands.get(0));
+		if (address._scale != 0) {
+		    instruction._operands.add(address._operands.get(1));
+		}
+		instruction._scale        = address._scale;
+		instruction._displacement = address._displacement;
+
+	    }
+	}
+
+    } // selectAddresses ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Express a sum as an address: a base plus a constant displacement, or a base plus an index, scaled if the index is a
+     * multiplication (by 1, 2, 4, or 8) computed in the same block.
+     *
+     * @param address The address instruction in which to set the parts.
+     * @param sum     The sum.
+     * @return <code>true</code> if the sum could be expressed; <code>false</code> otherwise.
+     */
+    private boolean formAddress (IRInstruction address, IRInstruction sum) {
+
+	IRValue left  = sum.getOperand(0);
+	IRValue right = sum.getOperand(1);
+	if (right.isConstant() && fitsImmediate(right._number) && !left.isConstant()) {
+	    address._operands.add(left);
+	    address._displacement = right._number;
+	    return true;
+	} else if (left.isConstant() && fitsImmediate(left._number) && !right.isConstant()) {
+	    address._operands.add(right);
+	    address._displacement = left._number;
+	    return true;
+	} else if (!left.isTemporary() && !right.isTemporary()) {
+	    return false;
+	}
+
+	// The index must be a temporary; the base may be anything but a constant.
+	IRValue base  = left.isTemporary() && !right.isTemporary() ? right : left;
+	IRValue index = (base == left) ? right : left;
+	int     scale = 1;
+	for (IRValue candidate : new IRValue[] { right, left }) {
+	    IRValue other = (candidate == right) ? left : right;
+	    IRInstruction product = localDefinition(candidate, sum._block);
+	    if (product != null && product._opcode == IRInstruction.Opcode.MUL && !other.isConstant()) {
+		boolean first  = product.getOperand(0).isConstant();
+		IRValue factor = product.getOperand(first ? 0 : 1);
+		IRValue scaled = product.getOperand(first ? 1 : 0);
+		if (factor.isConstant() && isScale(factor._number) && scaled.isTemporary()) {
+		    base  = other;
+		    index = scaled;
+		    scale = (int)factor._number;
+		    break;
+		}
+	    }
+	}
+	if (base.isConstant() || !index.isTemporary()) {
+	    return false;
+	}
+	address._operands.add(base);
+	address._operands.add(index);
+	address._scale = scale;
+	return true;
+
+    } // formAddress ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the instruction that defines a value, if it is in the given block.
+     *
+     * @param value The value.
+     * @param block The block.
+     * @return the defining instruction, or <code>null</code> if the value is not a temporary defined in the block.
+     */
+    private static IRInstruction localDefinition (IRValue value, BasicBlock block) {
+
+	if (!value.isTemporary() || value.getDefinition()._block != block) {
+	    return null;
+	}
+	return value.getDefinition();
+
+    } // localDefinition ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static boolean isScale (long factor) {
+
+	return factor == 1 || factor == 2 || factor == 4 || factor == 8;
+
+    } // isScale ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove the pure instructions whose results are not used (such as the arithmetic folded into addresses), repeatedly, since
+     * removing one may leave the values that it used unused in turn.
+     */
+    private void removeUnusedValues () {
+
+	boolean removed = true;
+	while (removed) {
+	    Map<IRValue, Integer> uses = new HashMap<IRValue, Integer>();
+	    for (BasicBlock block : _function.getBlocks()) {
+		for (IRInstruction instruction : block._instructions) {
+		    for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+			uses.merge(instruction.getOperand(i), 1, Integer::sum);
+		    }
+		}
+	    }
+	    removed = false;
+	    for (BasicBlock block : _function.getBlocks()) {
+		removed = block._instructions.removeIf(instruction -> instruction.isPure() &&
+						       !uses.containsKey(instruction._result)) || removed;
+	    }
+	}
+
+    } // removeUnusedValues ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Fuse each branch on a comparison, made just before it and used nowhere else, with that comparison: the branch is then
+     * made on the flags that <code>cmp</code> sets, without the 0/1 value ever being materialized.
+     */
+    private void selectBranches () {
+
+	Map<IRValue, Integer> uses = new HashMap<IRValue, Integer>();
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		    uses.merge(instruction.getOperand(i), 1, Integer::sum);
+		}
+	    }
+	}
+
+	for (BasicBlock block : _function.getBlocks()) {
+	    List<IRInstruction> instructions = block._instructions;
+	    IRInstruction       branch       = block.getTerminator();
+	    if (branch == null || branch._opcode != IRInstruction.Opcode.BRANCH || instructions.size() < 2) {
+		continue;
+	    }
+	    IRInstruction comparison = instructions.get(instructions.size() - 2);
+	    if (comparison.isComparison() && branch.getOperand(0) == comparison._result && uses.get(comparison._result) == 1) {
+		_fused.add(comparison);
+	    }
+	}
+
+    } // selectBranches ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Find the tail calls: each call whose value (if any) the block then returns.  The caller's frame is popped before the
+     * callee is entered by a jump, so the callee returns straight to the caller's caller.  No frame slot may be in use, since
+     * its address could have been passed to the callee; the arguments themselves are all in registers.
+     */
+    private void selectTailCalls () {
+
+	if (_function.getSlotCount() > 0) {
+	    return;
+	}
+	for (BasicBlock block : _function.getBlocks()) {
+	    List<IRInstruction> instructions = block._instructions;
+	    IRInstruction       ret          = block.getTerminator();
+	    if (ret == null || ret._opcode != IRInstruction.Opcode.RETURN || instructions.size() < 2) {
+		continue;
+	    }
+	    IRInstruction call = instructions.get(instructions.size() - 2);
+	    if (call._opcode == IRInstruction.Opcode.CALL && (ret.getOperandCount() == 0 || ret.getOperand(0) == call._result)) {
+		_tailCalls.add(call);
+		_tailCalls.add(ret);
+	    }
+	}
+
+    } // selectTailCalls ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Determine whether the function is a leaf: whether it makes no calls but tail calls, which leave after its frame is gone.
+     */
+    private void selectLeaf () {
+
+	_leaf = true;
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		if (instruction._opcode == IRInstruction.Opcode.CALL && !_tailCalls.contains(instruction)) {
+		    _leaf = false;
+		}
+	    }
+	}
+
+    } // selectLeaf ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private boolean hasFrame () {
+
+	return _frameBase.equals("rbp");
+
+    } // hasFrame ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Split each edge that leads from a block with several successors to a block with phis (and so several predecessors),
+     * giving the copies for the phis a block of their own in which to go.
+     */
+    private void splitCriticalEdges () {
+
+	List<BasicBlock> blocks = _function.getBlocks();
+	for (BasicBlock block : new ArrayList<BasicBlock>(blocks)) {
+	    if (block._instructions.isEmpty() || block._instructions.get(0)._opcode != IRInstruction.Opcode.PHI) {
+		continue;
+	    }
+	    for (int i = 0; i < block._predecessors.size(); i += 1) {
+		BasicBlock predecessor = block._predecessors.get(i);
+		if (predecessor.getSuccessors().size() < 2) {
+		    continue;
+		}
+		BasicBlock edge = _function.newBlock();
+		blocks.remove(edge);
+		blocks.add(blocks.indexOf(block), edge);
+		IRInstruction jump = new IRInstruction(IRInstruction.Opcode.JUMP, null);
+		jump._targets.add(block);
+		edge.add(jump);
+		edge._predecessors.add(predecessor);
+		predecessor.retarget(block, edge);
+		block._predecessors.set(i, edge);
+	    }
+	}
+
+    } // splitCriticalEdges ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Give each temporary that is used a location, and a frame word to each callee-saved register that must be preserved.  A
+     * parameter is steered toward the register in which it arrives.
+     */
+    private void allocate () {
+
+	// The temporaries that need locations: those that are used, apart from values never materialized.
+	Set<IRValue> values = new HashSet<IRValue>();
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		    if (instruction.getOperand(i).isTemporary()) {
+			values.add(instruction.getOperand(i));
+		    }
+		}
+	    }
+	}
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		if (_fused.contains(instruction) || _tailCalls.contains(instruction)) {
+		    values.remove(instruction._result);
+		}
+	    }
+	}
+
+	LinearScan scan = new LinearScan(_function, values, _fused, _tailCalls);
+	for (IRInstruction instruction : _function.getEntry()._instructions) {
+	    if (instruction._opcode == IRInstruction.Opcode.PARAMETER && instruction._size < Register.ARGUMENTS.length) {
+		scan.hint(instruction._result, Register.ARGUMENTS[instruction._size]);
+	    }
+	}
+	Map<IRValue, Register> registers = scan.allocate();
+
+	// Give the frame words in the order of the definitions, so that the layout of the frame is the same from run to run.
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		IRValue result = instruction._result;
+		if (result != null && values.contains(result)) {
+		    Register register = registers.get(result);
+		    _locations.put(result, register != null ? new Location(register) : newFrameWord());
+		}
+	    }
+	}
+	for (Register register : scan.getPreserved()) {
+	    _saved.put(register, newFrameWord());
+	}
+
+    } // allocate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private Location newFrameWord () {
+
+	_frameWords = _frameWords + 1;
+	return new Location(_frameWords * Utility._bytesPerWord);
+
+    } // newFrameWord ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Generate the assembly for one instruction.
+     *
+     * @param instruction The instruction.
+     * @param next        The block that follows the instruction's block in the layout, if any.
+     */
+    private void toAssembly (IRInstruction instruction, BasicBlock next) {
+
+	IRValue  result      = instruction._result;
+	Location destination = (result == null) ? null : _locations.get(result);
+	if (_fused.contains(instruction)) {
+	    return;
+	}
+
+	switch (instruction._opcode) {
+
+	case PARAMETER:
+	case PHI:
+	    // Handled at the ends of the predecessors (and in the prologue, for parameters).
+	    break;
+
+	case ADD: case SUB: case MUL: case AND: case OR: case XOR: {
+	    IRValue  left   = instruction.getOperand(0);
+	    IRValue  right  = instruction.getOperand(1);
+
+	    // Multiplication by a power of two is a shift.
+	    if (instruction._opcode == IRInstruction.Opcode.MUL && left.isConstant() && shift(left._number) > 0) {
+		IRValue swap = left;
+		left  = right;
+		right = swap;
+	    }
+	    if (instruction._opcode == IRInstruction.Opcode.MUL && right.isConstant() && shift(right._number) > 0) {
+		Location target = target(destination, null);
+		load(target, left);
+		_out.instruction("shl", target, shift(right._number)).comment("Multiply by " + right._number);
+		store(destination, target);
+		break;
+	    }
+
+	    Location target = target(destination, right);
+	    load(target, left);
+	    _out.instruction(mnemonic(instruction._opcode), target, source(right, R11));
+	    store(destination, target);
+	    break;
+	}
+
+	case ADDRESS: {
+	    Location target = (destination != null && destination.isRegister()) ? destination : RAX;
+	    _out.instruction("lea", target, address(instruction));
+	    store(destination, target);
+	    break;
+	}
+
+	case DIV: case MOD: {
+	    // To use idiv:  rdx:rax / divisor => rax (R rdx); cqo sign-extends the dividend in rax into rdx.
+	    load(RAX, instruction.getOperand(0));
+	    Location divisor = _locations.get(instruction.getOperand(1));
+	    if (divisor == null) {
+		load(R11, instruction.getOperand(1));
+		divisor = R11;
+	    }
+	    _out.instruction("cqo");
+	    _out.instruction("idiv", divisor);
+	    store(destination, instruction._opcode == IRInstruction.Opcode.DIV ? RAX : RDX);
+	    break;
+	}
+
+	case NEG: case NOT: {
+	    Location target = target(destination, null);
+	    load(target, instruction.getOperand(0));
+	    _out.instruction(mnemonic(instruction._opcode), target);
+	    store(destination, target);
+	    break;
+	}
+
+	case EQ: case NE: case LT: case LE: case GT: case GE: {
+	    String   condition = compare(instruction);
+	    Location target    = (destination != null && destination.isRegister()) ? destination : RAX;
+	    _out.instruction("set" + condition, target._register.low());
+	    _out.instruction("movzx", target, target._register.low());
+	    store(destination, target);
+	    break;
+	}
+
+	case LOAD: {
+	    Location target  = (destination != null && destination.isRegister()) ? destination : RAX;
+	    String   address = address(instruction);
+	    if (instruction._size == 1) {
+		_out.instruction("movzx", target, "byte " + address);
+	    } else {
+		_out.instruction("mov", target, address);
+	    }
+	    store(destination, target);
+	    break;
+	}
+
+	case STORE: {
+	    int     size    = instruction._size;
+	    String  address = address(instruction);
+	    IRValue value   = instruction.getOperand(1);
+	    String  text;
+	    if (value.isConstant() && fitsImmediate(value._number)) {
+		text = String.valueOf(size == 1 ? value._number & 0xff : value._number);
+	    } else {
+		Location location = _locations.get(value);
+		if (location == null || !location.isRegister()) {
+		    load(RAX, value);
+		    location = RAX;
+		}
+		text = location.sized(size);
+	    }
+	    _out.instruction("mov", (size == 1 ? "byte " : "qword ") + address, text);
+	    break;
+	}
+
+	case CALL: {
+	    _out.comment("Call " + instruction._callee);
+	    List<Move> arguments = new ArrayList<Move>();
+	    for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		if (i >= Register.ARGUMENTS.length) {
+		    Utility.abort("CodeGenerator: more than " + Register.ARGUMENTS.length + " arguments to " + instruction._callee);
+		}
+		IRValue argument = instruction.getOperand(i);
+		arguments.add(new Move(new Location(Register.ARGUMENTS[i]), argument, _locations.get(argument)));
+	    }
+	    parallelCopy(arguments);
+	    if (instruction._varargs) {
+		_out.instruction("mov", "rax", 0).comment("No vector arguments for varargs");
+	    }
+	    if (_tailCalls.contains(instruction)) {
+		epilogue();
+		_out.instruction("jmp", instruction._callee).comment("Tail call");
+		break;
+	    }
+	    _out.instruction("call", instruction._callee);
+	    store(destination, RAX);
+	    break;
+	}
+
+	case JUMP: {
+	    BasicBlock target = instruction._targets.get(0);
+	    toPhiCopies(instruction._block, target);
+	    if (target != next) {
+		_out.instruction("jmp", label(target));
+	    }
+	    break;
+	}
+
+	case BRANCH: {
+	    BasicBlock    ifTrue     = instruction._targets.get(0);
+	    BasicBlock    ifFalse    = instruction._targets.get(1);
+	    IRInstruction comparison = instruction.getOperand(0).getDefinition();
+	    String        condition;
+	    if (comparison != null && _fused.contains(comparison)) {
+		condition = compare(comparison);
+	    } else {
+		Location value = _locations.get(instruction.getOperand(0));
+		if (value == null) {
+		    load(RAX, instruction.getOperand(0));
+		    value = RAX;
+		}
+		if (value.isRegister()) {
+		    _out.instruction("test", value, value).comment("Set the zero flag based on the condition");
+		} else {
+		    _out.instruction("cmp", value, 0).comment("Set the zero flag based on the condition");
+		}
+		condition = "nz";
+	    }
+	    if (ifTrue == next) {
+		_out.instruction("j" + negate(condition), label(ifFalse));
+	    } else {
+		_out.instruction("j" + condition, label(ifTrue));
+		if (ifFalse != next) {
+		    _out.instruction("jmp", label(ifFalse));
+		}
+	    }
+	    break;
+	}
+
+	case RETURN:
+	    if (_tailCalls.contains(instruction)) {
+		break;
+	    }
+	    if (instruction.getOperandCount() > 0) {
+		load(RAX, instruction.getOperand(0));
+	    }
+	    epilogue();
+	    _out.instruction("ret");
+	    break;
+
+	}
+
+    } // toAssembly ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Restore the callee-saved registers and pop the frame, if there is one, before leaving the function.
+     */
+    private void epilogue () {
+
+	for (Map.Entry<Register, Location> saved : _saved.entrySet()) {
+	    _out.instruction("mov", saved.getKey(), saved.getValue()).comment("Restore " + saved.getKey());
+	}
+	if (hasFrame()) {
+	    _out.instruction("mov", "rsp", "rbp").comment("Pop the frame");
+	    _out.instruction("pop", "rbp").comment("Restore base pointer");
+	}
+
+    } // epilogue ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Compare the operands of a comparison, setting the flags.  A constant left operand is compared from the right instead.
+     *
+     * @param comparison The comparison.
+     * @return the condition code under which the comparison holds, given the flags as set.
+     */
+    private String compare (IRInstruction comparison) {
+
+	IRValue              left   = comparison.getOperand(0);
+	IRValue              right  = comparison.getOperand(1);
+	IRInstruction.Opcode opcode = comparison._opcode;
+	if (left.isConstant() && !right.isConstant()) {
+	    left   = comparison.getOperand(1);
+	    right  = comparison.getOperand(0);
+	    opcode = swap(opcode);
+	}
+
+	Location location = _locations.get(left);
+	if (location == null || !location.isRegister()) {
+	    load(RAX, left);
+	    location = RAX;
+	}
+	_out.instruction("cmp", location, source(right, R11)).comment("Compare operands");
+	return condition(opcode);
+
+    } // compare ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Choose the register in which to compute a result: its own, if it has one that does not hold a later operand; otherwise,
+     * RAX.
+     *
+     * @param destination The location of the result, if any.
+     * @param later       The operand read after the first is in place, if any.
+     * @return the register.
+     */
+    private Location target (Location destination, IRValue later) {
+
+	if (destination != null && destination.isRegister() && !destination.equals(_locations.get(later))) {
+	    return destination;
+	}
+	return RAX;
+
+    } // target ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Generate the copies that give the phis of a block the values that arrive along one edge.
+     *
+     * @param from The predecessor.
+     * @param to   The block with the phis.
+     */
+    private void toPhiCopies (BasicBlock from, BasicBlock to) {
+
+	int        edge   = to._predecessors.indexOf(from);
+	List<Move> copies = new ArrayList<Move>();
+	for (IRInstruction phi : to._instructions) {
+	    if (phi._opcode != IRInstruction.Opcode.PHI) {
+		break;
+	    }
+	    Location destination = _locations.get(phi._result);
+	    if (destination != null) {
+		IRValue value = phi.getOperand(edge);
+		copies.add(new Move(destination, value, _locations.get(value)));
+	    }
+	}
+	parallelCopy(copies);
+
+    } // toPhiCopies ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Make a set of copies as if all at once: no copy overwrites a value before every copy that reads it is made.  A cycle of
+     * copies is broken by holding one value in RAX.
+     *
+     * @param moves The copies.  The destinations must be distinct.
+     */
+    private void parallelCopy (List<Move> moves) {
+
+	List<Move> pending = new ArrayList<Move>();
+	for (Move move : moves) {
+	    if (!move._destination.equals(move._source)) {
+		pending.add(move);
+	    }
+	}
+
+	while (!pending.isEmpty()) {
+
+	    // Make a copy whose destination no other pending copy still reads.
+	    Move ready = null;
+	    for (Move move : pending) {
+		boolean read = false;
+		for (Move other : pending) {
+		    read = read || (other != move && move._destination.equals(other._source));
+		}
+		if (!read) {
+		    ready = move;
+		    break;
+		}
+	    }
+	    if (ready != null) {
+		if (ready._source != null) {
+		    move(ready._destination, ready._source);
+		} else {
+		    load(ready._destination, ready._value);
+		}
+		pending.remove(ready);
+		continue;
+	    }
+
+	    // Every destination is still read: the copies form cycles.  Set one value aside to break one.
+	    Move first = pending.get(0);
+	    move(RAX, first._source);
+	    first._source = RAX;
+
+	}
+
+    } // parallelCopy ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Copy a value from one location to another.
+     *
+     * @param destination The location to which to copy.
+     * @param source      The location from which to copy.
+     */
+    private void move (Location destination, Location source) {
+
+	if (destination.equals(source)) {
+	    return;
+	}
+	if (!destination.isRegister() && !source.isRegister()) {
+	    _out.instruction("mov", RDX, source);
+	    source = RDX;
+	}
+	_out.instruction("mov", destination, source);
+
+    } // move ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Put a value into a location.
+     *
+     * @param destination The location.
+     * @param value       The value.
+     */
+    private void load (Location destination, IRValue value) {
+
+	Location location = _locations.get(value);
+	if (location != null) {
+	    move(destination, location);
+	    return;
+	}
+
+	// A constant, symbol, or slot address: build it in place, or in a scratch register if the destination is memory and
+	// no single instruction can do it.
+	Location target = destination;
+	if (!destination.isRegister() && !(value.isConstant() && fitsImmediate(value._number))) {
+	    target = RDX;
+	}
+	switch (value._kind) {
+	case CONSTANT:
+	    _out.instruction("mov", target, value._number);
+	    break;
+	case SYMBOL:
+	    _out.instruction("mov", target, value._symbol);
+	    break;
+	case SLOT:
+	    _out.instruction("lea", target, slotAddress(value));
+	    break;
+	default:
+	    Utility.abort("CodeGenerator.load(): " + value + " has no location");
+	}
+	move(destination, target);
+
+    } // load ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Move a computed result into its location, if it has one (an unused result has none).
+     *
+     * @param destination The location of the result, if any.
+     * @param target      Where the result was computed.
+     */
+    private void store (Location destination, Location target) {
+
+	if (destination != null) {
+	    move(destination, target);
+	}
+
+    } // store ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide a value as the source operand of an instruction whose destination is a register.
+     *
+     * @param value   The value.
+     * @param scratch The register in which to build the value if it cannot be an operand as is.
+     * @return the operand.
+     */
+    private String source (IRValue value, Location scratch) {
+
+	Location location = _locations.get(value);
+	if (location != null) {
+	    return location.toString();
+	}
+	if (value.isConstant() && fitsImmediate(value._number)) {
+	    return String.valueOf(value._number);
+	}
+	load(scratch, value);
+	return scratch.toString();
+
+    } // source ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the memory operand for the address of a load, store, or address instruction.  A base that is not a symbol, a
+     * slot, or a temporary in a register is loaded into R11, and an index that is not in a register into RDX.
+     *
+     * @param instruction The instruction.
+     * @return the memory operand (without a size).
+     */
+    private String address (IRInstruction instruction) {
+
+	IRValue base         = instruction.getOperand(0);
+	long    displacement = instruction._displacement;
+	String  text;
+	switch (base._kind) {
+	case SYMBOL:
+	    text = base._symbol;
+	    break;
+	case SLOT:
+	    text         = "rbp";
+	    displacement = displacement - (base._number + 1) * Utility._bytesPerWord;
+	    break;
+	default:
+	    Location location = _locations.get(base);
+	    if (location == null || !location.isRegister()) {
+		load(R11, base);
+		location = R11;
+	    }
+	    text = location.toString();
+	}
+
+	IRValue index = instruction.getIndex();
+	if (index != null) {
+	    Location location = _locations.get(index);
+	    if (location == null || !location.isRegister()) {
+		load(RDX, index);
+		location = RDX;
+	    }
+	    text = text + " + " + location + (instruction._scale > 1 ? "*" + instruction._scale : "");
+	}
+	if (displacement > 0) {
+	    text = text + " + " + displacement;
+	} else if (displacement < 0) {
+	    text = text + " - " + -displacement;
+	}
+	return "[" + text + "]";
+
+    } // address ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static String slotAddress (IRValue slot) {
+
+	return "[rbp - " + (slot._number + 1) * Utility._bytesPerWord + "]";
+
+    } // slotAddress ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the shift that multiplies by a factor.
+     *
+     * @param factor The factor.
+     * @return <i>k</i> if the factor is 2<sup><i>k</i></sup> for some <i>k</i> from 1 to 62; 0 otherwise.
+     */
+    private static int shift (long factor) {
+
+	return (factor > 1 && Long.bitCount(factor) == 1) ? Long.numberOfTrailingZeros(factor) : 0;
+
+    } // shift ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static boolean fitsImmediate (long value) {
+
+	return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+
+    } // fitsImmediate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private String label (BasicBlock block) {
+
+	return _function._name + "_L" + block._number;
+
+    } // label ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static String mnemonic (IRInstruction.Opcode opcode) {
+
+	switch (opcode) {
+	case ADD: return "add";
+	case SUB: return "sub";
+	case MUL: return "imul";
+	case AND: return "and";
+	case OR:  return "or";
+	case XOR: return "xor";
+	case NEG: return "neg";
+	case NOT: return "not";
+	default:
+	    Utility.abort("CodeGenerator.mnemonic(): no mnemonic for " + opcode);
+	    return null;
+	}
+
+    } // mnemonic ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the comparison that holds with the operands exchanged.
+     *
+     * @param opcode The comparison.
+     * @return the comparison with its operands exchanged.
+     */
+    private static IRInstruction.Opcode swap (IRInstruction.Opcode opcode) {
+
+	switch (opcode) {
+	case LT: return IRInstruction.Opcode.GT;
+	case LE: return IRInstruction.Opcode.GE;
+	case GT: return IRInstruction.Opcode.LT;
+	case GE: return IRInstruction.Opcode.LE;
+	default: return opcode;
+	}
+
+    } // swap ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the condition code that holds exactly when another does not.
+     *
+     * @param condition The condition code.
+     * @return the negated condition code.
+     */
+    private static String negate (String condition) {
+
+	switch (condition) {
+	case "e":  return "ne";
+	case "ne": return "e";
+	case "z":  return "nz";
+	case "nz": return "z";
+	case "l":  return "ge";
+	case "ge": return "l";
+	case "le": return "g";
+	case "g":  return "le";
+	default:
+	    Utility.abort("CodeGenerator.negate(): unknown condition " + condition);
+	    return null;
+	}
+
+    } // negate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the condition code (as used in <code>setcc</code> and <code>jcc</code>) under which a comparison holds.
+     *
+     * @param opcode The comparison.
+     * @return the condition code.
+     */
+    private static String condition (IRInstruction.Opcode opcode) {
+
+	switch (opcode) {
+	case EQ: return "e";
+	case NE: return "ne";
+	case LT: return "l";
+	case LE: return "le";
+	case GT: return "g";
+	case GE: return "ge";
+	default:
+	    Utility.abort("CodeGenerator.condition(): " + opcode + " is not a comparison");
+	    return null;
+	}
+
+    } // condition ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CodeGenerator
+// =================================================================================================================================
@@ -0,0 +1,41 @@
+// =================================================================================================================================
+/**
+ * Thrown to end a compilation when an error is found (or when the compiler fails internally).  The diagnostic that it carries
+ * is recorded by the <code>CompilerSession</code> that was running.
+ */
+public class CompilationException extends RuntimeException {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** The error that ended the compilation. */
+    public final Diagnostic _diagnostic;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an exception for an error.
+     *
+     * @param diagnostic The error.
+     */
+    public CompilationException (Diagnostic diagnostic) {
+
+	super(diagnostic._message);
+	_diagnostic = diagnostic;
+
+    } // CompilationException ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompilationException
+// =================================================================================================================================
@@ -0,0 +1,114 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * A thin client for <code>CompileDaemon</code>: send it one source file to compile and report the result as
+ * <code>Compiler</code> would, along with the time the compilation took.  Because this client does no compiling itself, it
+ * starts quickly and never needs to warm up, though it still pays for starting a JVM; <code>compile.sh</code> uses it only
+ * when it has no other way to reach the daemon.
+ *
+ * Exits with 0 if the compilation succeeded, 1 if it failed, and 2 if the daemon could not be reached (so that the caller can
+ * fall back to <code>Compiler</code>).
+ */
+public class CompileClient {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The exit status when the daemon cannot be reached. */
+    public static final int UNREACHABLE = 2;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The entry point.
+     *
+     * @param args The command-line arguments: the socket pathname, then either a source pathname or <code>--shutdown</code>.
+     */
+    public static void main (String[] args) {
+
+	if (args.length != 2) {
+	    System.err.println("USAGE: java CompileClient <socket pathname> <source code pathname (" + Compiler._sourceSuffix +
+			       ") | --shutdown>");
+	    System.exit(1);
+	}
+
+	// The daemon runs in a directory of its own, so the source must be named absolutely.
+	String request;
+	if (args[1].equals("--shutdown")) {
+	    request = CompileDaemon.SHUTDOWN;
+	} else {
+	    request = CompileDaemon.COMPILE + " " + Path.of(args[1]).toAbsolutePath().normalize();
+	}
+
+	long start = System.nanoTime();
+	try (SocketChannel connection = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+	    try {
+		connection.connect(UnixDomainSocketAddress.of(args[0]));
+	    } catch (IOException e) {
+		System.err.println("ERROR: No compile daemon at " + args[0] + ": " + e.getMessage());
+		System.exit(UNREACHABLE);
+	    }
+	    connection.write(ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.UTF_8)));
+	    connection.shutdownOutput();
+
+	    BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection),
+									 StandardCharsets.UTF_8));
+	    String header = in.readLine();
+	    if (request.equals(CompileDaemon.SHUTDOWN)) {
+		return;
+	    }
+	    if (header == null) {
+		System.err.println("ERROR: Compile daemon closed the connection without responding");
+		System.exit(UNREACHABLE);
+	    }
+
+	    // Pass the diagnostics through as they were written.
+	    for (String line = in.readLine(); line != null; line = in.readLine()) {
+		System.err.println(line);
+	    }
+
+	    // Header: <status> <request number> <microseconds> [<assembly pathname>]
+	    String[] fields       = header.split(" ", 4);
+	    double   compileTime  = Long.parseLong(fields[2]) / 1000.0;
+	    double   roundTrip    = (System.nanoTime() - start) / 1000000.0;
+	    System.err.printf("Compile daemon request %s: %.3f ms compiling, %.3f ms round trip%n",
+			      fields[1], compileTime, roundTrip);
+	    if (!fields[0].equals(CompileDaemon.OK)) {
+		System.exit(1);
+	    }
+
+	} catch (IOException e) {
+	    System.err.println("ERROR: Lost connection to compile daemon: " + e.getMessage());
+	    System.exit(UNREACHABLE);
+	}
+
+    } // main ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompileClient
+// =================================================================================================================================
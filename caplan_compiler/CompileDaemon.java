@@ -0,0 +1,285 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * A resident compiler.  Starting a JVM and warming up its JIT costs far more than compiling a typical source file, so the
+ * daemon pays that cost once and then serves compile requests over a Unix domain socket.  <code>compile.sh</code> sends its
+ * requests with <code>socat</code> or <code>nc</code>, so that it starts no JVM at all; <code>CompileClient</code> is the
+ * matching client for when neither is installed.
+ *
+ * Each connection carries one request, a single line:
+ * <pre>
+ *     COMPILE &lt;absolute source pathname (.k)&gt;
+ *     SHUTDOWN
+ * </pre>
+ * The response to a compile request is a header line followed by the diagnostics, if any, up to the end of the stream:
+ * <pre>
+ *     OK &lt;request number&gt; &lt;microseconds&gt; &lt;assembly pathname&gt;
+ *     FAILED &lt;request number&gt; &lt;microseconds&gt;
+ * </pre>
+ * The time is that spent compiling within the daemon, so the first (cold) request can be compared with later (warm) ones.
+ */
+public class CompileDaemon {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The request to compile a source file. */
+    public static final String COMPILE  = "COMPILE";
+
+    /** The request to stop the daemon. */
+    public static final String SHUTDOWN = "SHUTDOWN";
+
+    /** The response header for a successful compilation. */
+    public static final String OK       = "OK";
+
+    /** The response header for a failed compilation. */
+    public static final String FAILED   = "FAILED";
+
+    /** The pathname of the socket on which requests are accepted. */
+    private final Path                  _socketPath;
+
+    /** The threads on which requests are handled, one connection each. */
+    private final ExecutorService       _workers;
+
+    /** The number of compile requests received so far. */
+    private final AtomicLong            _requestCount;
+
+    /** The listening socket, while the daemon is serving. */
+    private volatile ServerSocketChannel _server;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The entry point.  Serve compile requests until asked to shut down.
+     *
+     * @param args The command-line arguments: the pathname of the socket.
+     */
+    public static void main (String[] args) {
+
+	if (args.length != 1) {
+	    System.err.println("USAGE: java CompileDaemon <socket pathname>");
+	    System.exit(1);
+	}
+
+	try {
+	    new CompileDaemon(Path.of(args[0])).serve();
+	} catch (IOException e) {
+	    System.err.println("INTERNAL ERROR: Unable to serve on socket " + args[0] + ": " + e.getMessage());
+	    System.exit(1);
+	}
+
+    } // main ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a daemon.
+     *
+     * @param socketPath The pathname of the socket on which to accept requests.
+     */
+    public CompileDaemon (Path socketPath) {
+
+	_socketPath   = socketPath;
+	_workers      = Executors.newCachedThreadPool();
+	_requestCount = new AtomicLong();
+
+    } // CompileDaemon ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Accept connections, handing each to a worker, until a shutdown request closes the socket.
+     *
+     * @throws IOException if the socket cannot be created.
+     */
+    public void serve () throws IOException {
+
+	// A socket file left by a daemon that did not shut down cleanly would block the bind.
+	Files.deleteIfExists(_socketPath);
+
+	try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+	    server.bind(UnixDomainSocketAddress.of(_socketPath));
+	    _server = server;
+	    System.out.println("Compile daemon listening on " + _socketPath);
+
+	    while (true) {
+		SocketChannel connection;
+		try {
+		    connection = server.accept();
+		} catch (ClosedChannelException e) {
+		    break;
+		}
+		_workers.submit(() -> handle(connection));
+	    }
+
+	} finally {
+
+	    // Let requests already being compiled finish.
+	    _workers.shutdown();
+	    try {
+		_workers.awaitTermination(1, TimeUnit.MINUTES);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    Files.deleteIfExists(_socketPath);
+	    System.out.println("Compile daemon stopped after " + _requestCount.get() + " requests");
+
+	}
+
+    } // serve ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Stop accepting requests.
+     */
+    public void shutdown () {
+
+	ServerSocketChannel server = _server;
+	if (server != null) {
+	    try {
+		server.close();
+	    } catch (IOException e) {
+		System.err.println("WARNING: Unable to close socket " + _socketPath + ": " + e.getMessage());
+	    }
+	}
+
+    } // shutdown ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Read one request from a connection and respond to it.
+     *
+     * @param connection The connection to a client.  It is closed once the response is written.
+     */
+    private void handle (SocketChannel connection) {
+
+	try (connection;
+	     BufferedReader in  = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection),
+									     StandardCharsets.UTF_8));
+	     Writer         out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(connection),
+									     StandardCharsets.UTF_8))) {
+
+	    String request = in.readLine();
+	    if (request == null) {
+		return;
+	    } else if (request.equals(SHUTDOWN)) {
+		shutdown();
+	    } else if (request.startsWith(COMPILE + " ")) {
+		compile(request.substring(COMPILE.length() + 1), out);
+	    } else {
+		out.write(FAILED + " 0 0\nINTERNAL ERROR: Unrecognized request: " + request + "\n");
+	    }
+
+	} catch (IOException e) {
+	    System.err.println("WARNING: Lost connection to client: " + e.getMessage());
+	}
+
+    } // handle ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Compile one source file and write the response.
+     *
+     * @param sourcePath The absolute pathname of the source file.
+     * @param out        Where to write the response.
+     * @throws IOException if the response cannot be written.
+     */
+    private void compile (String sourcePath, Writer out) throws IOException {
+
+	long    number    = _requestCount.incrementAndGet();
+	long    start     = System.nanoTime();
+	String  outPath   = null;
+	String  failure   = null;
+	boolean succeeded = false;
+	CompilerSession session = null;
+
+	if (!new File(sourcePath).isAbsolute() || !sourcePath.endsWith(Compiler._sourceSuffix)) {
+	    failure = "Source pathname must be absolute and end with " + Compiler._sourceSuffix + ": " + sourcePath;
+	} else {
+	    outPath = Compiler.assemblyPath(sourcePath);
+	    try {
+		session = CompilerSession.open(sourcePath, new CompilerOptions());
+	    } catch (IOException e) {
+		failure = "Unable to read input file " + sourcePath;
+	    }
+	    if (session != null) {
+		try {
+		    succeeded = session.compileTo(outPath);
+		} catch (IOException e) {
+		    failure = "Unable to write output file " + outPath;
+		}
+	    }
+	}
+
+	long microseconds = (System.nanoTime() - start) / 1000;
+	System.out.printf("[%d] %s %s in %.3f ms%n",
+			  number, succeeded ? "compiled" : "failed", sourcePath, microseconds / 1000.0);
+
+	// Respond with the header, then whatever the compilation found.
+	if (succeeded) {
+	    out.write(OK + " " + number + " " + microseconds + " " + outPath + "\n");
+	} else {
+	    out.write(FAILED + " " + number + " " + microseconds + "\n");
+	}
+	if (failure != null) {
+	    out.write("INTERNAL ERROR: " + failure + "\n");
+	}
+	if (session != null) {
+	    for (Diagnostic diagnostic : session.getDiagnostics()) {
+		out.write(session.format(diagnostic) + "\n");
+	    }
+	}
+
+    } // compile ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompileDaemon
+// =================================================================================================================================
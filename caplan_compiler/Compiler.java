@@ -1,21 +1,27 @@
 // =================================================================================================================================
 // IMPORT
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 // =================================================================================================================================
 
 
 
 // =================================================================================================================================
 /**
- * Direct the stages of compilation.
+ * Direct the stages of compilation.  Any number of source files may be named; each is compiled in its own session into its own
+ * assembly file, and up to <code>-j</code> of them are compiled at once.
  */
 public class Compiler {
 // =================================================================================================================================
@@ -31,6 +37,61 @@ public class Compiler {
 
 
 
+    // =============================================================================================================================
+    /**
+     * The settings given on the command line.
+     */
+    private static final class CommandLine {
+
+	/** The source files to compile, in the order given. */
+	final List<String> _sourcePaths    = new ArrayList<String>();
+
+	/** The most source files to compile at once. */
+	int                _jobs           = Runtime.getRuntime().availableProcessors();
+
+	/** Whether to write the measurements of each compilation as JSON, beside its assembly file. */
+	boolean            _stats          = false;
+
+	/** The window of the peephole optimizer; 0 to disable it. */
+	int                _peepholeWindow = PeepholeOptimizer.DEFAULT_WINDOW;
+
+	/** The number of instructions that inlining may add to one procedure; 0 to disable inlining. */
+	int                _inlineBudget   = Inliner.DEFAULT_BUDGET;
+
+	/** The highest level of debugging message to emit (e.g., 1 for each inlining decision); 0 for none. */
+	int                _debuggingLevel = 0;
+
+    } // class CommandLine
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The result of compiling one source file.
+     */
+    private static final class Outcome {
+
+	/** The source file compiled. */
+	final String  _sourcePath;
+
+	/** Whether the assembly file was written. */
+	final boolean _succeeded;
+
+	/** The diagnostics, formatted for printing; empty if there were none. */
+	final String  _report;
+
+	Outcome (String sourcePath, boolean succeeded, String report) {
+	    _sourcePath = sourcePath;
+	    _succeeded  = succeeded;
+	    _report     = report;
+	}
+
+    } // class Outcome
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * The entry point.  Parse command-line arguments/options and carry out the compilation process.
@@ -39,78 +100,216 @@ public class Compiler {
      */
     public static void main (String[] args) {
 
-	// Get the input path from the command line, and construct the output path from it.
-	String inPath  = parseCommandLine(args);
-	String outPath = inPath.substring(0, inPath.length() - _sourceSuffix.length()) + ".asm";
+	CommandLine commandLine = parseCommandLine(args);
+	List<String> sourcePaths = commandLine._sourcePaths;
+
+	// Compile every source, each in its own session, on a pool of at most the requested size.  The outcomes are gathered
+	// in the order given, not the order finished, so that the report does not vary from run to run.
+	List<Outcome> outcomes = new ArrayList<Outcome>(sourcePaths.size());
+	if (sourcePaths.size() == 1 || commandLine._jobs == 1) {
+	    for (String sourcePath : sourcePaths) {
+		outcomes.add(compileFile(sourcePath, commandLine));
+	    }
+	} else {
+	    ExecutorService pool = Executors.newWorkStealingPool(Math.min(commandLine._jobs, sourcePaths.size()));
+	    List<Callable<Outcome>> tasks = new ArrayList<Callable<Outcome>>(sourcePaths.size());
+	    for (String sourcePath : sourcePaths) {
+		tasks.add(() -> compileFile(sourcePath, commandLine));
+	    }
+	    try {
+		for (Future<Outcome> future : pool.invokeAll(tasks)) {
+		    outcomes.add(future.get());
+		}
+	    } catch (InterruptedException | ExecutionException e) {
+		printErrorAndExit("Batch compilation interrupted: " + e);
+	    } finally {
+		pool.shutdown();
+	    }
+	}
+
+	// Report whatever the compilations found.  With more than one source, name the source of each report.
+	int failures = 0;
+	for (Outcome outcome : outcomes) {
+	    if (sourcePaths.size() > 1 && !outcome._report.isEmpty()) {
+		System.err.println("In " + outcome._sourcePath + ":");
+	    }
+	    System.err.print(outcome._report);
+	    if (!outcome._succeeded) {
+		failures = failures + 1;
+	    }
+	}
+	if (sourcePaths.size() > 1) {
+	    System.err.println("Compiled " + (outcomes.size() - failures) + " of " + outcomes.size() + " source files");
+	}
+
+	if (failures > 0) {
+	    System.exit(1);
+	}
+
+    } // main ()
+    // =============================================================================================================================
 
-	// Open the files.
-	DataInputStream in  = openInput(inPath);
-	PrintWriter     out = openOutput(outPath);
 
-	// 0. Read the entire input and close that input.  Give the Utility the source for error message use.
-	List<Character> source = readInput(in);
+
+    // =============================================================================================================================
+    /**
+     * Compile one source file into its assembly file.
+     *
+     * @param sourcePath  The pathname of the source file.
+     * @param commandLine The settings given on the command line.
+     * @return the outcome, with the diagnostics formatted for printing.
+     */
+    private static Outcome compileFile (String sourcePath, CommandLine commandLine) {
+
+	// Read the entire input into a new compilation session.
+	CompilerOptions options = new CompilerOptions();
+	options._peepholeWindow = commandLine._peepholeWindow;
+	options._inlineBudget   = commandLine._inlineBudget;
+	options._debuggingLevel = commandLine._debuggingLevel;
+	CompilerSession session;
 	try {
-	    in.close();
+	    session = CompilerSession.open(sourcePath, options);
 	} catch (IOException e) {
-	    Utility.warn("Failure closing " + inPath);
+	    return new Outcome(sourcePath, false, "INTERNAL ERROR: Unable to read input file " + sourcePath + "\n");
 	}
-	in = null;
-	Utility._source = source;
 
-	// 1. Scan (lexical analysis)
-	Lexer       lexer  = new Lexer(source);
-	List<Token> tokens = lexer.scan();
-	Utility.debug(1, "Tokens scanned:");
-	int i = 0;
-	for (Token token : tokens) {
-	    Utility.debug(1, "\t" + (i++) + ": " + token);
+	// Compile, streaming the assembly into the output file.
+	String        outPath   = assemblyPath(sourcePath);
+	StringBuilder report    = new StringBuilder();
+	boolean       succeeded = false;
+	try {
+	    succeeded = session.compileTo(outPath);
+	} catch (IOException e) {
+	    report.append("INTERNAL ERROR: Unable to write output file " + outPath + "\n");
 	}
-	//------------------------------------------------------
 
-	// 2. Parse (synctatic analysis)
-	Parser  parser  = new Parser(tokens);
-	Program program = parser.parse();
-	Utility.debug(2, "Parsed code:\n" + program);
+	for (Diagnostic diagnostic : session.getDiagnostics()) {
+	    report.append(session.format(diagnostic)).append('\n');
+	}
 
+	if (commandLine._stats) {
+	    String statsPath = statsPath(sourcePath);
+	    try {
+		Files.writeString(Path.of(statsPath), session.getStats().toJSON(sourcePath, succeeded));
+	    } catch (IOException e) {
+		report.append("INTERNAL ERROR: Unable to write statistics file " + statsPath + "\n");
+	    }
+	}
 
-	// 3. Semantic analysis: Bind names to declarations, checking for undeclared names.
-	program.bind();
-	program.verify();
+	return new Outcome(sourcePath, succeeded, report.toString());
 
+    } // compileFile ()
+    // =============================================================================================================================
 
-	// 4. Generate code.
-	String assembly = program.toAssembly();
-        out.print(assembly);
-        out.close();
 
-    } // main ()
+
+    // =============================================================================================================================
+    /**
+     * Construct the path of the assembly file for a source file: the same path, with the source suffix replaced.
+     *
+     * @param sourcePath The pathname of the source file, which ends with the source suffix.
+     * @return the pathname of the assembly file.
+     */
+    public static String assemblyPath (String sourcePath) {
+
+	return sourcePath.substring(0, sourcePath.length() - _sourceSuffix.length()) + ".asm";
+
+    } // assemblyPath ()
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
     /**
-     * Parse the command-line arguments.  Extract the assembly stub path (if provided), the standard library path (if provided), and
-     * the source code to compile.  Assemble the paths into an array, using defaults for the paths not provided.
+     * Construct the path of the statistics file for a source file.
      *
-     * @param args The command-line arguments.
-     * @return The code path.
+     * @param sourcePath The pathname of the source file, which ends with the source suffix.
+     * @return the pathname of the statistics file.
      */
-    private static String parseCommandLine (String[] args) {
+    public static String statsPath (String sourcePath) {
 
-	// Check the number of arguments.
-	if (args.length != 1) {
-	    printUsageAndExit();
+	return sourcePath.substring(0, sourcePath.length() - _sourceSuffix.length()) + ".stats.json";
+
+    } // statsPath ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Parse the command-line arguments: the options <code>-j &lt;jobs&gt;</code>, <code>--stats</code>,
+     * <code>--peephole-window &lt;lines&gt;</code>, <code>--inline-budget &lt;instructions&gt;</code>, and
+     * <code>--debug &lt;level&gt;</code>, if given, followed by the sources to compile.  Debugging messages (at level 1, the
+     * inliner's decision at each call site and the procedures removed) are written to standard error as they are made.  Each source may be a source file, a directory (all of whose source files, at any depth, are
+     * compiled), or a glob pattern (e.g., <code>'progs/**.k'</code>) that the shell has not already expanded.
+     *
+     * @param args The command-line arguments.
+     * @return The settings given.
+     */
+    private static CommandLine parseCommandLine (String[] args) {
+
+	CommandLine commandLine = new CommandLine();
+	int         i           = 0;
+
+	// Check for options: a concurrency limit, as either "-j N" or "-jN", a request for statistics, the peephole window, the
+	// inlining budget, and the debugging level.
+	for (; i < args.length && args[i].startsWith("-"); i = i + 1) {
+	    if (args[i].equals("--stats")) {
+		commandLine._stats = true;
+	    } else if (args[i].equals("--peephole-window")) {
+		try {
+		    commandLine._peepholeWindow = Integer.parseInt(i + 1 < args.length ? args[++i] : "");
+		} catch (NumberFormatException e) {
+		    printUsageAndExit();
+		}
+		if (commandLine._peepholeWindow < 0) {
+		    printUsageAndExit();
+		}
+	    } else if (args[i].equals("--inline-budget")) {
+		try {
+		    commandLine._inlineBudget = Integer.parseInt(i + 1 < args.length ? args[++i] : "");
+		} catch (NumberFormatException e) {
+		    printUsageAndExit();
+		}
+		if (commandLine._inlineBudget < 0) {
+		    printUsageAndExit();
+		}
+	    } else if (args[i].equals("--debug")) {
+		try {
+		    commandLine._debuggingLevel = Integer.parseInt(i + 1 < args.length ? args[++i] : "");
+		} catch (NumberFormatException e) {
+		    printUsageAndExit();
+		}
+		if (commandLine._debuggingLevel < 0) {
+		    printUsageAndExit();
+		}
+	    } else if (args[i].startsWith("-j")) {
+		String jobs = args[i].length() > 2 ? args[i].substring(2) : (i + 1 < args.length ? args[++i] : "");
+		try {
+		    commandLine._jobs = Integer.parseInt(jobs);
+		} catch (NumberFormatException e) {
+		    printUsageAndExit();
+		}
+		if (commandLine._jobs < 1) {
+		    printUsageAndExit();
+		}
+	    } else {
+		printUsageAndExit();
+	    }
 	}
 
-	// Check that the code path ends with the correct suffix.
-	String inPath = args[0];
-	if ( (inPath.length() <= 3 ||
-	      !inPath.substring(inPath.length() - _sourceSuffix.length(), inPath.length()).equals(_sourceSuffix)) ) {
+	// Check that there is at least one source, and collect the source files that each names.
+	if (i == args.length) {
 	    printUsageAndExit();
 	}
+	for (; i < args.length; i = i + 1) {
+	    expandSource(args[i], commandLine._sourcePaths);
+	}
+	if (commandLine._sourcePaths.isEmpty()) {
+	    printErrorAndExit("No source files (" + _sourceSuffix + ") found");
+	}
 
-	return inPath;
+	return commandLine;
 
     }
     // =============================================================================================================================
@@ -119,58 +318,78 @@ public class Compiler {
 
     // =============================================================================================================================
     /**
-     * Print the usage message and exit.
+     * Add the source files named by one command-line argument.
+     *
+     * @param argument    A source file, a directory, or a glob pattern.
+     * @param sourcePaths The list to which to add the source files, in sorted order for a directory or pattern.
      */
-    private static void printUsageAndExit () {
+    private static void expandSource (String argument, List<String> sourcePaths) {
 
-	System.err.println("USAGE: java Compiler <source code pathname (" + _sourceSuffix + ")>");
-	System.exit(1);
+	// A glob is searched for from the deepest directory in it that has no wildcard.
+	boolean isGlob = argument.indexOf('*') >= 0 || argument.indexOf('?') >= 0 || argument.indexOf('[') >= 0;
+	Path    root   = isGlob ? globRoot(argument) : Path.of(argument);
 
-    }
+	// A plain source file is taken as given.
+	if (!isGlob && !Files.isDirectory(root)) {
+	    if ( (argument.length() <= 3 || !argument.endsWith(_sourceSuffix)) ) {
+		printUsageAndExit();
+	    }
+	    sourcePaths.add(argument);
+	    return;
+	}
+
+	// Otherwise, find the source files beneath the directory (that match the pattern, if any).
+	PathMatcher matcher  = isGlob ? FileSystems.getDefault().getPathMatcher("glob:" + argument) : null;
+	boolean     relative = isGlob && root.toString().equals(".") && !argument.startsWith("./");
+	try (Stream<Path> paths = Files.walk(root)) {
+	    paths.filter(path -> path.toString().endsWith(_sourceSuffix) && Files.isRegularFile(path))
+		.map(path -> relative ? root.relativize(path) : path)
+		.filter(path -> matcher == null || matcher.matches(path))
+		.map(Path::toString)
+		.sorted()
+		.forEach(sourcePaths::add);
+	} catch (IOException e) {
+	    printErrorAndExit("Unable to search for source files in " + root);
+	}
+
+    } // expandSource ()
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
     /**
-     * Open the output file.
+     * Find the directory from which to search for the matches of a glob pattern.
      *
-     * @param path The pathname of the output file.
-     * @return A writer into which output can be written.
+     * @param pattern The glob pattern.
+     * @return the deepest directory named in the pattern before its first wildcard.
      */
-    private static PrintWriter openOutput (String path) {
+    private static Path globRoot (String pattern) {
 
-	FileWriter outputWriter = null;
-	try {
-	    outputWriter = new FileWriter(path);
-	} catch (IOException e) {
-	    Utility.abort("Unable to open output file " + path);
-	} 
+	int wildcard = pattern.length();
+	for (char c : new char[] { '*', '?', '[' }) {
+	    int at = pattern.indexOf(c);
+	    if (at >= 0 && at < wildcard) {
+		wildcard = at;
+	    }
+	}
 
-	return new PrintWriter(outputWriter);
+	int slash = pattern.lastIndexOf('/', wildcard);
+	return Path.of(slash < 0 ? "." : (slash == 0 ? "/" : pattern.substring(0, slash)));
 
-    }
+    } // globRoot ()
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
     /**
-     * Open an input file.
-     *
-     * @param path The pathname of the input file.
-     * @return An input stream for the input file.
+     * Print the usage message and exit.
      */
-    private static DataInputStream openInput (String path) {
-
-	FileInputStream inputStream = null;
-	try {
-	    inputStream = new FileInputStream(path);
-	} catch (FileNotFoundException e) {
-	    Utility.abort("Unable to open input file " + path);
-	}
+    private static void printUsageAndExit () {
 
-	return new DataInputStream(inputStream);
+	System.err.println("USAGE: java Compiler [-j <jobs>] [--stats] [--peephole-window <lines>] [--inline-budget <instructions>] [--debug <level>] <source code pathname (" + _sourceSuffix + "), directory, or glob>...");
+	System.exit(1);
 
     }
     // =============================================================================================================================
@@ -178,37 +397,20 @@ public class Compiler {
 
 
     // =============================================================================================================================
-    private static List<Character> readInput (DataInputStream in) {
-	
-	// Create an empty list of input characters.
-	List<Character> source = new ArrayList<Character>();
-		
-	// Repeatedly read characters until none remain.
-	while (true) {
-
-	    // Read the next character.
-	    int readResult = 0;
-	    try {
-		readResult = in.read();
-	    } catch (IOException e) {
-		System.err.println("Failed read.\n");
-		System.exit(1);
-	    }
-
-	    // End processing if there are no more characters to process.
-	    if (readResult == -1) break;
-	    
-	    // Add the current character to the sequence.
-	    source.add((char)readResult);
-			
-	}
+    /**
+     * Print a message about a failure outside of compilation itself (e.g., an unreadable file) and exit.
+     *
+     * @param message The message to print.
+     */
+    private static void printErrorAndExit (String message) {
 
-	return source;
+	System.err.println("INTERNAL ERROR: " + message);
+	System.exit(1);
 
-    } // readInput ()
+    } // printErrorAndExit ()
     // =============================================================================================================================
 
-    
+
 
 // =================================================================================================================================
 } // class Compiler
@@ -0,0 +1,39 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.PrintStream;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The settings that control one compilation.  Each <code>CompilerSession</code> is given its own, so sessions with different
+ * settings can run side by side.
+ */
+public class CompilerOptions {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The highest level of debugging message to emit; 0 for none. */
+    public int         _debuggingLevel = 0;
+
+    /** Where debugging messages are emitted. */
+    public PrintStream _debugStream    = System.err;
+
+    /** The number of lines that one peephole rewrite may span (see <code>PeepholeOptimizer</code>); 0 for no peephole pass. */
+    public int         _peepholeWindow = PeepholeOptimizer.DEFAULT_WINDOW;
+
+    /** The number of instructions that inlining may add to one procedure (see <code>Inliner</code>); 0 for no inlining. */
+    public int         _inlineBudget   = Inliner.DEFAULT_BUDGET;
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompilerOptions
+// =================================================================================================================================
@@ -0,0 +1,341 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * One compilation of one source.  A session owns everything that the compilation needs --- the source, the options, and the
+ * diagnostics --- and shares nothing with other sessions, so any number of them may run at once in the same JVM.  Errors end
+ * the session's compilation and are reported through its diagnostics; they never end the process.
+ */
+public class CompilerSession {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /**
+     * The stack size of the threads that compile.  The phases after parsing walk the program tree recursively, so the stack
+     * bounds how deeply a program may nest; this much allows nesting tens of thousands of levels deep.  Only the stack that is
+     * used is ever committed.
+     */
+    public static final long      STACK_SIZE = 1L << 30;
+
+    /** The source to compile. */
+    private final SourceBuffer    _source;
+
+    /** The settings for this compilation. */
+    private final CompilerOptions _options;
+
+    /** The diagnostics produced by this compilation. */
+    private final Diagnostics     _diagnostics;
+
+    /** The measurements of this compilation, phase by phase. */
+    private final CompilerStats   _stats;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a session.
+     *
+     * @param source  The source to compile.
+     * @param options The settings for the compilation.
+     */
+    public CompilerSession (SourceBuffer source, CompilerOptions options) {
+
+	_source      = source;
+	_options     = options;
+	_diagnostics = new Diagnostics(options._debuggingLevel, options._debugStream);
+	_stats       = new CompilerStats();
+
+    } // CompilerSession ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a session for a source file.
+     *
+     * @param path    The pathname of the source file.
+     * @param options The settings for the compilation.
+     * @return the session.
+     * @throws IOException if the file cannot be read.
+     */
+    public static CompilerSession open (String path, CompilerOptions options) throws IOException {
+
+	return new CompilerSession(SourceBuffer.read(path), options);
+
+    } // open ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Carry out the front end of compilation: scan, parse, and semantically analyze the source.
+     *
+     * @return the verified program.
+     * @throws CompilationException if the source contains an error.
+     */
+    public Program analyze () {
+
+	// 1. Scan (lexical analysis)
+	_stats.begin("scan");
+	Lexer       lexer  = new Lexer(_source, _diagnostics);
+	TokenBuffer tokens = lexer.scan();
+	_stats.end().count("tokens", tokens.size());
+	if (_diagnostics.isDebugging(3)) {
+	    _diagnostics.debug(3, () -> "Tokens scanned:");
+	    for (int i = 0; i < tokens.size(); i++) {
+		int index = i;
+		_diagnostics.debug(3, () -> "\t" + index + ": " + tokens.toString(index));
+	    }
+	}
+
+	// 2. Parse (synctatic analysis)
+	_stats.begin("parse");
+	Parser  parser  = new Parser(tokens, _diagnostics);
+	Program program = parser.parse();
+	_stats.end().count("nodes", parser.getNodeCount());
+	_diagnostics.debug(2, () -> "Parsed code:\n" + program);
+
+	// 3. Semantic analysis: Bind names to declarations, checking for undeclared names.
+	_stats.begin("bind");
+	program.bind();
+	_stats.end();
+	_stats.begin("verify");
+	program.verify();
+	_stats.end();
+
+	return program;
+
+    } // analyze ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Compile the source, writing the generated assembly.  Any error is recorded in the diagnostics rather than thrown.  The
+     * compilation runs on a thread of its own, with a stack of <code>STACK_SIZE</code>, whatever the stack of the caller.
+     *
+     * @param out The destination for the assembly.  It is flushed, but not closed.  If compilation fails, what has been written
+     *            to it is incomplete and should be discarded.
+     * @return <code>true</code> if compilation succeeded; <code>false</code> otherwise.
+     */
+    public boolean compile (Writer out) {
+
+	boolean[] succeeded = new boolean[1];
+	Thread    compiler  = newThread(() -> succeeded[0] = compileOnThisThread(out));
+	compiler.start();
+
+	// Wait for the compilation even if interrupted, since it writes to the caller's output; pass the interrupt on after.
+	boolean interrupted = false;
+	while (compiler.isAlive()) {
+	    try {
+		compiler.join();
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+	return succeeded[0];
+
+    } // compile ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a thread, not yet started, with a stack large enough to compile deeply nested programs.
+     *
+     * @param task What the thread is to run.
+     * @return the thread.
+     */
+    public static Thread newThread (Runnable task) {
+
+	return new Thread(null, task, "caplan-compile", STACK_SIZE);
+
+    } // newThread ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Compile the source on the calling thread, writing the generated assembly.  Any error is recorded in the diagnostics.
+     *
+     * @param out The destination for the assembly.
+     * @return <code>true</code> if compilation succeeded; <code>false</code> otherwise.
+     */
+    private boolean compileOnThisThread (Writer out) {
+
+	try {
+
+	    Program program = analyze();
+
+	    // 4. Optimize the verified program.
+	    _stats.begin("fold");
+	    program.fold();
+	    _stats.end();
+	    _stats.begin("dce");
+	    program.removeDeadCode();
+	    _stats.end();
+	    _diagnostics.debug(2, () -> "Optimized code:\n" + program);
+
+	    // 5. Generate code, streaming it into the output.
+	    _stats.begin("codegen");
+	    AssemblyWriter    assembly  = new AssemblyWriter(out);
+	    PeepholeOptimizer optimizer = new PeepholeOptimizer(_options._peepholeWindow);
+	    Inliner           inliner   = new Inliner(_options._inlineBudget);
+	    program.toAssembly(assembly, optimizer, inliner);
+	    assembly.flush();
+	    _stats.end().count("instructions", assembly.getInstructionCount());
+
+	    // Report what the peephole optimizer rewrote, rule by rule.
+	    if (optimizer.isEnabled()) {
+		for (Map.Entry<String, Long> rewrites : optimizer.getRewriteCounts().entrySet()) {
+		    _stats.count("peephole." + rewrites.getKey(), rewrites.getValue());
+		    _diagnostics.debug(1, () -> "Peephole " + rewrites.getKey() + ": " + rewrites.getValue() + " rewrites");
+		}
+	    }
+
+	    // Report the inliner's decision at each call site that it considered.
+	    long inlined = 0;
+	    for (Inliner.Decision decision : inliner.getDecisions()) {
+		inlined += decision._inlined ? 1 : 0;
+		_diagnostics.debug(1, () -> decision.format(_source.map()));
+	    }
+	    if (inliner.isEnabled()) {
+		_stats.count("inline.inlined", inlined);
+		_stats.count("inline.declined", inliner.getDecisions().size() - inlined);
+	    }
+	    return true;
+
+	} catch (CompilationException e) {
+	    _diagnostics.report(e._diagnostic);
+	} catch (StackOverflowError e) {
+	    _diagnostics.report(new Diagnostic(Diagnostic.Severity.INTERNAL, "Program nested too deeply to compile",
+					       Diagnostic.NO_POSITION));
+	} catch (RuntimeException e) {
+	    _diagnostics.report(new Diagnostic(Diagnostic.Severity.INTERNAL, e.toString(), Diagnostic.NO_POSITION));
+	}
+
+	return false;
+
+    } // compileOnThisThread ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Compile the source into an assembly file.  If compilation fails, the file is removed rather than left incomplete.
+     *
+     * @param outPath The pathname of the assembly file to write.
+     * @return <code>true</code> if compilation succeeded; <code>false</code> otherwise.
+     * @throws IOException if the assembly file cannot be written.
+     */
+    public boolean compileTo (String outPath) throws IOException {
+
+	boolean succeeded;
+	try (Writer out = new BufferedWriter(new FileWriter(outPath), 1 << 16)) {
+	    succeeded = compile(out);
+	}
+	if (!succeeded) {
+	    new File(outPath).delete();
+	}
+	return succeeded;
+
+    } // compileTo ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the diagnostics produced so far.
+     *
+     * @return the diagnostics, in the order produced.
+     */
+    public List<Diagnostic> getDiagnostics () {
+
+	return _diagnostics.getAll();
+
+    } // getDiagnostics ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Render a diagnostic against this session's source.
+     *
+     * @param diagnostic The diagnostic to render.
+     * @return the text of the diagnostic.
+     */
+    public String format (Diagnostic diagnostic) {
+
+	return diagnostic.format(_source.map());
+
+    } // format ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the measurements of the phases completed so far.
+     *
+     * @return the measurements.
+     */
+    public CompilerStats getStats () {
+
+	return _stats;
+
+    } // getStats ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public SourceBuffer getSource () {
+
+	return _source;
+
+    } // getSource ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public CompilerOptions getOptions () {
+
+	return _options;
+
+    } // getOptions ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompilerSession
+// =================================================================================================================================
@@ -0,0 +1,256 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Measurements of one compilation, phase by phase: the wall time of each, the bytes it allocated, and counts of what it
+ * produced (tokens, AST nodes, instructions).  Rendered as JSON for <code>--stats</code>.
+ *
+ * Allocation is measured on the compiling thread only, so work handed to other threads (e.g., parallel code generation) is not
+ * included in it.
+ */
+public class CompilerStats {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The source of the per-thread allocation counts, or <code>null</code> if the JVM does not provide them. */
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    /** The phases completed so far, in order. */
+    private final List<Phase> _phases;
+
+    /** The phase under way, if any. */
+    private Phase             _current;
+
+    /** When the phase under way began (nanoseconds). */
+    private long              _startNanos;
+
+    /** The bytes that this thread had allocated when the phase under way began. */
+    private long              _startBytes;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * One phase of compilation and its measurements.
+     */
+    private static final class Phase {
+
+	/** The name of the phase. */
+	final String            _name;
+
+	/** The wall time taken (nanoseconds). */
+	long                    _nanos;
+
+	/** The bytes allocated, or -1 if not known. */
+	long                    _bytes;
+
+	/** Counts of what the phase produced, in the order recorded. */
+	final Map<String, Long> _counts = new LinkedHashMap<String, Long>();
+
+	Phase (String name) {
+	    _name = name;
+	}
+
+    } // class Phase
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty set of measurements.
+     */
+    public CompilerStats () {
+
+	_phases = new ArrayList<Phase>();
+
+    } // CompilerStats ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Begin measuring a phase.
+     *
+     * @param name The name of the phase.
+     */
+    public void begin (String name) {
+
+	_current    = new Phase(name);
+	_startBytes = allocatedBytes();
+	_startNanos = System.nanoTime();
+
+    } // begin ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Finish measuring the phase under way.
+     *
+     * @return these measurements, to which counts for the phase may be added.
+     */
+    public CompilerStats end () {
+
+	long nanos = System.nanoTime() - _startNanos;
+	long bytes = allocatedBytes();
+	_current._nanos = nanos;
+	_current._bytes = (bytes < 0 || _startBytes < 0) ? -1 : bytes - _startBytes;
+	_phases.add(_current);
+	_current = null;
+	return this;
+
+    } // end ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Record a count for the most recently finished phase.
+     *
+     * @param name  What was counted.
+     * @param count The count.
+     * @return these measurements.
+     */
+    public CompilerStats count (String name, long count) {
+
+	_phases.get(_phases.size() - 1)._counts.put(name, count);
+	return this;
+
+    } // count ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Render the measurements as a JSON object.
+     *
+     * @param source    The name of the source compiled.
+     * @param succeeded Whether the compilation succeeded.  If it did not, only the phases that finished are included.
+     * @return the JSON text.
+     */
+    public String toJSON (String source, boolean succeeded) {
+
+	StringBuilder json       = new StringBuilder();
+	long          totalNanos = 0;
+	long          totalBytes = 0;
+
+	json.append("{\n");
+	json.append("  \"source\": ").append(quote(source)).append(",\n");
+	json.append("  \"succeeded\": ").append(succeeded).append(",\n");
+	json.append("  \"phases\": [");
+	for (int i = 0; i < _phases.size(); i++) {
+	    Phase phase = _phases.get(i);
+	    json.append(i == 0 ? "\n" : ",\n");
+	    json.append("    { \"name\": ").append(quote(phase._name));
+	    json.append(", \"wallNanos\": ").append(phase._nanos);
+	    json.append(", \"allocatedBytes\": ").append(phase._bytes);
+	    for (Map.Entry<String, Long> count : phase._counts.entrySet()) {
+		json.append(", ").append(quote(count.getKey())).append(": ").append(count.getValue());
+	    }
+	    json.append(" }");
+	    totalNanos = totalNanos + phase._nanos;
+	    totalBytes = (totalBytes < 0 || phase._bytes < 0) ? -1 : totalBytes + phase._bytes;
+	}
+	json.append("\n  ],\n");
+	json.append("  \"totalWallNanos\": ").append(totalNanos).append(",\n");
+	json.append("  \"totalAllocatedBytes\": ").append(totalBytes).append("\n");
+	json.append("}\n");
+
+	return json.toString();
+
+    } // toJSON ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Render a string as a JSON string literal.
+     *
+     * @param text The string.
+     * @return the quoted, escaped string.
+     */
+    private static String quote (String text) {
+
+	StringBuilder quoted = new StringBuilder("\"");
+	for (int i = 0; i < text.length(); i++) {
+	    char c = text.charAt(i);
+	    switch (c) {
+	    case '"'  -> quoted.append("\\\"");
+	    case '\\' -> quoted.append("\\\\");
+	    case '\n' -> quoted.append("\\n");
+	    case '\t' -> quoted.append("\\t");
+	    default   -> {
+		if (c < 0x20) {
+		    quoted.append(String.format("\\u%04x", (int)c));
+		} else {
+		    quoted.append(c);
+		}
+	    }
+	    }
+	}
+	return quoted.append('"').toString();
+
+    } // quote ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of bytes allocated by the current thread so far.
+     *
+     * @return the count, or -1 if it is not available.
+     */
+    private static long allocatedBytes () {
+
+	return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+
+    } // allocatedBytes ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Obtain the JVM's per-thread allocation counter, enabling it if need be.
+     *
+     * @return the thread bean, or <code>null</code> if allocation cannot be measured in this JVM.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter () {
+
+	if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) ||
+	    !threads.isThreadAllocatedMemorySupported()) {
+	    return null;
+	}
+	threads.setThreadAllocatedMemoryEnabled(true);
+	return threads;
+
+    } // allocationCounter ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class CompilerStats
+// =================================================================================================================================
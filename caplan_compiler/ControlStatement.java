@@ -22,7 +22,7 @@ abstract class ControlStatement extends Statement {
     /**
      * The condition prompting a branch. E.g. while loops: the continuation condition, if-then statements: the execution condition.
      */
-    public final Expression _condition;
+    public Expression _condition;
     // =============================================================================================================================
 
 	
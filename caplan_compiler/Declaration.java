@@ -37,24 +37,13 @@ abstract public class Declaration {
 
 
 
-    // =================================================================================================================================
-    /**
-     * Generate aseembly of this delared item (if any).
-     *
-     * @return assembly defining this item.
-     */
-    abstract public String toAssembly();
-    // =================================================================================================================================
-
-
-
     // =================================================================================================================================
     /**
      * Provide assembly for any statics contained in this declared item.
      *
-     * @return assembly to define the static elements of this item.
+     * @param out The destination for the generated assembly.
      */
-    abstract public String toStatics();
+    abstract public void toStatics (AssemblyWriter out);
     // =================================================================================================================================
 
     
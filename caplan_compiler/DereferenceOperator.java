@@ -66,33 +66,14 @@ public class DereferenceOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        String assembly = new String();
-
-        // Generate assembly for the operand.
+        // Lower the operand, yielding the address, and load the value at the end of the pointer.
 	Expression reference   = operands[0];
         Type       pointedType = reference.getType().getPointedType();
-	assembly += reference.toAssembly();
-
-	// Pop the operand result into register B.
-	assembly += "\tpop\trbx\n";
-
-	// Special case: x86-64, for half-word or byte values, does not clear upper bytes of the register, so we clear it here.
-	String register = pointedType.getSizedRegister("a");
-	assembly += ( pointedType.getSize() < Utility._dwordSize ?
-		      "\txor\trax,\trax\t; Clear register for small value\n" :
-		      "" );
-
-	// Move the value at the end of the pointer into the register.
-	assembly += "\tmov\t" + register + ",\t[rbx]\t; Derefence\n";
-
-	// Push the result.
-	assembly += "\tpush\trax\n";
-
-	return assembly;
+	return ir.load(pointedType.getSize(), reference.toIRValue(ir));
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
@@ -108,11 +89,11 @@ public class DereferenceOperator extends Operator {
 
 
     // =============================================================================================================================
-    public String toAssembly_l (Expression... operands) {
+    public IRValue toIR_l (IRBuilder ir, Expression... operands) {
 
-	// Evaluating the operand yields the address to be dereferenced.  Using it as an l-value means simply pushing that
+	// Evaluating the operand yields the address to be dereferenced.  Using it as an l-value means simply providing that
 	// reference, where its use will later dereference it.
-        return operands[0].toAssembly();
+        return operands[0].toIRValue(ir);
 
     }
     // =============================================================================================================================
@@ -0,0 +1,147 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.Serializable;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * One message produced while compiling: an error in the source, a warning about it, or an internal failure of the compiler.
+ * A diagnostic records only positions; the text showing where in the source it occurred is rendered by <code>format()</code>.
+ */
+public class Diagnostic implements Serializable {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** The kinds of diagnostic. */
+    public static enum Severity {
+	ERROR, WARNING, INTERNAL
+    }
+
+    /** The value used for positions that are not known or do not apply. */
+    public static final int NO_POSITION = -1;
+
+    /** How serious the diagnostic is. */
+    public final Severity _severity;
+
+    /** The message itself. */
+    public final String   _message;
+
+    /** The position in the source to which the diagnostic refers; <code>NO_POSITION</code> if none. */
+    public final int      _position;
+
+    /** A description of a second, related position (e.g., "Previous declaration"); <code>null</code> if none. */
+    public final String   _note;
+
+    /** The second, related position; <code>NO_POSITION</code> if none. */
+    public final int      _notePosition;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a diagnostic.
+     *
+     * @param severity     How serious the diagnostic is.
+     * @param message      The message.
+     * @param position     The position to which it refers, or <code>NO_POSITION</code>.
+     * @param note         A description of a related position, or <code>null</code>.
+     * @param notePosition The related position, or <code>NO_POSITION</code>.
+     */
+    public Diagnostic (Severity severity, String message, int position, String note, int notePosition) {
+
+	_severity     = severity;
+	_message      = message;
+	_position     = position;
+	_note         = note;
+	_notePosition = notePosition;
+
+    } // Diagnostic ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a diagnostic with no related position.
+     *
+     * @param severity How serious the diagnostic is.
+     * @param message  The message.
+     * @param position The position to which it refers, or <code>NO_POSITION</code>.
+     */
+    public Diagnostic (Severity severity, String message, int position) {
+
+	this(severity, message, position, null, NO_POSITION);
+
+    } // Diagnostic ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Render the diagnostic for a person to read, showing the line of source at each position it refers to.
+     *
+     * @param map The line index of the source to which the diagnostic's positions refer; may be <code>null</code>, in which case
+     *            positions are shown only as offsets.
+     * @return the text of the diagnostic.
+     */
+    public String format (SourceMap map) {
+
+	StringBuilder text = new StringBuilder();
+	text.append(switch (_severity) {
+	    case ERROR    -> "ERROR: ";
+	    case WARNING  -> "WARNING: ";
+	    case INTERNAL -> "INTERNAL ERROR: ";
+	    });
+	text.append(_message);
+	appendPosition(text, map, _position);
+
+	if (_note != null) {
+	    text.append('\n').append(_note);
+	    appendPosition(text, map, _notePosition);
+	}
+
+	return text.toString();
+
+    } // format ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static void appendPosition (StringBuilder text, SourceMap map, int position) {
+
+	if (position == NO_POSITION) {
+	    return;
+	}
+	text.append(' ').append(map == null ? "@" + position : map.describe(position));
+
+    } // appendPosition ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	return format(null);
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class Diagnostic
+// =================================================================================================================================
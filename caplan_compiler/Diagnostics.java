@@ -0,0 +1,159 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The diagnostics of one compilation: the warnings gathered along the way, the error (if any) that ended it, and the debugging
+ * trace.  Each <code>CompilerSession</code> has its own, so concurrent compilations do not mix their messages.
+ */
+public class Diagnostics {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The diagnostics reported so far, in order. */
+    private final List<Diagnostic> _diagnostics;
+
+    /** The highest level of debugging message to emit. */
+    private final int              _debuggingLevel;
+
+    /** Where debugging messages are emitted. */
+    private final PrintStream      _debugStream;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty set of diagnostics.
+     *
+     * @param debuggingLevel The highest level of debugging message to emit; 0 for none.
+     * @param debugStream    Where debugging messages are emitted.
+     */
+    public Diagnostics (int debuggingLevel, PrintStream debugStream) {
+
+	_diagnostics    = new ArrayList<Diagnostic>();
+	_debuggingLevel = debuggingLevel;
+	_debugStream    = debugStream;
+
+    } // Diagnostics ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Record a diagnostic.
+     *
+     * @param diagnostic The diagnostic to record.
+     */
+    public synchronized void report (Diagnostic diagnostic) {
+
+	_diagnostics.add(diagnostic);
+
+    } // report ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Record a warning.  Compilation continues.
+     *
+     * @param message  The warning message.
+     * @param position Where in the source code the warning applies.
+     */
+    public void warn (String message, int position) {
+
+	report(new Diagnostic(Diagnostic.Severity.WARNING, message, position));
+
+    } // warn ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the diagnostics reported so far.
+     *
+     * @return a copy of the diagnostics, in the order reported.
+     */
+    public synchronized List<Diagnostic> getAll () {
+
+	return new ArrayList<Diagnostic>(_diagnostics);
+
+    } // getAll ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide whether any error (as opposed to a warning) has been reported.
+     *
+     * @return <code>true</code> if there is an error or internal error; <code>false</code> otherwise.
+     */
+    public synchronized boolean hasErrors () {
+
+	for (Diagnostic diagnostic : _diagnostics) {
+	    if (diagnostic._severity != Diagnostic.Severity.WARNING) {
+		return true;
+	    }
+	}
+	return false;
+
+    } // hasErrors ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide whether debugging messages of a given level are emitted, for callers that must do work beyond building a single
+     * message before debugging.
+     *
+     * @param level The level of debugging message.
+     * @return <code>true</code> if messages of the level are emitted; <code>false</code> otherwise.
+     */
+    public boolean isDebugging (int level) {
+
+	return level <= _debuggingLevel;
+
+    } // isDebugging ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Emit a debugging message if the current debugging level is sufficiently high.  The message is built only if it is emitted,
+     * so a debugging message costs nothing when debugging is off.
+     *
+     * @param level   The level of the debugging message.  The higher, the more detailed.
+     * @param message Builds the debugging message to print.
+     */
+    public void debug (int level, Supplier<String> message) {
+
+	if (level <= _debuggingLevel) {
+	    _debugStream.println("DEBUG [" + level + "]: " + "  ".repeat(level) + message.get());
+	}
+
+    } // debug ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class Diagnostics
+// =================================================================================================================================
@@ -52,32 +52,33 @@ public class DivisionOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly(Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
+
+	// Dividing by one changes nothing; dividing by zero is left to fail at run time.
+	Long divisor = constantValue(operands[1]);
+	if (divisor != null && divisor == 1) {
+	    return operands[0];
+	} else if (divisor != null && divisor == 0) {
+	    return operation;
+	}
+	return fold_binary(operation, operands, (x, y) -> x / y);
 
-        String assembly = new String();
+    } // fold ()
+    // =============================================================================================================================
 
-        // Generate assembly for the two operands; both get pushed to the stack
-        assembly = operands[0].toAssembly() + operands[1].toAssembly();
 
-        // Pop the operand result into registers A and B (which are in reverse order on the stack).  
-        // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-        assembly += "\tpop\trbx\n\tpop\trax\n";
 
-        // Apply division to the registers.
-        // To use idiv:  rdx:rax / rbx => rax (R rdx)
-        //   rax already holds the lower half of the dividend; cdq sign-extends into edx to complete it.
-        //   rbx already holds the divisor.
-        //   The result is stored into rax already, and rdx is ignored.
-        assembly += "\tcdq\n\tidiv\trbx\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        // Push the result.
-        assembly += "\tpush\trax\n";
+	return toIR_binary(ir, IRInstruction.Opcode.DIV, operands[0], operands[1]);
 
-        return assembly;
-    }
+    } // toIR ()
     // =============================================================================================================================
 
 
+
 // =================================================================================================================================
 } // class DivisionOperator
 // =================================================================================================================================
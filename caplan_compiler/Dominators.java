@@ -0,0 +1,150 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The dominators of the blocks of a function: block <i>a</i> dominates block <i>b</i> if every path from the entry to <i>b</i>
+ * passes through <i>a</i> (so a block dominates itself).  They are found by the usual iteration to a fixed point, over the
+ * blocks as they are when this is created; blocks added later are not known.
+ */
+public class Dominators {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The blocks known, in reverse postorder from the entry (so that each comes after its dominators). */
+    private final List<BasicBlock>                  _order;
+
+    /** The index of each block known, in that order. */
+    private final Map<BasicBlock, Integer>          _indices;
+
+    /** The blocks that dominate each block, by index. */
+    private final Map<BasicBlock, BitSet>           _dominators;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Find the dominators of a function's blocks.
+     *
+     * @param function The function, whose blocks must all be reachable from its entry.
+     */
+    public Dominators (IRFunction function) {
+
+	_order      = new ArrayList<BasicBlock>();
+	_indices    = new HashMap<BasicBlock, Integer>();
+	_dominators = new HashMap<BasicBlock, BitSet>();
+	visit(function.getEntry(), new HashSet<BasicBlock>());
+	Collections.reverse(_order);
+	for (int i = 0; i < _order.size(); i += 1) {
+	    _indices.put(_order.get(i), i);
+	}
+
+	BitSet all = new BitSet();
+	all.set(0, _order.size());
+	for (BasicBlock block : _order) {
+	    BitSet dominators = new BitSet();
+	    if (block == function.getEntry()) {
+		dominators.set(0);
+	    } else {
+		dominators.or(all);
+	    }
+	    _dominators.put(block, dominators);
+	}
+
+	boolean changed = true;
+	while (changed) {
+	    changed = false;
+	    for (int b = 1; b < _order.size(); b += 1) {
+		BasicBlock block      = _order.get(b);
+		BitSet     dominators = (BitSet)all.clone();
+		for (BasicBlock predecessor : block._predecessors) {
+		    dominators.and(_dominators.get(predecessor));
+		}
+		dominators.set(b);
+		if (!dominators.equals(_dominators.get(block))) {
+		    _dominators.put(block, dominators);
+		    changed = true;
+		}
+	    }
+	}
+
+    } // Dominators ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add a block, and those reachable from it that have not been visited, to the order in postorder.
+     *
+     * @param block   The block.
+     * @param visited The blocks visited so far.
+     */
+    private void visit (BasicBlock block, Set<BasicBlock> visited) {
+
+	visited.add(block);
+	for (BasicBlock successor : block.getSuccessors()) {
+	    if (!visited.contains(successor)) {
+		visit(successor, visited);
+	    }
+	}
+	_order.add(block);
+
+    } // visit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether one block dominates another.
+     *
+     * @param dominator The block that may dominate.
+     * @param block     The block that may be dominated.
+     * @return <code>true</code> if both blocks are known and the first dominates the second; <code>false</code> otherwise.
+     */
+    public boolean dominates (BasicBlock dominator, BasicBlock block) {
+
+	Integer index = _indices.get(dominator);
+	return index != null && _dominators.containsKey(block) && _dominators.get(block).get(index);
+
+    } // dominates ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the blocks in reverse postorder from the entry, in which each block comes after all of its dominators.
+     *
+     * @return the blocks.
+     */
+    public List<BasicBlock> getReversePostorder () {
+
+	return _order;
+
+    } // getReversePostorder ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class Dominators
+// =================================================================================================================================
@@ -65,16 +65,90 @@ abstract public class Expression extends Statement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code for any statics that are part of this expression.  Most expressions do not generate statics, so the
-     * default behavior is to do nothing.
+     * Fold constant subexpressions, evaluating at compile time what need not wait for run time.  By default, an expression has
+     * nothing to fold.
+     *
+     * @return the expression to use in place of this one, of the same type.
+     */
+    public Expression fold () {
+
+	return this;
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this expression, as a statement, into the intermediate representation: it is evaluated for its effects, and its
+     * value is discarded.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR (IRBuilder ir) {
+
+	toIRValue(ir);
+
+    } // toIR ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this expression into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the expression: a temporary, a constant, or a symbol.
+     */
+    abstract public IRValue toIRValue (IRBuilder ir);
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this expression, as a condition, into the intermediate representation: control passes to one block if it is true
+     * and to another if it is false.  By default, the value is computed and then tested.
      *
-     * @return the generated assembly code.
+     * @param ir      The builder of the procedure's intermediate representation.
+     * @param ifTrue  The block to which control passes if the expression is true.
+     * @param ifFalse The block to which control passes if the expression is false.
      */
-    public String toStatics () {
+    public void toIR_branch (IRBuilder ir, BasicBlock ifTrue, BasicBlock ifFalse) {
+
+	ir.branch(toIRValue(ir), ifTrue, ifFalse);
 
-	return new String();
+    } // toIR_branch ()
+    // =============================================================================================================================
 
-    } // toStatics ()
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a return of this expression's value into the intermediate representation.  By default, the value is computed and
+     * then returned.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR_return (IRBuilder ir) {
+
+	ir.ret(toIRValue(ir));
+
+    } // toIR_return ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Generate assembly code for any statics that are part of this expression.  Most expressions do not generate statics, so the
+     * default behavior is to do nothing.
+     *
+     * @param out The destination for the generated assembly.
+     */
+    public void toStatics (AssemblyWriter out) {}
     // =============================================================================================================================
 
 
@@ -97,11 +171,13 @@ abstract public class Expression extends Statement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly opcode that will execute this operator as an l-value.  By default, expressions cannot be l-values.
+     * Lower the address of this expression, as an l-value, into the intermediate representation.  By default, expressions cannot
+     * be l-values.
      * 
-     * @return the generated assembly code.
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the address.
      */
-    public String toAssembly_l () {
+    public IRValue toIR_l (IRBuilder ir) {
 	
         Utility.abort("Invalid l-value");
         return null;
@@ -107,13 +107,13 @@ public class ExternalProcedure extends Procedure {
 
     // =============================================================================================================================
     /**
-     * Generate assembly for this procedure.  Externally defined procedures yield no assembly.
+     * Generate assembly for this procedure.  Externally defined procedures yield only an <code>extern</code> declaration.
      *
-     * @return the code-segment assembly for this procedure.
+     * @param out The destination for the code-segment assembly.
      */
-    public String toAssembly () {
+    public void toAssembly (AssemblyWriter out) {
 
-	return "\textern\t" + _name + "\n";
+	out.directive("extern", _name);
 
     } // toAssembly ()
     // =============================================================================================================================
@@ -125,13 +125,9 @@ public class ExternalProcedure extends Procedure {
      * Generate assembly for any statically allocated elements in this procedure.  Externally defined procedures have no static
      * elements.
      *
-     * @return the statics-segment assembly for this procedure.
+     * @param out The destination for the statics-segment assembly.
      */
-    public String toStatics () {
-
-	return new String();
-
-    } // toStatics ();
+    public void toStatics (AssemblyWriter out) {}
     // =============================================================================================================================
     
 
@@ -20,65 +20,35 @@ public class GlobalVariableDecl extends VariableDeclaration {
 
 
 
-    // =================================================================================================================================
-    /**
-     * Provide assembly for access to the global variable.  It is accessed via a label into the statics.
-     *
-     * @return assmebly for accessing this variable.
-     */
-    public String toAssembly () {
-
-	return "[" + getLabel() + "]";
-
-    } // toAssembly ()
-    // =================================================================================================================================
-    
-
-    
-    // =================================================================================================================================
-    /**
-     * Generate assembly to use this variable as an l-value.
-     */
-    public String toAssembly_l () {
-
-	String assembly = "\tpush\t" + getLabel() + "\t; Push address of " + _name + "\n";
-    
-	return assembly;
-	
-    } // toAssembly_l ()
-    // =================================================================================================================================
-
-
-
     // =================================================================================================================================
     /**
      * Generate static label for this variable
+     *
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics() {
-
-	String assembly = getLabel() + ":\t";
+    public void toStatics (AssemblyWriter out) {
 
         // Reserve the right amount of bytes given the size of the type
+	String directive = null;
         switch (_type.getSize()) {
             case 1:
-                assembly += "db";
+                directive = "db";
                 break;
             case 2:
-                assembly += "dw";
+                directive = "dw";
                 break;
             case 4:
-                assembly += "dd";
+                directive = "dd";
                 break;
             case 8:
-                assembly += "dq";
+                directive = "dq";
                 break;
             default:
                 Utility.error("Unexpected type in the statics", _position);
         }
 
-        assembly += "\t0\t; Global variable declaration for " + _name + '\n';
+        out.data(getLabel(), directive, 0).comment("Global variable declaration for " + _name);
 
-        return assembly;
     }
     // =================================================================================================================================
 
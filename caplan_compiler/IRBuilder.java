@@ -0,0 +1,890 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Builds the intermediate representation of one procedure as its AST is walked (see <code>Statement.toIR()</code>), appending
+ * instructions to the current block, and puts it into SSA form along the way.
+ *
+ * SSA form is built as in Braun et al., "Simple and Efficient Construction of Static Single Assignment Form" (CC 2013): each
+ * block records the value last assigned to each variable in it; a variable read in a block that does not assign it is looked
+ * up in the block's predecessors, through a phi where paths merge.  A block is <i>sealed</i> once all of its predecessors are
+ * known (for a loop header, once the body has been built); until then, phis in it are left incomplete.  Phis found to merge a
+ * single value are removed as they are discovered.
+ *
+ * Only local variables and parameters whose addresses are never taken become SSA values.  The others live in frame slots, and
+ * global variables live at their labels; all of these are reached through loads and stores.
+ */
+public final class IRBuilder {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The function being built. */
+    private final IRFunction                                           _function;
+
+    /** The block to which instructions are appended. */
+    private BasicBlock                                                 _current;
+
+    /** The blocks whose predecessors are all known. */
+    private final Set<BasicBlock>                                      _sealed;
+
+    /** For each block, the value last assigned to each variable in it. */
+    private final Map<BasicBlock, Map<VariableDeclaration, IRValue>>   _definitions;
+
+    /** For each unsealed block, the phis created in it, by variable, whose operands are yet to be added. */
+    private final Map<BasicBlock, Map<VariableDeclaration, IRInstruction>> _incompletePhis;
+
+    /** The frame slots of the local variables kept in memory. */
+    private final Map<VariableDeclaration, IRValue>                    _slots;
+
+    /** The constants and symbols used, so that each is represented by one value. */
+    private final Map<Object, IRValue>                                 _literals;
+
+    /** The policy by which calls are inlined; <code>null</code> to inline none. */
+    private final Inliner                                              _inliner;
+
+    /** The number of instructions that may still be added to the function by inlining. */
+    private int                                                        _inlineBudget;
+
+    /** The calls being inlined, innermost last. */
+    private final List<InlinedCall>                                    _inlinedCalls;
+
+    /** The parameters and the local variables of the procedure. */
+    private final List<VariableDeclaration>                            _parameters, _locals;
+
+    /** The block that begins the body, after the parameters are received: the target of a self tail call. */
+    private final BasicBlock                                           _body;
+
+    /** The arguments of each self tail call, by the block that it ends. */
+    private final Map<BasicBlock, IRValue[]>                           _tailCalls;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * A call whose callee's body is being lowered in its place.  A return from the callee jumps to the block that follows the
+     * call, where the values returned are merged.
+     */
+    private static final class InlinedCall {
+
+	/** The block that follows the call. */
+	final BasicBlock    _exit;
+
+	/** The value returned along each edge into the exit, in the order of its predecessors. */
+	final List<IRValue> _values;
+
+	InlinedCall (BasicBlock exit) {
+	    _exit   = exit;
+	    _values = new ArrayList<IRValue>();
+	}
+
+    } // class InlinedCall
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Begin building a procedure: the entry block receives the parameters and initializes the locals (to 0).
+     *
+     * @param name       The name of the procedure.
+     * @param parameters The parameters, in order.
+     * @param locals     The local variables.
+     * @param inliner    The policy by which calls are inlined; <code>null</code> to inline none.
+     */
+    public IRBuilder (String name, List<VariableDeclaration> parameters, List<VariableDeclaration> locals, Inliner inliner) {
+
+	_function       = new IRFunction(name, parameters.size());
+	_current        = _function.getEntry();
+	_sealed         = new HashSet<BasicBlock>();
+	_definitions    = new HashMap<BasicBlock, Map<VariableDeclaration, IRValue>>();
+	_incompletePhis = new HashMap<BasicBlock, Map<VariableDeclaration, IRInstruction>>();
+	_slots          = new HashMap<VariableDeclaration, IRValue>();
+	_literals       = new HashMap<Object, IRValue>();
+	_inliner        = (inliner != null && inliner.isEnabled()) ? inliner : null;
+	_inlineBudget   = (inliner != null) ? inliner.getBudget() : 0;
+	_inlinedCalls   = new ArrayList<InlinedCall>();
+	seal(_current);
+
+	for (int i = 0; i < parameters.size(); i += 1) {
+	    IRInstruction parameter = new IRInstruction(IRInstruction.Opcode.PARAMETER, _function.newTemporary());
+	    parameter._size = i;
+	    append(parameter);
+	    declare(parameters.get(i), parameter._result);
+	}
+	for (VariableDeclaration local : locals) {
+	    declare(local, constant(0));
+	}
+
+	// The body is entered from here, and again from each self tail call; it is sealed once those are all known.
+	_parameters = parameters;
+	_locals     = locals;
+	_body       = _function.newBlock();
+	_tailCalls  = new LinkedHashMap<BasicBlock, IRValue[]>();
+	jump(_body);
+	_current = _body;
+
+    } // IRBuilder ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Give a local variable or parameter its initial value, allocating a frame slot for it if it must be kept in memory.
+     *
+     * @param variable The variable.
+     * @param value    The initial value.
+     */
+    private void declare (VariableDeclaration variable, IRValue value) {
+
+	if (variable.isAddressTaken()) {
+	    IRValue slot = _function.newSlot();
+	    _slots.put(variable, slot);
+	    store(variable._type.getSize(), slot, value);
+	} else {
+	    writeVariable(variable, value);
+	}
+
+    } // declare ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Complete the function: end the last block, discard the blocks that cannot be reached, and replace every use of a removed
+     * phi with the value that it merged.
+     *
+     * @return the function.
+     */
+    public IRFunction finish () {
+
+	// Control that reaches the end of the body returns, with no value.
+	if (!_current.isTerminated()) {
+	    ret(null);
+	}
+
+	// A frame slot whose address escapes could still be in use after a self tail call, so a procedure with any slot (even one
+	// from an inlined body) keeps its frames apart: each self tail call becomes a call after all.
+	if (!_slots.isEmpty()) {
+	    for (Map.Entry<BasicBlock, IRValue[]> tailCall : _tailCalls.entrySet()) {
+		_current = tailCall.getKey();
+		_current._instructions.remove(_current._instructions.size() - 1);
+		_body._predecessors.remove(_current);
+		ret(call(_function._name, false, tailCall.getValue()));
+	    }
+	}
+	seal(_body);
+	removeUnreachableBlocks();
+
+	// Removing edges can leave phis merging a single value; those are removed in turn.
+	boolean changed = true;
+	while (changed) {
+	    changed = false;
+	    for (BasicBlock block : _function.getBlocks()) {
+		for (IRInstruction phi : new ArrayList<IRInstruction>(block._instructions)) {
+		    if (phi._opcode == IRInstruction.Opcode.PHI && phi._result.resolve() == phi._result &&
+			tryRemoveTrivialPhi(phi) != phi._result) {
+			changed = true;
+		    }
+		}
+	    }
+	}
+
+	// Without a self tail call, the body is entered only from the entry block, and is merged back into it.
+	if (_body._predecessors.size() == 1) {
+	    mergeIntoPredecessor(_body);
+	}
+
+	// Every operand now refers to a value still defined.
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		    instruction.setOperand(i, instruction.getOperand(i));
+		}
+	    }
+	}
+
+	return _function;
+
+    } // finish ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Merge a block into its only predecessor, which must end with a jump to it.
+     *
+     * @param block The block.
+     */
+    private void mergeIntoPredecessor (BasicBlock block) {
+
+	BasicBlock predecessor = block._predecessors.get(0);
+	predecessor._instructions.remove(predecessor._instructions.size() - 1);
+	for (IRInstruction instruction : block._instructions) {
+	    predecessor.add(instruction);
+	}
+	for (BasicBlock successor : block.getSuccessors()) {
+	    successor._predecessors.replaceAll(from -> from == block ? predecessor : from);
+	}
+	_function.getBlocks().remove(block);
+
+    } // mergeIntoPredecessor ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove the blocks that cannot be reached from the entry (e.g., code after a <code>return</code>), along with the edges
+     * (and phi operands) that they contribute to reachable blocks.
+     */
+    private void removeUnreachableBlocks () {
+
+	Set<BasicBlock>  reachable = new HashSet<BasicBlock>();
+	List<BasicBlock> work      = new ArrayList<BasicBlock>();
+	reachable.add(_function.getEntry());
+	work.add(_function.getEntry());
+	while (!work.isEmpty()) {
+	    BasicBlock block = work.remove(work.size() - 1);
+	    for (BasicBlock successor : block.getSuccessors()) {
+		if (reachable.add(successor)) {
+		    work.add(successor);
+		}
+	    }
+	}
+
+	_function.getBlocks().removeIf(block -> !reachable.contains(block));
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (int i = block._predecessors.size() - 1; i >= 0; i -= 1) {
+		if (!reachable.contains(block._predecessors.get(i))) {
+		    block._predecessors.remove(i);
+		    for (IRInstruction instruction : block._instructions) {
+			if (instruction._opcode == IRInstruction.Opcode.PHI) {
+			    instruction._operands.remove(i);
+			}
+		    }
+		}
+	    }
+	}
+
+    } // removeUnreachableBlocks ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // VALUES
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide a constant.
+     *
+     * @param value The value.
+     * @return the constant.
+     */
+    public IRValue constant (long value) {
+
+	return _literals.computeIfAbsent(value, key -> IRValue.constant(value));
+
+    } // constant ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Merge values in the current block, one for each of its predecessors, in order.  The block must have all of its
+     * predecessors already.
+     *
+     * @param values The value that arrives from each predecessor.
+     * @return the merged value.
+     */
+    public IRValue phi (List<IRValue> values) {
+
+	IRInstruction phi = newPhi(_current);
+	for (IRValue value : values) {
+	    phi._operands.add(value);
+	    value.addPhiUser(phi);
+	}
+	return tryRemoveTrivialPhi(phi);
+
+    } // phi ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the address of a label.
+     *
+     * @param label The label.
+     * @return the symbol.
+     */
+    public IRValue symbol (String label) {
+
+	return _literals.computeIfAbsent(label, key -> IRValue.symbol(label));
+
+    } // symbol ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // INSTRUCTIONS
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append an operation that yields a value.
+     *
+     * @param opcode   The operation.
+     * @param operands The operands.
+     * @return the temporary holding the result.
+     */
+    public IRValue emit (IRInstruction.Opcode opcode, IRValue... operands) {
+
+	IRInstruction instruction = new IRInstruction(opcode, _function.newTemporary(), operands);
+	append(instruction);
+	return instruction._result;
+
+    } // emit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append a load.
+     *
+     * @param size    The size of the value loaded (1 or 8 bytes).
+     * @param address The address.
+     * @return the temporary holding the value, zero-extended.
+     */
+    public IRValue load (int size, IRValue address) {
+
+	IRInstruction instruction = new IRInstruction(IRInstruction.Opcode.LOAD, _function.newTemporary(), address);
+	instruction._size = size;
+	append(instruction);
+	return instruction._result;
+
+    } // load ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append a store.
+     *
+     * @param size    The size of the value stored (1 or 8 bytes).
+     * @param address The address.
+     * @param value   The value.
+     */
+    public void store (int size, IRValue address, IRValue value) {
+
+	IRInstruction instruction = new IRInstruction(IRInstruction.Opcode.STORE, null, address, value);
+	instruction._size = size;
+	append(instruction);
+
+    } // store ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append a call.
+     *
+     * @param callee    The name of the procedure called.
+     * @param varargs   Whether the procedure takes variadic arguments.
+     * @param arguments The arguments, in order.
+     * @return the temporary holding the value returned.
+     */
+    public IRValue call (String callee, boolean varargs, IRValue... arguments) {
+
+	IRInstruction instruction = new IRInstruction(IRInstruction.Opcode.CALL, _function.newTemporary(), arguments);
+	instruction._callee  = callee;
+	instruction._varargs = varargs;
+	append(instruction);
+	return instruction._result;
+
+    } // call ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a call, made as the value of a return, is a self tail call: a call of the procedure being built, which can
+     * reuse its frame by starting its body again (see <code>tailRecurse()</code>).  A procedure with frame slots does not.
+     *
+     * @param callee The procedure called.
+     * @return <code>true</code> if the call is a self tail call; <code>false</code> otherwise.
+     */
+    public boolean isTailRecursive (Procedure callee) {
+
+	return _inlinedCalls.isEmpty() && _slots.isEmpty() && callee._name.equals(_function._name);
+
+    } // isTailRecursive ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * End the current block with a self tail call: the parameters take the new values, the locals start again at 0, and
+     * control jumps back to the start of the body, so that the recursion runs as a loop in the same frame.
+     *
+     * @param arguments The values of the arguments, already evaluated.
+     */
+    public void tailRecurse (IRValue... arguments) {
+
+	for (int i = 0; i < arguments.length; i += 1) {
+	    writeVariable(_parameters.get(i), arguments[i]);
+	}
+	for (VariableDeclaration local : _locals) {
+	    writeVariable(local, constant(0));
+	}
+	jump(_body);
+	_tailCalls.put(_current, arguments);
+
+    } // tailRecurse ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Decide whether to inline a call, charging the cost of inlining it against the function's budget if so.
+     *
+     * @param callee   The procedure called.
+     * @param position The position of the call in the source.
+     * @return <code>true</code> if the call is to be inlined (see <code>inline()</code>); <code>false</code> otherwise.
+     */
+    public boolean shouldInline (Procedure callee, int position) {
+
+	if (_inliner == null) {
+	    return false;
+	}
+	int cost = _inliner.decide(_function._name, position, callee, _inlineBudget);
+	if (cost < 0) {
+	    return false;
+	}
+	_inlineBudget -= cost;
+	return true;
+
+    } // shouldInline ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a call by lowering the callee's body in its place: the parameters take the arguments' values, the locals start at
+     * 0, and each return jumps to a new block, where the values returned are merged into the value of the call.
+     *
+     * @param callee    The procedure called.
+     * @param arguments The values of the arguments, already evaluated.
+     * @return the value returned (0 if none).
+     */
+    public IRValue inline (InternalProcedure callee, IRValue... arguments) {
+
+	for (int i = 0; i < arguments.length; i += 1) {
+	    declare(callee._parameters.get(i), arguments[i]);
+	}
+	for (VariableDeclaration local : callee._locals) {
+	    declare(local, constant(0));
+	}
+
+	InlinedCall call = new InlinedCall(_function.newBlock());
+	_inlinedCalls.add(call);
+	callee._body.toIR(this);
+	if (!_current.isTerminated()) {
+	    ret(null);
+	}
+	_inlinedCalls.remove(_inlinedCalls.size() - 1);
+
+	seal(call._exit);
+	startBlock(call._exit);
+	return phi(call._values);
+
+    } // inline ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * End the current block with a jump.
+     *
+     * @param target The block to which to jump.
+     */
+    public void jump (BasicBlock target) {
+
+	terminate(new IRInstruction(IRInstruction.Opcode.JUMP, null), target);
+
+    } // jump ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * End the current block with a conditional branch.
+     *
+     * @param condition The value tested.
+     * @param ifTrue    The block to which to branch if the condition is non-zero.
+     * @param ifFalse   The block to which to branch otherwise.
+     */
+    public void branch (IRValue condition, BasicBlock ifTrue, BasicBlock ifFalse) {
+
+	terminate(new IRInstruction(IRInstruction.Opcode.BRANCH, null, condition), ifTrue, ifFalse);
+
+    } // branch ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * End the current block with a return.  Within the body of an inlined call, this is a jump to the block that follows the
+     * call instead.
+     *
+     * @param value The value returned; <code>null</code> if none.
+     */
+    public void ret (IRValue value) {
+
+	if (!_inlinedCalls.isEmpty()) {
+	    InlinedCall call = _inlinedCalls.get(_inlinedCalls.size() - 1);
+	    call._values.add(value != null ? value : constant(0));
+	    jump(call._exit);
+	    return;
+	}
+
+	IRInstruction instruction = (value == null) ? new IRInstruction(IRInstruction.Opcode.RETURN, null)
+	                                            : new IRInstruction(IRInstruction.Opcode.RETURN, null, value);
+	terminate(instruction);
+
+    } // ret ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private void terminate (IRInstruction terminator, BasicBlock... targets) {
+
+	append(terminator);
+	for (BasicBlock target : targets) {
+	    terminator._targets.add(target);
+	    target._predecessors.add(_current);
+	}
+
+    } // terminate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append an instruction to the current block.  If that block has already ended (e.g., after a <code>return</code>), the
+     * instruction cannot be reached; it goes into a new block with no predecessors, which is later removed.
+     *
+     * @param instruction The instruction.
+     */
+    private void append (IRInstruction instruction) {
+
+	if (_current.isTerminated()) {
+	    _current = _function.newBlock();
+	    seal(_current);
+	}
+	_current.add(instruction);
+
+    } // append ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // BLOCKS
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a new block, not yet current.
+     *
+     * @return the block.
+     */
+    public BasicBlock newBlock () {
+
+	return _function.newBlock();
+
+    } // newBlock ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Make a block the one to which instructions are appended.  The current block must have been ended.
+     *
+     * @param block The block.
+     */
+    public void startBlock (BasicBlock block) {
+
+	_current = block;
+
+    } // startBlock ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Declare that all of the predecessors of a block are known, completing the phis left incomplete in it.
+     *
+     * @param block The block.
+     */
+    public void seal (BasicBlock block) {
+
+	Map<VariableDeclaration, IRInstruction> incomplete = _incompletePhis.remove(block);
+	if (incomplete != null) {
+	    for (Map.Entry<VariableDeclaration, IRInstruction> phi : incomplete.entrySet()) {
+		addPhiOperands(phi.getKey(), phi.getValue());
+	    }
+	}
+	_sealed.add(block);
+
+    } // seal ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // VARIABLES
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a variable is an SSA value, as opposed to a location in memory.
+     *
+     * @param variable The variable.
+     * @return <code>true</code> for a local variable or parameter whose address is never taken; <code>false</code> otherwise.
+     */
+    public boolean isValue (VariableDeclaration variable) {
+
+	return variable instanceof LocalVariableDecl && !_slots.containsKey(variable);
+
+    } // isValue ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the address of a variable kept in memory.
+     *
+     * @param variable The variable.
+     * @return its frame slot, or the symbol of its label.
+     */
+    public IRValue addressOf (VariableDeclaration variable) {
+
+	IRValue slot = _slots.get(variable);
+	if (slot != null) {
+	    return slot;
+	}
+	if (!(variable instanceof GlobalVariableDecl global)) {
+	    Utility.abort("IRBuilder.addressOf(): " + variable._name + " is not kept in memory");
+	    return null;
+	}
+	if (!global.isAddressTaken()) {
+	    _function.addUnescaped(global.getLabel());
+	}
+	return symbol(global.getLabel());
+
+    } // addressOf ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Record an assignment to an SSA variable in the current block.
+     *
+     * @param variable The variable.
+     * @param value    The value assigned.
+     */
+    public void writeVariable (VariableDeclaration variable, IRValue value) {
+
+	writeVariable(variable, _current, value);
+
+    } // writeVariable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the current value of an SSA variable in the current block.
+     *
+     * @param variable The variable.
+     * @return the value.
+     */
+    public IRValue readVariable (VariableDeclaration variable) {
+
+	if (_current.isTerminated()) {
+	    _current = _function.newBlock();
+	    seal(_current);
+	}
+	return readVariable(variable, _current);
+
+    } // readVariable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private void writeVariable (VariableDeclaration variable, BasicBlock block, IRValue value) {
+
+	_definitions.computeIfAbsent(block, key -> new HashMap<VariableDeclaration, IRValue>()).put(variable, value);
+
+    } // writeVariable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private IRValue readVariable (VariableDeclaration variable, BasicBlock block) {
+
+	Map<VariableDeclaration, IRValue> definitions = _definitions.get(block);
+	IRValue                           value       = (definitions == null) ? null : definitions.get(variable);
+	if (value != null) {
+	    return value.resolve();
+	}
+
+	// Not assigned in this block, so look to its predecessors.
+	if (!_sealed.contains(block)) {
+	    IRInstruction phi = newPhi(block);
+	    _incompletePhis.computeIfAbsent(block, key -> new HashMap<VariableDeclaration, IRInstruction>()).put(variable, phi);
+	    value = phi._result;
+	} else if (block._predecessors.size() == 1) {
+	    value = readVariable(variable, block._predecessors.get(0));
+	} else if (block._predecessors.isEmpty()) {
+	    // Only unreachable blocks (other than the entry, where every variable is defined) have no predecessors.
+	    value = constant(0);
+	} else {
+	    // Record the phi before looking through the predecessors, to end the search around a loop.
+	    IRInstruction phi = newPhi(block);
+	    writeVariable(variable, block, phi._result);
+	    value = addPhiOperands(variable, phi);
+	}
+	writeVariable(variable, block, value);
+	return value;
+
+    } // readVariable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private IRInstruction newPhi (BasicBlock block) {
+
+	IRInstruction phi = new IRInstruction(IRInstruction.Opcode.PHI, _function.newTemporary());
+	phi._block = block;
+	int at = 0;
+	while (at < block._instructions.size() && block._instructions.get(at)._opcode == IRInstruction.Opcode.PHI) {
+	    at += 1;
+	}
+	block._instructions.add(at, phi);
+	return phi;
+
+    } // newPhi ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private IRValue addPhiOperands (VariableDeclaration variable, IRInstruction phi) {
+
+	for (BasicBlock predecessor : phi._block._predecessors) {
+	    IRValue operand = readVariable(variable, predecessor);
+	    phi._operands.add(operand);
+	    operand.addPhiUser(phi);
+	}
+	return tryRemoveTrivialPhi(phi);
+
+    } // addPhiOperands ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove a phi that merges only one value (apart from itself), replacing it with that value, and re-examine the phis that
+     * used it.
+     *
+     * @param phi The phi.
+     * @return the value that now stands for the phi's result (the result itself, if the phi is kept).
+     */
+    private IRValue tryRemoveTrivialPhi (IRInstruction phi) {
+
+	IRValue same = null;
+	for (int i = 0; i < phi.getOperandCount(); i += 1) {
+	    IRValue operand = phi.getOperand(i);
+	    if (operand == same || operand == phi._result) {
+		continue;
+	    }
+	    if (same != null) {
+		return phi._result;
+	    }
+	    same = operand;
+	}
+	if (same == null) {
+	    same = constant(0);
+	}
+
+	List<IRInstruction> users = new ArrayList<IRInstruction>(phi._result.getPhiUsers());
+	phi._result.replaceWith(same);
+	phi._block._instructions.remove(phi);
+	for (IRInstruction user : users) {
+	    if (user != phi && user._result.resolve() == user._result) {
+		tryRemoveTrivialPhi(user);
+	    }
+	}
+	return same;
+
+    } // tryRemoveTrivialPhi ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class IRBuilder
+// =================================================================================================================================
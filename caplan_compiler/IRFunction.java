@@ -0,0 +1,215 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The intermediate representation of one internal procedure: a control-flow graph of basic blocks in SSA form, the entry block
+ * first.  Local variables and parameters whose addresses are never taken are SSA values; the rest are kept in frame slots and
+ * reached through loads and stores, as are global variables.
+ *
+ * A function is built from the verified AST by <code>IRBuilder</code> and translated to x86-64 by <code>CodeGenerator</code>.
+ */
+public final class IRFunction {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The name of the procedure. */
+    public final String            _name;
+
+    /** The number of parameters. */
+    public final int               _parameterCount;
+
+    /** The blocks, the entry block first. */
+    final List<BasicBlock>         _blocks;
+
+    /** The number of temporaries numbered so far. */
+    private int                    _temporaryCount;
+
+    /** The number of frame slots allocated so far. */
+    private int                    _slotCount;
+
+    /** The number of blocks numbered so far. */
+    private int                    _blockCount;
+
+    /** The labels of the global variables reached here whose addresses are never taken, so that no pointer can reach them. */
+    private final Set<String>      _unescaped;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a function with only an (empty) entry block.
+     *
+     * @param name           The name of the procedure.
+     * @param parameterCount The number of parameters.
+     */
+    public IRFunction (String name, int parameterCount) {
+
+	_name           = name;
+	_parameterCount = parameterCount;
+	_blocks         = new ArrayList<BasicBlock>();
+	_temporaryCount = 0;
+	_slotCount      = 0;
+	_blockCount     = 0;
+	_unescaped      = new HashSet<String>();
+	newBlock();
+
+    } // IRFunction ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a new block at the end of the function.
+     *
+     * @return the block.
+     */
+    public BasicBlock newBlock () {
+
+	BasicBlock block = new BasicBlock(_blockCount);
+	_blockCount = _blockCount + 1;
+	_blocks.add(block);
+	return block;
+
+    } // newBlock ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a new temporary.
+     *
+     * @return the temporary.
+     */
+    public IRValue newTemporary () {
+
+	IRValue temporary = IRValue.temporary(_temporaryCount);
+	_temporaryCount = _temporaryCount + 1;
+	return temporary;
+
+    } // newTemporary ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Allocate a word in the frame.
+     *
+     * @return the address of the slot.
+     */
+    public IRValue newSlot () {
+
+	IRValue slot = IRValue.slot(_slotCount);
+	_slotCount = _slotCount + 1;
+	return slot;
+
+    } // newSlot ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public BasicBlock getEntry () {
+
+	return _blocks.get(0);
+
+    } // getEntry ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public List<BasicBlock> getBlocks () {
+
+	return _blocks;
+
+    } // getBlocks ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getTemporaryCount () {
+
+	return _temporaryCount;
+
+    } // getTemporaryCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getSlotCount () {
+
+	return _slotCount;
+
+    } // getSlotCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Record that a global variable reached by this function never has its address taken.
+     *
+     * @param label The label of the variable.
+     */
+    public void addUnescaped (String label) {
+
+	_unescaped.add(label);
+
+    } // addUnescaped ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a symbol is the address of a global variable that no pointer can reach, so that only the loads and stores that
+     * name it can read or write it.
+     *
+     * @param symbol The symbol.
+     * @return <code>true</code> if the symbol labels such a variable; <code>false</code> otherwise.
+     */
+    public boolean isUnescaped (IRValue symbol) {
+
+	return symbol._kind == IRValue.Kind.SYMBOL && _unescaped.contains(symbol._symbol);
+
+    } // isUnescaped ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	StringBuilder text = new StringBuilder("function ").append(_name).append(" (").append(_parameterCount).append(")\n");
+	for (BasicBlock block : _blocks) {
+	    text.append(block);
+	}
+	return text.toString();
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class IRFunction
+// =================================================================================================================================
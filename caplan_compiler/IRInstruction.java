@@ -0,0 +1,352 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * One instruction of the intermediate representation, in three-address form: an opcode, at most one result (a temporary
+ * defined here and nowhere else), and operands.  Each block ends with exactly one terminator (<code>JUMP</code>,
+ * <code>BRANCH</code>, or <code>RETURN</code>), and its phis, if any, come first.
+ *
+ * <pre>
+ *   %3 = ADD %1, 8
+ *   %4 = LOAD.8 [%3]
+ *   STORE.1 [@flag], %5
+ *   %6 = CALL printf(@string_0, %4)
+ *   %7 = PHI [%2, B1], [%6, B3]
+ *   BRANCH %7, B4, B5
+ * </pre>
+ */
+public final class IRInstruction {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The operations. */
+    public static enum Opcode {
+
+	/** The value of a parameter, as passed.  Appears only at the start of the entry block. */
+	PARAMETER,
+
+	/** Arithmetic and bitwise operations on whole words. */
+	ADD, SUB, MUL, DIV, MOD, AND, OR, XOR, NEG, NOT,
+
+	/** Comparisons (signed), yielding 1 if true and 0 if false. */
+	EQ, NE, LT, LE, GT, GE,
+
+	/** A load from, or store to, an address, of the instruction's size (1 or 8 bytes); a byte load is zero-extended.  The
+	 * address is the first operand, plus an index operand times the scale (if the scale is not 0), plus the displacement;
+	 * the index is the second operand of a load, and the third of a store (after the value). */
+	LOAD, STORE,
+
+	/** An address, formed as for a load, yielded as a value.  Formed only during instruction selection. */
+	ADDRESS,
+
+	/** A call of a procedure, yielding the value that it returns. */
+	CALL,
+
+	/** The value, on entry to the block, that arrived along each predecessor edge, in the order of the predecessors. */
+	PHI,
+
+	/** Terminators: an unconditional jump; a jump to the first target if the operand is non-zero, else the second; a return,
+	 * with or without a value. */
+	JUMP, BRANCH, RETURN;
+
+    } // enum Opcode
+
+    /** The operation. */
+    public final Opcode          _opcode;
+
+    /** The temporary defined by this instruction; <code>null</code> if none. */
+    public final IRValue         _result;
+
+    /** The operands. */
+    final List<IRValue>          _operands;
+
+    /** The blocks to which a terminator may transfer control, in the order described for its opcode. */
+    final List<BasicBlock>       _targets;
+
+    /** The block to which this instruction belongs. */
+    BasicBlock                   _block;
+
+    /** The size, in bytes, of the memory accessed by a load or store; the index of a parameter. */
+    int                          _size;
+
+    /** The factor (1, 2, 4, or 8) by which the index of an address is scaled; 0 if there is no index. */
+    int                          _scale;
+
+    /** The constant added to an address. */
+    long                         _displacement;
+
+    /** The name of the procedure called. */
+    String                       _callee;
+
+    /** Whether the procedure called takes variadic arguments. */
+    boolean                      _varargs;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an instruction.
+     *
+     * @param opcode   The operation.
+     * @param result   The temporary that it defines, if any.
+     * @param operands The operands.
+     */
+    public IRInstruction (Opcode opcode, IRValue result, IRValue... operands) {
+
+	_opcode   = opcode;
+	_result   = result;
+	_operands = new ArrayList<IRValue>(Arrays.asList(operands));
+	_targets  = new ArrayList<BasicBlock>(2);
+	if (result != null) {
+	    result.setDefinition(this);
+	}
+
+    } // IRInstruction ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide an operand, following any replacement made while SSA form was built.
+     *
+     * @param index The index of the operand.
+     * @return the operand.
+     */
+    public IRValue getOperand (int index) {
+
+	return _operands.get(index).resolve();
+
+    } // getOperand ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getOperandCount () {
+
+	return _operands.size();
+
+    } // getOperandCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public void setOperand (int index, IRValue value) {
+
+	_operands.set(index, value);
+
+    } // setOperand ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the blocks to which this terminator may transfer control.
+     *
+     * @return the targets; empty for a return or a non-terminator.
+     */
+    public List<BasicBlock> getTargets () {
+
+	return _targets;
+
+    } // getTargets ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public BasicBlock getBlock () {
+
+	return _block;
+
+    } // getBlock ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getSize () {
+
+	return _size;
+
+    } // getSize ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the index of the address accessed by a load or store, or formed by an address instruction.
+     *
+     * @return the index, or <code>null</code> if the address has none.
+     */
+    public IRValue getIndex () {
+
+	return _scale == 0 ? null : getOperand(_opcode == Opcode.STORE ? 2 : 1);
+
+    } // getIndex ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getScale () {
+
+	return _scale;
+
+    } // getScale ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public long getDisplacement () {
+
+	return _displacement;
+
+    } // getDisplacement ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String getCallee () {
+
+	return _callee;
+
+    } // getCallee ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public boolean usesVarargs () {
+
+	return _varargs;
+
+    } // usesVarargs ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether this instruction ends a block.
+     *
+     * @return <code>true</code> for a jump, branch, or return; <code>false</code> otherwise.
+     */
+    public boolean isTerminator () {
+
+	return _opcode == Opcode.JUMP || _opcode == Opcode.BRANCH || _opcode == Opcode.RETURN;
+
+    } // isTerminator ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether this instruction does nothing but compute its result from its operands, so that it may be removed if the result is
+     * not used (or moved, or shared with an identical instruction).  Loads are not pure: they depend on memory.
+     *
+     * @return <code>true</code> if the instruction is pure; <code>false</code> otherwise.
+     */
+    public boolean isPure () {
+
+	switch (_opcode) {
+	case ADD: case SUB: case MUL: case AND: case OR: case XOR: case NEG: case NOT:
+	case EQ: case NE: case LT: case LE: case GT: case GE:
+	case ADDRESS:
+	    return true;
+	default:
+	    return false;
+	}
+
+    } // isPure ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether this is a comparison.
+     *
+     * @return <code>true</code> for <code>EQ</code> through <code>GE</code>; <code>false</code> otherwise.
+     */
+    public boolean isComparison () {
+
+	return _opcode.compareTo(Opcode.EQ) >= 0 && _opcode.compareTo(Opcode.GE) <= 0;
+
+    } // isComparison ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	StringBuilder text = new StringBuilder();
+	if (_result != null) {
+	    text.append(_result).append(" = ");
+	}
+	text.append(_opcode);
+	if (_opcode == Opcode.LOAD || _opcode == Opcode.STORE) {
+	    text.append('.').append(_size);
+	} else if (_opcode == Opcode.PARAMETER) {
+	    text.append(' ').append(_size);
+	} else if (_opcode == Opcode.CALL) {
+	    text.append(' ').append(_callee);
+	}
+
+	if (_opcode == Opcode.LOAD || _opcode == Opcode.STORE || _opcode == Opcode.ADDRESS) {
+	    text.append(" [").append(getOperand(0));
+	    if (_scale != 0) {
+		text.append(" + ").append(getIndex()).append('*').append(_scale);
+	    }
+	    if (_displacement != 0) {
+		text.append(" + ").append(_displacement);
+	    }
+	    text.append(']');
+	    if (_opcode == Opcode.STORE) {
+		text.append(", ").append(getOperand(1));
+	    }
+	    return text.toString();
+	}
+
+	for (int i = 0; i < _operands.size(); i += 1) {
+	    text.append(i == 0 ? " " : ", ");
+	    if (_opcode == Opcode.PHI) {
+		text.append('[').append(getOperand(i)).append(", ").append(_block.getPredecessors().get(i).getName()).append(']');
+	    } else {
+		text.append(getOperand(i));
+	    }
+	}
+	for (int i = 0; i < _targets.size(); i += 1) {
+	    text.append(i == 0 && _operands.isEmpty() ? " " : ", ").append(_targets.get(i).getName());
+	}
+	return text.toString();
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class IRInstruction
+// =================================================================================================================================
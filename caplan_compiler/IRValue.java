@@ -0,0 +1,265 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * A value in the intermediate representation: an operand of, or the result of, an <code>IRInstruction</code>.  A value is one
+ * of:
+ * <ul>
+ *   <li>a <i>temporary</i>, defined by exactly one instruction (the IR is in SSA form);</li>
+ *   <li>a <i>constant</i> integer;</li>
+ *   <li>a <i>symbol</i>, the address of a label (a global variable or a string literal); or</li>
+ *   <li>a <i>slot</i>, the address of a word in the procedure's frame that holds a local variable kept in memory (because its
+ *       address is taken).</li>
+ * </ul>
+ * Constants, symbols, and slots are known without computation, so code generation can use them directly as immediates or in
+ * addressing modes.
+ *
+ * While SSA form is being built, a temporary (a phi found to be redundant) may be replaced by another value; uses of it are
+ * then forwarded to the replacement (see <code>resolve()</code>).
+ */
+public class IRValue {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The sorts of values. */
+    public static enum Kind {
+	TEMPORARY, CONSTANT, SYMBOL, SLOT
+    }
+
+    /** What sort of value this is. */
+    public final Kind                _kind;
+
+    /** The number of a temporary or a slot (unique within its function); the value of a constant. */
+    public final long                _number;
+
+    /** The label of a symbol; <code>null</code> otherwise. */
+    public final String              _symbol;
+
+    /** The instruction that defines a temporary; <code>null</code> otherwise. */
+    private IRInstruction            _definition;
+
+    /** The value that replaces this one, if any. */
+    private IRValue                  _replacement;
+
+    /** The phi instructions that use this value, kept while SSA form is built so that they can be re-examined. */
+    private final List<IRInstruction> _phiUsers;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private IRValue (Kind kind, long number, String symbol) {
+
+	_kind        = kind;
+	_number      = number;
+	_symbol      = symbol;
+	_definition  = null;
+	_replacement = null;
+	_phiUsers    = (kind == Kind.TEMPORARY) ? new ArrayList<IRInstruction>() : null;
+
+    } // IRValue ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a temporary.  Its defining instruction is set when that instruction is created.
+     *
+     * @param number The number of the temporary, unique within its function.
+     * @return the temporary.
+     */
+    public static IRValue temporary (int number) {
+
+	return new IRValue(Kind.TEMPORARY, number, null);
+
+    } // temporary ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a constant.
+     *
+     * @param value The value.
+     * @return the constant.
+     */
+    public static IRValue constant (long value) {
+
+	return new IRValue(Kind.CONSTANT, value, null);
+
+    } // constant ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create the address of a label.
+     *
+     * @param label The label.
+     * @return the symbol.
+     */
+    public static IRValue symbol (String label) {
+
+	return new IRValue(Kind.SYMBOL, 0, label);
+
+    } // symbol ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create the address of a frame slot.
+     *
+     * @param number The number of the slot, unique within its function.
+     * @return the slot.
+     */
+    public static IRValue slot (int number) {
+
+	return new IRValue(Kind.SLOT, number, null);
+
+    } // slot ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public boolean isTemporary () {
+
+	return _kind == Kind.TEMPORARY;
+
+    } // isTemporary ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public boolean isConstant () {
+
+	return _kind == Kind.CONSTANT;
+
+    } // isConstant ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the instruction that defines this temporary.
+     *
+     * @return the instruction; <code>null</code> if this is not a temporary.
+     */
+    public IRInstruction getDefinition () {
+
+	return _definition;
+
+    } // getDefinition ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    void setDefinition (IRInstruction definition) {
+
+	_definition = definition;
+
+    } // setDefinition ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Follow replacements to the value that now stands for this one.
+     *
+     * @return the value (this one, if it has not been replaced).
+     */
+    public IRValue resolve () {
+
+	IRValue value = this;
+	while (value._replacement != null) {
+	    value = value._replacement;
+	}
+	return value;
+
+    } // resolve ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Replace this value, everywhere it is used, with another.
+     *
+     * @param replacement The value that replaces this one.
+     */
+    void replaceWith (IRValue replacement) {
+
+	_replacement = replacement;
+	if (replacement._phiUsers != null) {
+	    replacement._phiUsers.addAll(_phiUsers);
+	}
+
+    } // replaceWith ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    void addPhiUser (IRInstruction phi) {
+
+	if (_phiUsers != null) {
+	    _phiUsers.add(phi);
+	}
+
+    } // addPhiUser ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    List<IRInstruction> getPhiUsers () {
+
+	return _phiUsers;
+
+    } // getPhiUsers ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	switch (_kind) {
+	case TEMPORARY:
+	    return "%" + _number;
+	case CONSTANT:
+	    return String.valueOf(_number);
+	case SYMBOL:
+	    return "@" + _symbol;
+	default:
+	    return "slot" + _number;
+	}
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class IRValue
+// =================================================================================================================================
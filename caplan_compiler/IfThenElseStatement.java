@@ -2,6 +2,7 @@
 // IMPORTS
 
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -20,7 +21,7 @@ class IfThenElseStatement extends IfThenStatement {
     // DATA MEMBERS
 
     /** The else-branch. */
-    public final Statement  _elseBranch;
+    public Statement _elseBranch;
     // =============================================================================================================================
 
     
@@ -60,6 +61,23 @@ class IfThenElseStatement extends IfThenStatement {
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this statement refers: the variables that it uses and the procedures that it
+     * calls.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	super.findReferences(references);
+	_elseBranch.findReferences(references);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -82,27 +100,65 @@ class IfThenElseStatement extends IfThenStatement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this statement.
+     * Fold constant expressions within this statement.
      *
-     * @return the generated assembly code.
+     * @return this statement.
      */
-    public String toAssembly () {
-	
-        String else_label = "ELSE_START_"   + _position;
-        String end_label  = "POST_IF_ELSE_" + _position;
-	
-        return ( ";BEGIN IF ELSE STATEMENT @ " + _position + "\n" +
-		 _condition.toAssembly() +
-		 "\tpop\trax\t\t; Place the result of evaluating the condition in the register\n" +
-		 "\tand\trax,\trax\t; Set the zero flag based on the condition\n" +
-		 "\tjz\t" + else_label + "\n" +
-		 _thenBranch.toAssembly() +
-		 "\tjmp\t" + end_label + "\n" +
-		 else_label + ":\n" +
-		 _elseBranch.toAssembly() +
-		 end_label + ":\n" );
+    public Statement fold () {
+
+	_condition  = _condition.fold();
+	_thenBranch = _thenBranch.fold();
+	_elseBranch = _elseBranch.fold();
+	if (_condition instanceof BooleanLiteral literal) {
+	    return literal._value ? _thenBranch : _elseBranch;
+	}
+	return this;
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether every path through this statement returns: both branches always do.
+     *
+     * @return <code>true</code> if every path through this statement returns; <code>false</code> otherwise.
+     */
+    public boolean alwaysReturns () {
+
+	return _thenBranch.alwaysReturns() && _elseBranch.alwaysReturns();
+
+    } // alwaysReturns ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this statement into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR (IRBuilder ir) {
+
+	// Branch to one branch or the other, and rejoin after both; each block is sealed once all of its predecessors are known.
+	BasicBlock thenBlock = ir.newBlock();
+	BasicBlock elseBlock = ir.newBlock();
+	BasicBlock endBlock  = ir.newBlock();
+	_condition.toIR_branch(ir, thenBlock, elseBlock);
+	ir.seal(thenBlock);
+	ir.seal(elseBlock);
+	ir.startBlock(thenBlock);
+	_thenBranch.toIR(ir);
+	ir.jump(endBlock);
+	ir.startBlock(elseBlock);
+	_elseBranch.toIR(ir);
+	ir.jump(endBlock);
+	ir.seal(endBlock);
+	ir.startBlock(endBlock);
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
@@ -111,11 +167,12 @@ class IfThenElseStatement extends IfThenStatement {
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
-	return super.toStatics() + _elseBranch.toStatics();
+	super.toStatics(out);
+	_elseBranch.toStatics(out);
 	
     } // toStatics ()
     // =============================================================================================================================
@@ -1,7 +1,9 @@
 // =================================================================================================================================
 // IMPORTS
 
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -19,7 +21,7 @@ class IfThenStatement extends ControlStatement {
     // DATA MEMBERS
 
     /** The then-branch. */
-    public final Statement  _thenBranch;
+    public Statement _thenBranch;
     // =============================================================================================================================
     
 
@@ -59,6 +61,23 @@ class IfThenStatement extends ControlStatement {
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this statement refers: the variables that it uses and the procedures that it
+     * calls.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	_condition.findReferences(references);
+	_thenBranch.findReferences(references);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -85,23 +104,44 @@ class IfThenStatement extends ControlStatement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this statement.
+     * Fold constant expressions within this statement.
      *
-     * @return the generated assembly code.
+     * @return this statement.
      */
-    public String toAssembly () {
+    public Statement fold () {
 
-        String end_label = "POST_IF_" + _position;
-	
-        return ( "\t; Begin if-then @" + _position + "\n" +
-		 _condition.toAssembly() +
-		 "\tpop\trax\t\t; Place the result of evaluating the condition in the register\n" +
-		 "\tand\trax,\trax\t; Set the zero flag based on the condition\n" +
-		 "\tjz\t" + end_label + "\n" +
-		 _thenBranch.toAssembly() +
-		 end_label + ":\n" );
+	_condition  = _condition.fold();
+	_thenBranch = _thenBranch.fold();
+	if (_condition instanceof BooleanLiteral literal) {
+	    return literal._value ? _thenBranch : new MultiStatement(_position, new ArrayList<Statement>());
+	}
+	return this;
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this statement into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR (IRBuilder ir) {
+
+	// Branch around the then-branch when the condition is false; each block is sealed once all of its predecessors are known.
+	BasicBlock thenBlock = ir.newBlock();
+	BasicBlock endBlock  = ir.newBlock();
+	_condition.toIR_branch(ir, thenBlock, endBlock);
+	ir.seal(thenBlock);
+	ir.startBlock(thenBlock);
+	_thenBranch.toIR(ir);
+	ir.jump(endBlock);
+	ir.seal(endBlock);
+	ir.startBlock(endBlock);
 		 
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
@@ -110,11 +150,12 @@ class IfThenStatement extends ControlStatement {
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
-	return _condition.toStatics() + _thenBranch.toStatics();
+	_condition.toStatics(out);
+	_thenBranch.toStatics(out);
 	
     } // toStatics ()
     // =============================================================================================================================
@@ -0,0 +1,291 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The policy by which calls of small internal procedures are inlined: the callee's body is lowered in place of the call (see
+ * <code>IRBuilder.inline()</code>), saving the passing of arguments, the call, and the callee's prologue and epilogue.
+ *
+ * A call is inlined if the callee is an internal procedure that cannot reach itself through the call graph, its cost (the
+ * number of instructions in its intermediate representation, apart from parameters, phis, and the return) is at most
+ * <code>MAXIMUM_COST</code>, and the caller's budget still covers that cost.  Each procedure being generated starts with the
+ * whole budget, which the bodies inlined into it, at any depth, use up; a budget of 0 disables inlining.
+ *
+ * Procedures may be generated concurrently with one inliner, which records its decision at each call site that it considers.
+ */
+public class Inliner {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The budget used unless another is chosen. */
+    public static final int DEFAULT_BUDGET = 128;
+
+    /** The greatest cost of a procedure that is inlined; a larger body gains too little from losing the call to be copied. */
+    public static final int MAXIMUM_COST   = 16;
+
+    /** The number of instructions that may be added to one procedure by inlining. */
+    private final int                                   _budget;
+
+    /** The cost of each procedure considered for inlining. */
+    private final Map<Procedure, Integer>               _costs;
+
+    /** Whether each procedure considered for inlining can reach itself through the call graph. */
+    private final Map<Procedure, Boolean>               _recursive;
+
+    /** The procedures that each procedure calls directly. */
+    private final Map<Procedure, Set<Procedure>>        _callees;
+
+    /** The decision made at each call site considered. */
+    private final ConcurrentLinkedQueue<Decision>       _decisions;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The decision made at one call site.
+     */
+    public static final class Decision {
+
+	/** The procedure being generated, into which the call would be inlined. */
+	public final String  _caller;
+
+	/** The procedure called. */
+	public final String  _callee;
+
+	/** The position of the call in the source. */
+	public final int     _position;
+
+	/** Whether the call was inlined. */
+	public final boolean _inlined;
+
+	/** Why the call was, or was not, inlined. */
+	public final String  _reason;
+
+	Decision (String caller, String callee, int position, boolean inlined, String reason) {
+	    _caller   = caller;
+	    _callee   = callee;
+	    _position = position;
+	    _inlined  = inlined;
+	    _reason   = reason;
+	}
+
+	/**
+	 * Describe the decision for a person to read.
+	 *
+	 * @param map The line index of the source; may be <code>null</code>, in which case the position is shown as an offset.
+	 * @return the description.
+	 */
+	public String format (SourceMap map) {
+	    String where = (map == null) ? "@" + _position : "(" + map.line(_position) + "," + map.column(_position) + ")";
+	    return "Inline " + _caller + " " + where + ": " + _callee + (_inlined ? " inlined, " : " not inlined, ") + _reason;
+	}
+
+    } // class Decision
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an inliner.
+     *
+     * @param budget The number of instructions that may be added to one procedure by inlining; 0 to disable inlining.
+     */
+    public Inliner (int budget) {
+
+	_budget    = budget;
+	_costs     = new ConcurrentHashMap<Procedure, Integer>();
+	_recursive = new ConcurrentHashMap<Procedure, Boolean>();
+	_callees   = new ConcurrentHashMap<Procedure, Set<Procedure>>();
+	_decisions = new ConcurrentLinkedQueue<Decision>();
+
+    } // Inliner ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether this inliner inlines anything at all.
+     *
+     * @return <code>true</code> if the budget is positive; <code>false</code> otherwise.
+     */
+    public boolean isEnabled () {
+
+	return _budget > 0;
+
+    } // isEnabled ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int getBudget () {
+
+	return _budget;
+
+    } // getBudget ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Decide whether to inline a call, and record the decision.
+     *
+     * @param caller    The name of the procedure being generated.
+     * @param position  The position of the call in the source.
+     * @param callee    The procedure called.
+     * @param remaining What remains of the caller's budget.
+     * @return the cost to charge against the caller's budget if the call is to be inlined; -1 otherwise.
+     */
+    public int decide (String caller, int position, Procedure callee, int remaining) {
+
+	// Calls of external procedures cannot be inlined, and are not worth reporting.
+	if (!(callee instanceof InternalProcedure internal)) {
+	    return -1;
+	}
+
+	int    cost = -1;
+	String reason;
+	if (isRecursive(internal)) {
+	    reason = "recursive";
+	} else if (cost(internal) > MAXIMUM_COST) {
+	    reason = "cost " + cost(internal) + " exceeds " + MAXIMUM_COST;
+	} else if (cost(internal) > remaining) {
+	    reason = "cost " + cost(internal) + " exceeds the " + remaining + " left in the budget";
+	} else {
+	    cost   = cost(internal);
+	    reason = "cost " + cost + ", leaving " + (remaining - cost) + " in the budget";
+	}
+	_decisions.add(new Decision(caller, callee._name, position, cost >= 0, reason));
+	return cost;
+
+    } // decide ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the decisions made so far, in the order of the call sites in the source.
+     *
+     * @return the decisions.
+     */
+    public List<Decision> getDecisions () {
+
+	List<Decision> decisions = new ArrayList<Decision>(_decisions);
+	decisions.sort(Comparator.comparingInt((Decision decision) -> decision._position)
+		       .thenComparing(decision -> decision._caller));
+	return decisions;
+
+    } // getDecisions ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the cost of inlining a procedure: the number of instructions in its intermediate representation, apart from its
+     * parameters, its phis, and its returns (which become jumps, usually to the next block).
+     *
+     * @param procedure The procedure.
+     * @return the cost.
+     */
+    private int cost (InternalProcedure procedure) {
+
+	return _costs.computeIfAbsent(procedure, key -> {
+		int count = 0;
+		for (BasicBlock block : procedure.toIR(null).getBlocks()) {
+		    for (IRInstruction instruction : block.getInstructions()) {
+			switch (instruction._opcode) {
+			case PARAMETER: case PHI: case RETURN:
+			    break;
+			default:
+			    count += 1;
+			}
+		    }
+		}
+		return count;
+	    });
+
+    } // cost ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a procedure can reach itself through the call graph, and so cannot be inlined without limit.
+     *
+     * @param procedure The procedure.
+     * @return <code>true</code> if the procedure is recursive, directly or otherwise; <code>false</code> otherwise.
+     */
+    private boolean isRecursive (Procedure procedure) {
+
+	return _recursive.computeIfAbsent(procedure, key -> {
+		Set<Procedure>  reached = new HashSet<Procedure>();
+		List<Procedure> work    = new ArrayList<Procedure>(callees(procedure));
+		while (!work.isEmpty()) {
+		    Procedure callee = work.remove(work.size() - 1);
+		    if (callee == procedure) {
+			return true;
+		    }
+		    if (reached.add(callee)) {
+			work.addAll(callees(callee));
+		    }
+		}
+		return false;
+	    });
+
+    } // isRecursive ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the procedures that a procedure calls directly.
+     *
+     * @param procedure The procedure.
+     * @return the procedures called.
+     */
+    private Set<Procedure> callees (Procedure procedure) {
+
+	return _callees.computeIfAbsent(procedure, key -> {
+		Set<Declaration> references = new HashSet<Declaration>();
+		procedure.findReferences(references);
+		Set<Procedure> callees = new HashSet<Procedure>();
+		for (Declaration reference : references) {
+		    if (reference instanceof Procedure callee) {
+			callees.add(callee);
+		    }
+		}
+		return callees;
+	    });
+
+    } // callees ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class Inliner
+// =================================================================================================================================
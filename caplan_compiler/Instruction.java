@@ -0,0 +1,297 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.IOException;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * One line of generated assembly: an instruction, a label, a comment, a directive, a static data definition, or a blank line.
+ * Lines are kept in this structured form until they are written so that the parts of each (opcode, operands, comment) remain
+ * available to whatever handles them on the way out.
+ */
+public class Instruction {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The sorts of assembly lines. */
+    public static enum Kind {
+	INSTRUCTION, LABEL, COMMENT, DIRECTIVE, DATA, BLANK
+    }
+
+    /** No operands. */
+    private static final String[] _noOperands = new String[0];
+
+    /** What sort of line this is. */
+    public final Kind     _kind;
+
+    /** The label defined by this line (for labels and data); <code>null</code> otherwise. */
+    public final String   _label;
+
+    /** The opcode (for instructions), the directive name (for directives and data), or the text (for comments). */
+    public final String   _opcode;
+
+    /** The operands of an instruction or directive, or the values of a data definition. */
+    public final String[] _operands;
+
+    /** A comment to follow the line; <code>null</code> if there is none. */
+    private String        _comment;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an assembly line.
+     *
+     * @param kind     The sort of line.
+     * @param label    The label defined by the line, if any.
+     * @param opcode   The opcode, directive, or comment text, if any.
+     * @param operands The operands or values, if any.
+     */
+    private Instruction (Kind kind, String label, String opcode, Object[] operands) {
+
+	_kind     = kind;
+	_label    = label;
+	_opcode   = opcode;
+	_operands = toStrings(operands);
+	_comment  = null;
+
+    } // Instruction ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an instruction, e.g., <code>mov rax, rbx</code>.
+     *
+     * @param opcode   The opcode.
+     * @param operands The operands, in order; each is written via its <code>toString()</code>.
+     * @return the instruction.
+     */
+    public static Instruction instruction (String opcode, Object... operands) {
+
+	return new Instruction(Kind.INSTRUCTION, null, opcode, operands);
+
+    } // instruction ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a label definition.
+     *
+     * @param name The label.
+     * @return the label line.
+     */
+    public static Instruction label (String name) {
+
+	return new Instruction(Kind.LABEL, name, null, null);
+
+    } // label ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a line holding only a comment.
+     *
+     * @param text The comment text.
+     * @return the comment line.
+     */
+    public static Instruction commentLine (String text) {
+
+	return new Instruction(Kind.COMMENT, null, text, null);
+
+    } // commentLine ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an assembler directive, e.g., <code>section .text</code>.
+     *
+     * @param name      The directive.
+     * @param arguments The arguments to the directive.
+     * @return the directive line.
+     */
+    public static Instruction directive (String name, Object... arguments) {
+
+	return new Instruction(Kind.DIRECTIVE, null, name, arguments);
+
+    } // directive ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a labeled static data definition, e.g., <code>x: dq 0</code>.
+     *
+     * @param label     The label of the data.
+     * @param directive The data directive (<code>db</code>, <code>dq</code>, etc.).
+     * @param values    The initial values.
+     * @return the data line.
+     */
+    public static Instruction data (String label, String directive, Object... values) {
+
+	return new Instruction(Kind.DATA, label, directive, values);
+
+    } // data ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty line.
+     *
+     * @return the blank line.
+     */
+    public static Instruction blank () {
+
+	return new Instruction(Kind.BLANK, null, null, null);
+
+    } // blank ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Attach a comment to the end of this line.
+     *
+     * @param text The comment text.
+     * @return this line.
+     */
+    public Instruction comment (String text) {
+
+	_comment = text;
+	return this;
+
+    } // comment ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the comment attached to this line.
+     *
+     * @return the comment; <code>null</code> if there is none.
+     */
+    public String getComment () {
+
+	return _comment;
+
+    } // getComment ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Write this line, including its terminating newline.
+     *
+     * @param out The destination for the text.
+     * @throws IOException if the destination cannot be written.
+     */
+    public void appendTo (Appendable out) throws IOException {
+
+	switch (_kind) {
+
+	case INSTRUCTION:
+	case DIRECTIVE:
+	    out.append('\t').append(_opcode);
+	    appendOperands(out, ",\t");
+	    break;
+
+	case LABEL:
+	    out.append(_label).append(':');
+	    break;
+
+	case COMMENT:
+	    out.append("\t; ").append(_opcode);
+	    break;
+
+	case DATA:
+	    out.append(_label).append(":\t").append(_opcode);
+	    appendOperands(out, ", ");
+	    break;
+
+	case BLANK:
+	    break;
+
+	}
+
+	if (_comment != null) {
+	    // Short instructions get an extra tab so that their comments line up with those of two-operand instructions.
+	    out.append(_kind == Kind.INSTRUCTION && _operands.length < 2 ? "\t\t; " : "\t; ").append(_comment);
+	}
+	out.append('\n');
+
+    } // appendTo ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private void appendOperands (Appendable out, String separator) throws IOException {
+
+	for (int i = 0; i < _operands.length; i += 1) {
+	    out.append(i == 0 ? "\t" : separator).append(_operands[i]);
+	}
+
+    } // appendOperands ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private static String[] toStrings (Object[] objects) {
+
+	if (objects == null || objects.length == 0) {
+	    return _noOperands;
+	}
+
+	String[] strings = new String[objects.length];
+	for (int i = 0; i < objects.length; i += 1) {
+	    strings[i] = String.valueOf(objects[i]);
+	}
+	return strings;
+
+    } // toStrings ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	StringBuilder text = new StringBuilder();
+	try {
+	    appendTo(text);
+	} catch (IOException e) {
+	    // A StringBuilder does not throw.
+	}
+	text.setLength(text.length() - 1);
+	return text.toString();
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class Instruction
+// =================================================================================================================================
@@ -68,18 +68,19 @@ public class IntegerLiteral extends Literal {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this expression.
+     * Lower this expression into the intermediate representation.
      *
-     * @return the generated assembly code.
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the literal.
      */
-    public String toAssembly () {
+    public IRValue toIRValue (IRBuilder ir) {
 
-	// Evaluating a literal involves pushing its value onto the stack.
-	return "\tpush\t" + _value + '\n';
-	
-    } // toAssembly ()
+	// A literal is simply a constant.
+	return ir.constant(_value);
+
+    } // toIRValue ()
     // =============================================================================================================================
-    
+
 
 
     // =============================================================================================================================
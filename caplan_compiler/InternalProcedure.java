@@ -1,8 +1,11 @@
 // =================================================================================================================================
 // IMPORTS
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -23,15 +26,7 @@ public class InternalProcedure extends Procedure {
     public final List<VariableDeclaration> _locals;
 
     /** The body statement. */
-    public final Statement _body;
-
-    /** The size of a single variable on the stack, in bytes. */
-    private final int VARIABLE_SIZE_BYTES = Utility._bytesPerWord;
-
-    /** Per C calling conventions, the first 6 arguments go in these registers, in order. */
-    private final String[] ARGUMENT_REGISTERS = {
-        "rdi", "rsi", "rdx", "rcx", "r8", "r9"
-    };    
+    public Statement _body;
     // =============================================================================================================================
 
 
@@ -58,9 +53,8 @@ public class InternalProcedure extends Procedure {
 	for (Declaration variable : _locals) {
 	    Declaration oldVariable = _localsTable.put(variable._name, variable);
 	    if (oldVariable != null) {
-		Utility.error("Duplicate variable declaration\nPrevious declaration " +
-			       Utility.positionToLineColumn(oldVariable._position) + oldVariable._position + ")",
-			      variable._position);
+		Utility.error("Duplicate variable declaration", variable._position,
+			      "Previous declaration", oldVariable._position);
 	    }
 	}
 	
@@ -132,60 +126,129 @@ public class InternalProcedure extends Procedure {
     
     // =============================================================================================================================
     /**
-     * Generate assembly for this procedure.
+     * Fold constant expressions in the body.
+     */
+    public void fold () {
+
+	_body = _body.fold();
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which the body refers.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	_body.findReferences(references);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove the local variables to which the body does not refer.  Parameters are kept, since callers still pass them.
+     *
+     * @return the local variables removed.
+     */
+    public List<VariableDeclaration> removeUnusedLocals () {
+
+	Set<Declaration> references = new HashSet<Declaration>();
+	_body.findReferences(references);
+
+	List<VariableDeclaration> unused = new ArrayList<VariableDeclaration>();
+	for (VariableDeclaration local : _locals) {
+	    if (!references.contains(local)) {
+		unused.add(local);
+	    }
+	}
+	_locals.removeAll(unused);
+	_localsTable.values().removeAll(unused);
+	return unused;
+
+    } // removeUnusedLocals ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this procedure into the intermediate representation.
      *
-     * @return the code-segment assembly for this procedure.
+     * @param inliner The policy by which calls are inlined; <code>null</code> to inline none.
+     * @return the function.
      */
-    public String toAssembly () {
+    public IRFunction toIR (Inliner inliner) {
 
-        // Create function entry label.
-        String assembly = _name + ":\n";
+	// Execution falls through to a return if there is no explicit return statement at the end.  It is assumed that the
+	// verifier has confirmed that this does not occur if a value must be returned.
+	IRBuilder ir = new IRBuilder(_name, _parameters, _locals, inliner);
+	_body.toIR(ir);
+	return ir.finish();
 
-	// Preserve the base pointer.
-	assembly += "\n\t; Callee prologue (" + _name + ")\n";
-	assembly += "\tpush\trbp\t\t; Preserve rbp\n";
+    } // toIR ()
+    // =============================================================================================================================
 
-	// Push the locals and parameters.
-        int stackVariableTotalSize = (_locals.size() + _parameters.size()) * VARIABLE_SIZE_BYTES;
-        int currentOffset = stackVariableTotalSize;
-        for (int i = _locals.size() - 1; i >= 0; i--) { // Reverse order because stack is LIFO
-            LocalVariableDecl var = (LocalVariableDecl)_locals.get(i);
-            currentOffset -= VARIABLE_SIZE_BYTES;
-            var.setOffset(currentOffset);
-            Utility.debug(2, "Program.toAssembly(): Pushing " + var + " at +" + currentOffset);
-            assembly += "\tpush\tqword 0\t\t; Initialize variable " + var + " to 0\n";
-        }
 
-        for (int i = _parameters.size() - 1; i >= 0; i--) { // Reverse order because stack is LIFO
-            LocalVariableDecl var = (LocalVariableDecl)_parameters.get(i);
-            currentOffset -= VARIABLE_SIZE_BYTES;
-            var.setOffset(currentOffset);
-            Utility.debug(2, "Program.toAssembly(): Pushing " + var + " at +" + currentOffset);
 
-            // Get which register contains this argument's initial value
-            String register = ARGUMENT_REGISTERS[i];
+    // =============================================================================================================================
+    /**
+     * Lower this procedure into the intermediate representation, inlining calls as the program's inliner decides, then move
+     * loop-invariant code out of its loops and remove redundant computations.
+     *
+     * @return the optimized function.
+     */
+    public IRFunction lower () {
 
-            assembly += "\tpush\t" + register + "\t\t; Initialize variable " + var + " to arg #" + i + " from register " + register + "\n";
-        }
+	IRFunction function = toIR(getProgram().getInliner());
+	int        hoisted  = new LoopInvariantMotion(function).hoist();
+	if (hoisted > 0) {
+	    getProgram().getDiagnostics().debug(1, () -> "Loops " + _name + ": " + hoisted + " invariant instructions hoisted");
+	}
+	int        removed  = new ValueNumbering(function).eliminate();
+	if (removed > 0) {
+	    getProgram().getDiagnostics().debug(1, () -> "Values " + _name + ": " + removed + " redundant instructions removed");
+	}
+	return function;
 
-	// Move the base pointer into this fram.
-        assembly += "\tmov\trbp,\trsp\t; Update base pointer\n\n\t ; Callee body (" + _name + ")";
+    } // lower ()
+    // =============================================================================================================================
 
-        // Generate assembly code for the procedure body
-        assembly += _body.toAssembly();
 
-        // Execution falls through to return label if there is no explicit return statement.
-        // It is assumed that the verifier has confirmed that this does not occur if a value must be returned.
-        assembly += "return_" + _name + ":\n";
 
-        assembly += ( "\n\t; Callee epilogue (" + _name + ")\n" +
-                      "\tmov\trsp,\trbp\t; Pop all temp results\n" +
-                      "\tadd\trsp,\t" + stackVariableTotalSize + "\t; Pop variables\n" +
-                      "\tpop\trbp\t\t; Restore base pointer\n" +
-                      "\tret\n"
-        );
+    // =============================================================================================================================
+    /**
+     * Generate assembly for this procedure from its function, as lowered by <code>lower()</code>.
+     *
+     * @param function The function.
+     * @param out      The destination for the code-segment assembly.
+     */
+    public void toAssembly (IRFunction function, AssemblyWriter out) {
+
+	getProgram().getDiagnostics().debug(2, () -> "InternalProcedure.toAssembly(): Intermediate representation:\n" + function);
+	new CodeGenerator(function).toAssembly(out);
+
+    } // toAssembly ()
+    // =============================================================================================================================
+
 
-        return assembly;
+
+    // =============================================================================================================================
+    /**
+     * Generate assembly for this procedure: lower it, then translate the result.
+     *
+     * @param out The destination for the code-segment assembly.
+     */
+    public void toAssembly (AssemblyWriter out) {
+
+	toAssembly(lower(), out);
 
     } // toAssembly ()
     // =============================================================================================================================
@@ -196,12 +259,12 @@ public class InternalProcedure extends Procedure {
     /**
      * Generate assembly for any statically allocated elements in this procedure.
      *
-     * @return the statics-segment assembly for this procedure.
+     * @param out The destination for the statics-segment assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
 	// Define any statics contained in the procedure body.
-	return _body.toStatics();
+	_body.toStatics(out);
 
     } // toStatics ();
     // =============================================================================================================================
@@ -44,35 +44,26 @@ public class LessThanOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	return fold_binary(operation, operands, (x, y) -> x < y ? 1 : 0);
 
-        // Generate assembly for the two operands; both get pushed to the stack
-        assembly = operands[0].toAssembly() + operands[1].toAssembly();
+    } // fold ()
+    // =============================================================================================================================
 
-        // Pop the operand result into registers B and C (which are in reverse order on the stack).  
-        // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-        assembly += "\tpop\trcx\n\tpop\trbx\n";
 
-	// Compare B & C; clear A, then set its lowest byte based on the result of the comparison.
-	assembly += ( """
-		      \txor\trax,\trax\t; Clear A
-		      \tcmp\trbx,\trcx\t; Compare operands
-		      \tsetl\tal\t\t; A = ( B < C ? 1 : 0 )
-		      """ );
 
-        // Push the result.
-        assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        return assembly;
-	
-    } // toAssembly ()
+	return toIR_binary(ir, IRInstruction.Opcode.LT, operands[0], operands[1]);
+
+    } // toIR ()
     // =============================================================================================================================
-    
 
-    
-    
+
+
 // =================================================================================================================================
 } // class LessThanOperator
 // =================================================================================================================================
@@ -1,17 +1,6 @@
-// =================================================================================================================================
-// IMPORTS
-
-import java.io.InputStream;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-// =================================================================================================================================
-
-
-
 // =================================================================================================================================
 /**
- * Perform lexical on an input, generating a sequence of <code>Token</code>s.
+ * Perform lexical analysis on an input, generating a buffer of tokens.
  */
 public class Lexer {
 // =================================================================================================================================
@@ -22,24 +11,29 @@ public class Lexer {
     // DATA MEMBERS
 
     /** The sequence of characters. */
-    private List<Character> _source;
+    private final SourceBuffer _source;
+
+    /** The diagnostics of the compilation. */
+    private final Diagnostics  _diagnostics;
 
     /** The position within the source during a scan. */
-    private int             _position;
+    private int                _position;
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
     /**
-     * Create a lexer for a particular input stream of characters.  Pre-read the full input, preparing it to be scanned.
+     * Create a lexer for a particular source.
      *
-     * @param source The input character sequence that forms the source code.
+     * @param source      The buffer holding the source code.
+     * @param diagnostics The diagnostics of the compilation.
      */
-    public Lexer (List<Character> source) {
+    public Lexer (SourceBuffer source, Diagnostics diagnostics) {
 
-	_source   = source;
-	_position = 0;
+	_source      = source;
+	_diagnostics = diagnostics;
+	_position    = 0;
 
     } // Lexer ()
     // =============================================================================================================================
@@ -48,168 +42,122 @@ public class Lexer {
 
     // =============================================================================================================================
     /**
-     * Attempt to scan the sequence of characters into a sequence of tokens.
+     * Attempt to scan the sequence of characters into a sequence of tokens.  Whitespace and comments separate tokens but are not
+     * tokens themselves, so they are skipped.
      *
-     * @return A list of <code>Token</code>s found.
+     * @return A buffer of the tokens found.
      */
-    public List<Token> scan () {
+    public TokenBuffer scan () {
 
-	// Prepare to move through the character stream.
-	List<Token> tokens = new ArrayList<Token>();
+	// Prepare to move through the character stream.  Tokens average a few characters each, so size the buffer accordingly.
+	TokenBuffer tokens = new TokenBuffer(_source, _source.length() / 4);
 
 	// Scan the input.  Track positioning within the input.
 	_position = 0;
 	while (!endOfSource()) {
 
-	    // Useful locals during scanning.
-	    int     startPosition = -1;
+	    // Useful locals during scanning.  By default, a token spans from its first character through the current position.
+	    int        startPosition = _position;
+	    int        tokenStart    = -1;
+	    int        tokenEnd      = -1;
+	    Token.Type type          = null;
 
 	    // Grab the next character.
-	    char   c     = _source.get(_position);
-	    String text  = "";
-	    Token  token = null;
+	    char c = _source.charAt(_position);
 
 	    switch (c) {
 
 	    // Separator?
 	    case ',':
-		token = new Token(_position, Token.Type.COMMA);
+		type = Token.Type.COMMA;
 		break;
 		
-	    // Whitespace?
+	    // Whitespace?  Trivia.
 	    case ' ':
-		token = new Token(_position, Token.Type.SPACE);
-		break;
 	    case '\t':
-		token = new Token(_position, Token.Type.TAB);
-		break;
 	    case '\n':
 	    case '\r':
-		token = new Token(_position, Token.Type.NEWLINE);
 		break;
 	    
 	    // Open-closes?
 	    case '(':
-		token = new Token(_position, Token.Type.OPENPAREN);
+		type = Token.Type.OPENPAREN;
 		break;
 	    case ')':
-		token = new Token(_position, Token.Type.CLOSEPAREN);
+		type = Token.Type.CLOSEPAREN;
 		break;
 	    case '[':
-		token = new Token(_position, Token.Type.OPENBRACKET);
+		type = Token.Type.OPENBRACKET;
 		break;
 	    case ']':
-		token = new Token(_position, Token.Type.CLOSEBRACKET);
+		type = Token.Type.CLOSEBRACKET;
 		break;
 	    case '{':
-		token = new Token(_position, Token.Type.OPENBRACE);
+		type = Token.Type.OPENBRACE;
 		break;
 	    case '}':
-		token = new Token(_position, Token.Type.CLOSEBRACE);
+		type = Token.Type.CLOSEBRACE;
 		break;
 
 	    // Operator?
 	    case '@':
-		token = new Token(_position, Token.Type.AT);
+		type = Token.Type.AT;
 		break;
-	    case '!': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '=' ) {
-		    token = new Token(_position - 1, Token.Type.BANGEQUALS);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position, Token.Type.AT);
-		}
+	    case '!':
+		type = scanNext('=') ? Token.Type.BANGEQUALS : Token.Type.BANG;
 		break;
-	    }
 	    case '~':
-		token = new Token(_position, Token.Type.TILDE);
+		type = Token.Type.TILDE;
 		break;
 	    case '^':
-		token = new Token(_position, Token.Type.CARAT);
+		type = Token.Type.CARAT;
 		break;
 	    case '+':
-		token = new Token(_position, Token.Type.PLUS);
+		type = Token.Type.PLUS;
 		break;
 	    case '-':
-		token = new Token(_position, Token.Type.DASH);
+		type = Token.Type.DASH;
 		break;
 	    case '*':
-		token = new Token(_position, Token.Type.STAR);
+		type = Token.Type.STAR;
 		break;
 	    case '/':
-		token = new Token(_position, Token.Type.SLASH);
+		type = Token.Type.SLASH;
 		break;
 	    case '%':
-		token = new Token(_position, Token.Type.PERCENT);
+		type = Token.Type.PERCENT;
 		break;
-	    case '=': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '=' ) {
-		    token = new Token(_position - 1, Token.Type.DOUBLEEQUALS);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position, Token.Type.EQUALS);
-		}
+	    case '=':
+		type = scanNext('=') ? Token.Type.DOUBLEEQUALS : Token.Type.EQUALS;
 		break;
-	    }
-	    case '<': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '=' ) {
-		    token = new Token(_position - 1, Token.Type.LEFTANGLEEQUALS);
-		} else if (c == '<') {
-		    token = new Token(_position - 1, Token.Type.DOUBLELEFTANGLE);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position, Token.Type.LEFTANGLE);
-		}
+	    case '<':
+		type = ( scanNext('=') ? Token.Type.LEFTANGLEEQUALS :
+			 scanNext('<') ? Token.Type.DOUBLELEFTANGLE :
+			                 Token.Type.LEFTANGLE );
 		break;
-	    }
-	    case '>': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '=' ) {
-		    token = new Token(_position - 1, Token.Type.RIGHTANGLEEQUALS);
-		} else if (c == '>') {
-		    token = new Token(_position - 1, Token.Type.DOUBLERIGHTANGLE);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position, Token.Type.RIGHTANGLE);
-		}
+	    case '>':
+		type = ( scanNext('=') ? Token.Type.RIGHTANGLEEQUALS :
+			 scanNext('>') ? Token.Type.DOUBLERIGHTANGLE :
+			                 Token.Type.RIGHTANGLE );
 		break;
-	    }
-	    case '|': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '|' ) {
-		    token = new Token(_position - 1, Token.Type.DOUBLEBAR);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position - 1, Token.Type.BAR);
-		}
+	    case '|':
+		type = scanNext('|') ? Token.Type.DOUBLEBAR : Token.Type.BAR;
 		break;
-	    }
-	    case '&': {
-		_position += 1;
-		if ( !endOfSource() && (c = _source.get(_position)) == '&' ) {
-		    token = new Token(_position - 1, Token.Type.DOUBLEAMPERSAND);
-		} else {
-		    _position -= 1;
-		    token = new Token(_position - 1, Token.Type.AMPERSAND);
-		}
+	    case '&':
+		type = scanNext('&') ? Token.Type.DOUBLEAMPERSAND : Token.Type.AMPERSAND;
 		break;
-	    }
 
 	    // Comment?
 	    case '#': {
 		    
 		// Read characters until the end-of-line is reached.
-		startPosition = _position;
 		while (true) {
 
 		    _position += 1;
 		    if (endOfSource()) {
 			Utility.error("Input ended mid-comment", _position);
 		    }
-		    c = _source.get(_position);
+		    c = _source.charAt(_position);
 		    if (c == '\n') {
 			break;
 		    }
@@ -217,7 +165,7 @@ public class Lexer {
 		}
 
 		// No token to create.
-		Utility.debug(3, "Comment scanned from @" + startPosition + " to @" + _position);
+		_diagnostics.debug(3, () -> "Comment scanned from @" + startPosition + " to @" + _position);
 		break;
 		
 	    }
@@ -234,23 +182,16 @@ public class Lexer {
 	    case '8':
 	    case '9': {
 
-		startPosition = _position;
-
-		// Add the leading digit to the token.
-		text += c;
-		
 		// Read any additional digits, ending the token with the source's end or any valid integer terminator (whitespace,
 		// symbol).
 		while (true) {
 		    _position += 1;
-		    if ( endOfSource() || !isAlphanumeric(c = _source.get(_position)) ) {
+		    if ( endOfSource() || !isAlphanumeric(c = _source.charAt(_position)) ) {
 			_position -=1;
-			token = new Token(text, startPosition, Token.Type.INTEGER);
+			type = Token.Type.INTEGER;
 			break;
 		    }
-		    if (isDigit(c)) {
-			text += c;
-		    } else {
+		    if (!isDigit(c)) {
 			Utility.error("Malformed integer (invalid digit)", _position);
 		    }
 		}
@@ -263,16 +204,18 @@ public class Lexer {
 	    case '\'': {
 
 		// Yes.  Scan the next character.
-		startPosition = _position;
-		text = "" + scanChar();
+		scanChar();
 
 		// Verify that the closing single-quote is there.
 		_position += 1;
-		if ( endOfSource() || _source.get(_position) != '\'' ) {
+		if ( endOfSource() || _source.charAt(_position) != '\'' ) {
 		    Utility.error("Quoted character incomplete", startPosition);
 		}
-		
-		token = new Token(text, startPosition + 1, Token.Type.CHAR);
+
+		// The token is the (possibly escaped) character between the quotes.
+		type       = Token.Type.CHAR;
+		tokenStart = startPosition + 1;
+		tokenEnd   = _position;
 		break;
 		
 	    }
@@ -280,23 +223,10 @@ public class Lexer {
 	    // String literal?
 	    case '"': {
 
-		// Read any and all characters until an (unescaped) quote is encountered.  The delimiting quotes themselves are not
-		// part of the token.
-		startPosition = _position;
-		while (true) {
-
-		    // Grab the next character...
-		    c = scanChar();
-
-		    // Terminate the string if this was the closing quote.
-		    if (c == '"') break;
-
-		    // Add the character to the string.
-		    text += c;
-
-		}
-
-		token = new Token(text, startPosition, Token.Type.STRING);
+		// Read any and all characters until an (unescaped) quote is encountered.  The delimiting quotes are part of the
+		// token's span, but not of its text.
+		while (scanChar() != '"');
+		type = Token.Type.STRING;
 		break;
 		
 	    }
@@ -308,61 +238,26 @@ public class Lexer {
 		// Start of a name?
                 if ( isAlphanumeric(c) || c == '_' ) {
 
-                    // Adopt the first character as part of the token.
-                    startPosition = _position;
-                    text += c;
-
                     // Read any additional characters, ending the token with the source's end or any non-alphanumeric character
                     // (whitespace or symbol).
-                    while (true) {
-			
+                    do {
                         _position += 1;
-                        if ( endOfSource() || !isNameSymbol(c = _source.get(_position)) ) {
-
-			    // We reached the end of whatever this name is.
-                            _position -= 1;
-
-                            // If this identifier is a keyword, create that specialized token; otherwise create it as a generic
-                            // identifier.
-                            switch (text) {
-			    case "false":
-			    case "true":
-				token = new Token(text, startPosition, Token.Type.BOOLEAN);
-				break;
-			    case "sizeof":
-				token = new Token(text, startPosition, Token.Type.SIZEOF);
-				break;
-			    case "if":
-				token = new Token(text, startPosition, Token.Type.IF);
-				break;
-			    case "else":
-				token = new Token(text, startPosition, Token.Type.ELSE);
-				break;
-			    case "while":
-				token = new Token(text, startPosition, Token.Type.WHILE);
-				break;
-			    case "return":
-				token = new Token(text, startPosition, Token.Type.RETURN);
-				break;
-			    case "proc":
-				token = new Token(text, startPosition, Token.Type.PROC);
-				break;
-			    case "extern":
-				token = new Token(text, startPosition, Token.Type.EXTERN);
-				break;
-			    case "etcetera":
-				token = new Token(text, startPosition, Token.Type.ETCETERA);
-				break;
-			    default:
-				token = new Token(text, startPosition, Token.Type.NAME);
-			    }
-			    break;
-
-                        }
-
-                        text += c;
-			
-                    }
+                    } while ( !endOfSource() && isNameSymbol(_source.charAt(_position)) );
+		    _position -= 1;
+
+		    // If this identifier is a keyword, create that specialized token; otherwise create it as a generic identifier.
+		    type = switch (_source.subSequence(startPosition, _position + 1)) {
+		    case "false", "true" -> Token.Type.BOOLEAN;
+		    case "sizeof"        -> Token.Type.SIZEOF;
+		    case "if"            -> Token.Type.IF;
+		    case "else"          -> Token.Type.ELSE;
+		    case "while"         -> Token.Type.WHILE;
+		    case "return"        -> Token.Type.RETURN;
+		    case "proc"          -> Token.Type.PROC;
+		    case "extern"        -> Token.Type.EXTERN;
+		    case "etcetera"      -> Token.Type.ETCETERA;
+		    default              -> Token.Type.NAME;
+		    };
 
                 } else {
 
@@ -372,13 +267,18 @@ public class Lexer {
                 }
 
 	    } // switch (c)
-	    
-	    // If a token was created (not a comment), add it to the list scanned.
-	    if (token != null) {
-		tokens.add(token);
-	    }
+
+	    // Move past the last character examined.
 	    _position += 1;
 
+	    // If a token was found (not whitespace or a comment), add it to the buffer.
+	    if (type != null) {
+		if (tokenStart == -1) {
+		    tokenStart = startPosition;
+		    tokenEnd   = _position;
+		}
+		tokens.add(type, tokenStart, tokenEnd - tokenStart);
+	    }
 
 	} // while (!endOfSource())
 
@@ -389,6 +289,26 @@ public class Lexer {
 
 
 
+    // =============================================================================================================================
+    /**
+     * If the character after the current position is the one expected, advance to it.
+     *
+     * @param expected The character that continues a two-character token.
+     * @return <code>true</code> if the expected character was there and has been consumed; <code>false</code> otherwise.
+     */
+    private boolean scanNext (char expected) {
+
+	if ( _position + 1 < _source.length() && _source.charAt(_position + 1) == expected ) {
+	    _position += 1;
+	    return true;
+	}
+	return false;
+
+    } // scanNext ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Scan the next character as a literal.  If it is escaped, identify the correct underlying character value.
@@ -399,7 +319,10 @@ public class Lexer {
 
 	// Get the next character.
 	_position += 1;
-        char c = _source.get(_position);
+	if (endOfSource()) {
+	    Utility.error("Input ended mid-literal", _position);
+	}
+        char c = _source.charAt(_position);
 
 	// Is it an escape?
         if (c != '\\') {
@@ -414,47 +337,74 @@ public class Lexer {
         if (endOfSource()) {
             Utility.error("Incomplete escaped-character sequence at end of input", _position);
         }
-        c = _source.get(_position);
+        c = _source.charAt(_position);
 
         // Is this a special escape sequence?
+	int escaped = escape(c);
+	if (escaped == -1) {
+	    Utility.error("Invalid escape character: " + c, _position);
+	}
+
+        return (char)escaped;
+
+    } // scanChar ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Identify the character value denoted by an escape sequence.
+     *
+     * @param c The character that follows the backslash.
+     * @return the value of the escaped character; -1 if the escape sequence is invalid.
+     */
+    private static int escape (char c) {
+
         switch (c) {
-	case '0':
-	    c = 0x00; // Null character
-	    break;
-        case 'a':
-            c = 0x07; // Alert
-            break;
-        case 'b':
-            c = 0x08; // Backspace
-            break;
-        case 'e':
-            c = 0x1b; // Escape
-            break;
-        case 'f':
-            c = 0x0c; // Formfeed page-break
-            break;
-        case 'n':
-            c = 0x0a; // Newline
-            break;
-        case 'r':
-            c = 0x0d; // Carriage return
-            break;
-        case 't':
-            c = 0x09; // Horizontal tab
-            break;
-        case 'v':
-            c = 0x0b; // Vertical tab
-            break;
+	case '0':  return 0x00; // Null character
+        case 'a':  return 0x07; // Alert
+        case 'b':  return 0x08; // Backspace
+        case 'e':  return 0x1b; // Escape
+        case 'f':  return 0x0c; // Formfeed page-break
+        case 'n':  return 0x0a; // Newline
+        case 'r':  return 0x0d; // Carriage return
+        case 't':  return 0x09; // Horizontal tab
+        case 'v':  return 0x0b; // Vertical tab
 	case '\\':
-	case '\'':
-	    break;    // Itself -- nothing to do.
-        default:
-	    Utility.error("Invalid escape character: " + c, _position);
+	case '\'': return c;    // Itself
+        default:   return -1;
         }
 
-        return c;
+    } // escape ()
+    // =============================================================================================================================
 
-    } // scanChar ()
+
+
+    // =============================================================================================================================
+    /**
+     * Decode the text of a character or string literal that has already been scanned (and so is known to be well formed).
+     *
+     * @param source The source containing the literal.
+     * @param start  The position of the literal's first character, after any opening quote.
+     * @param end    The position after the literal's last character, before any closing quote.
+     * @return the literal's value, with escape sequences replaced by the characters they denote.
+     */
+    public static String decode (SourceBuffer source, int start, int end) {
+
+	StringBuilder text = new StringBuilder(end - start);
+	for (int i = start; i < end; i += 1) {
+	    char c = source.charAt(i);
+	    if (c == '\\') {
+		i += 1;
+		c = (char)escape(source.charAt(i));
+	    }
+	    text.append(c);
+	}
+
+	return text.toString();
+
+    } // decode ()
     // =============================================================================================================================
 
 
@@ -462,7 +412,7 @@ public class Lexer {
     // =============================================================================================================================
     private boolean endOfSource () {
 
-	return _position >= _source.size();
+	return _position >= _source.length();
 
     } // endOfSource ()
     // =============================================================================================================================
@@ -0,0 +1,357 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Assigns registers to the temporaries of one function by linear scan (after Poletto and Sarkar).
+ *
+ * The instructions are numbered in layout order, the temporaries live into and out of each block are found by the usual
+ * backward dataflow, and each temporary is given one interval, from the first position at which it is live to the last.  A phi
+ * defines its value at the start of its block and uses each operand at the end of the matching predecessor; a parameter is
+ * defined at the start of the entry block, where the prologue puts it.  The intervals are then visited in order of their
+ * starts, each taking a register that is free over its whole span.  An interval that spans a call may only take a register
+ * that the callee preserves.  When no suitable register is free, whichever of the new interval and the active ones that could
+ * give it a register ends last is spilled, and lives in memory for the whole of its span.
+ */
+public class LinearScan {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The function whose temporaries are allocated. */
+    private final IRFunction                        _function;
+
+    /** The temporaries that need locations. */
+    private final Set<IRValue>                      _values;
+
+    /** The comparisons made as part of the branches that follow them, and so reading their operands at the branch. */
+    private final Set<IRInstruction>                _fused;
+
+    /** The calls after which nothing survives (tail calls). */
+    private final Set<IRInstruction>                _tailCalls;
+
+    /** The register that each of some temporaries would best have, such as a parameter's incoming register. */
+    private final Map<IRValue, Register>            _hints;
+
+    /** The interval of each temporary that needs a location. */
+    private final Map<IRValue, Interval>            _intervals;
+
+    /** The position of each call that returns to the function. */
+    private final List<Integer>                     _calls;
+
+    /** The callee-saved registers allocated, which the function must save and restore. */
+    private final EnumSet<Register>                 _preserved;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The positions over which one temporary is live.
+     */
+    private static final class Interval {
+
+	/** The temporary. */
+	final IRValue _value;
+
+	/** The first position at which the temporary is live. */
+	int           _start;
+
+	/** The last position at which the temporary is live. */
+	int           _end;
+
+	/** Whether a call is made while the temporary is live. */
+	boolean       _spansCall;
+
+	/** The register given to the temporary, if any. */
+	Register      _register;
+
+	Interval (IRValue value) {
+	    _value = value;
+	    _start = Integer.MAX_VALUE;
+	    _end   = Integer.MIN_VALUE;
+	}
+
+	void include (int position) {
+	    _start = Math.min(_start, position);
+	    _end   = Math.max(_end, position);
+	}
+
+    } // class Interval
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Prepare to allocate registers.
+     *
+     * @param function  The function, ready for code generation (with its critical edges split).
+     * @param values    The temporaries that need locations: those that are used, apart from the results of fused comparisons.
+     * @param fused     The comparisons made as part of the branches that follow them.
+     * @param tailCalls The tail calls.
+     */
+    public LinearScan (IRFunction function, Set<IRValue> values, Set<IRInstruction> fused, Set<IRInstruction> tailCalls) {
+
+	_function  = function;
+	_values    = values;
+	_fused     = fused;
+	_tailCalls = tailCalls;
+	_hints     = new HashMap<IRValue, Register>();
+	_intervals = new HashMap<IRValue, Interval>();
+	_calls     = new ArrayList<Integer>();
+	_preserved = EnumSet.noneOf(Register.class);
+
+    } // LinearScan ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Suggest a register for a temporary.  The temporary gets it if it is free when the temporary's interval starts, and if the
+     * interval spans no call.
+     *
+     * @param value    The temporary.
+     * @param register The register.
+     */
+    public void hint (IRValue value, Register register) {
+
+	if (RegisterPool.isAllocatable(register)) {
+	    _hints.put(value, register);
+	}
+
+    } // hint ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Allocate the registers.
+     *
+     * @return the register of each temporary that has one; the others must be kept in memory.
+     */
+    public Map<IRValue, Register> allocate () {
+
+	buildIntervals();
+
+	List<Interval> intervals = new ArrayList<Interval>(_intervals.values());
+	intervals.sort(Comparator.comparingInt((Interval interval) -> interval._start)
+		       .thenComparingLong(interval -> interval._value._number));
+
+	RegisterPool   registers = new RegisterPool();
+	List<Interval> active    = new ArrayList<Interval>();
+	for (Interval current : intervals) {
+
+	    // Free the registers of the intervals that end where this one starts, or before.
+	    for (Interval interval : new ArrayList<Interval>(active)) {
+		if (interval._end <= current._start) {
+		    registers.free(interval._register);
+		    active.remove(interval);
+		}
+	    }
+
+	    Register hint = _hints.get(current._value);
+	    if (hint != null && !current._spansCall && registers.isFree(hint)) {
+		registers.reserve(hint);
+		current._register = hint;
+	    } else {
+		current._register = registers.allocate(current._spansCall);
+	    }
+	    if (current._register != null) {
+		active.add(current);
+		continue;
+	    }
+
+	    // Spill whichever ends last: this interval, or an active one whose register it could use.
+	    Interval victim = null;
+	    for (Interval interval : active) {
+		if ((!current._spansCall || RegisterPool.isPreserved(interval._register)) &&
+		    (victim == null || interval._end > victim._end)) {
+		    victim = interval;
+		}
+	    }
+	    if (victim != null && victim._end > current._end) {
+		current._register = victim._register;
+		victim._register  = null;
+		active.remove(victim);
+		active.add(current);
+	    }
+
+	}
+
+	Map<IRValue, Register> allocation = new HashMap<IRValue, Register>();
+	for (Interval interval : intervals) {
+	    if (interval._register != null) {
+		allocation.put(interval._value, interval._register);
+		if (RegisterPool.isPreserved(interval._register)) {
+		    _preserved.add(interval._register);
+		}
+	    }
+	}
+	return allocation;
+
+    } // allocate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the callee-saved registers allocated, which the function must save on entry and restore on exit.
+     *
+     * @return the registers, in a fixed order.
+     */
+    public List<Register> getPreserved () {
+
+	return new ArrayList<Register>(_preserved);
+
+    } // getPreserved ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Number the instructions, find the temporaries live into and out of each block, and form the interval of each temporary.
+     */
+    private void buildIntervals () {
+
+	// Number the blocks and instructions in layout order.  Phis and parameters take the position of the block's start.
+	List<BasicBlock>                  blocks    = _function.getBlocks();
+	Map<BasicBlock, Integer>          starts    = new HashMap<BasicBlock, Integer>();
+	Map<BasicBlock, Integer>          ends      = new HashMap<BasicBlock, Integer>();
+	Map<IRInstruction, Integer>       positions = new HashMap<IRInstruction, Integer>();
+	int                               position  = 0;
+	for (BasicBlock block : blocks) {
+	    starts.put(block, position);
+	    for (IRInstruction instruction : block._instructions) {
+		if (instruction._opcode == IRInstruction.Opcode.PHI || instruction._opcode == IRInstruction.Opcode.PARAMETER) {
+		    positions.put(instruction, starts.get(block));
+		} else {
+		    position = position + 1;
+		    positions.put(instruction, position);
+		    if (instruction._opcode == IRInstruction.Opcode.CALL && !_tailCalls.contains(instruction)) {
+			_calls.add(position);
+		    }
+		}
+	    }
+	    ends.put(block, position);
+	    position = position + 1;
+	}
+
+	// The temporaries used in each block before any definition there (apart from phi operands), and those defined there.
+	Map<BasicBlock, Set<IRValue>> used    = new HashMap<BasicBlock, Set<IRValue>>();
+	Map<BasicBlock, Set<IRValue>> defined = new HashMap<BasicBlock, Set<IRValue>>();
+	for (BasicBlock block : blocks) {
+	    Set<IRValue> uses = new HashSet<IRValue>();
+	    Set<IRValue> defs = new HashSet<IRValue>();
+	    for (IRInstruction instruction : block._instructions) {
+		if (instruction._opcode != IRInstruction.Opcode.PHI) {
+		    for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+			IRValue operand = instruction.getOperand(i);
+			if (_values.contains(operand) && !defs.contains(operand)) {
+			    uses.add(operand);
+			}
+		    }
+		}
+		if (_values.contains(instruction._result)) {
+		    defs.add(instruction._result);
+		}
+	    }
+	    used.put(block, uses);
+	    defined.put(block, defs);
+	}
+
+	// Solve for the temporaries live into and out of each block, visiting the blocks backward until nothing changes.
+	Map<BasicBlock, Set<IRValue>> liveIn  = new HashMap<BasicBlock, Set<IRValue>>();
+	Map<BasicBlock, Set<IRValue>> liveOut = new HashMap<BasicBlock, Set<IRValue>>();
+	for (BasicBlock block : blocks) {
+	    liveIn.put(block, new HashSet<IRValue>());
+	    liveOut.put(block, new HashSet<IRValue>());
+	}
+	boolean changed = true;
+	while (changed) {
+	    changed = false;
+	    for (int b = blocks.size() - 1; b >= 0; b -= 1) {
+		BasicBlock   block = blocks.get(b);
+		Set<IRValue> out   = liveOut.get(block);
+		for (BasicBlock successor : block.getSuccessors()) {
+		    changed = out.addAll(liveIn.get(successor)) || changed;
+		    int edge = successor._predecessors.indexOf(block);
+		    for (IRInstruction phi : successor._instructions) {
+			if (phi._opcode != IRInstruction.Opcode.PHI) {
+			    break;
+			}
+			if (_values.contains(phi.getOperand(edge))) {
+			    changed = out.add(phi.getOperand(edge)) || changed;
+			}
+		    }
+		}
+		Set<IRValue> in = new HashSet<IRValue>(out);
+		in.removeAll(defined.get(block));
+		in.addAll(used.get(block));
+		changed = liveIn.get(block).addAll(in) || changed;
+	    }
+	}
+
+	// Form the intervals.
+	for (IRValue value : _values) {
+	    _intervals.put(value, new Interval(value));
+	}
+	for (BasicBlock block : blocks) {
+	    for (IRValue value : liveIn.get(block)) {
+		_intervals.get(value).include(starts.get(block));
+	    }
+	    for (IRValue value : liveOut.get(block)) {
+		_intervals.get(value).include(ends.get(block));
+	    }
+	    for (IRInstruction instruction : block._instructions) {
+		if (_values.contains(instruction._result)) {
+		    _intervals.get(instruction._result).include(positions.get(instruction));
+		}
+		for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		    IRValue operand = instruction.getOperand(i);
+		    if (!_values.contains(operand)) {
+			continue;
+		    }
+		    if (instruction._opcode == IRInstruction.Opcode.PHI) {
+			_intervals.get(operand).include(ends.get(block._predecessors.get(i)));
+		    } else if (_fused.contains(instruction)) {
+			_intervals.get(operand).include(ends.get(block));
+		    } else {
+			_intervals.get(operand).include(positions.get(instruction));
+		    }
+		}
+	    }
+	}
+	for (Interval interval : _intervals.values()) {
+	    for (int call : _calls) {
+		interval._spansCall = interval._spansCall || (call > interval._start && call < interval._end);
+	    }
+	}
+
+    } // buildIntervals ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class LinearScan
+// =================================================================================================================================
@@ -2,6 +2,7 @@
 // IMPORTS
 
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -86,6 +87,17 @@ abstract public class Literal extends Expression {
        
     }
     // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this expression refers.  A literal refers to none, so do nothing.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {}
+    // =============================================================================================================================
     
 
 
@@ -45,25 +45,12 @@ public class LogicalNotOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        String assembly = new String();
-
-        // Generate assembly for the operand.
-	assembly += operands[0].toAssembly();
-
-	// Pop the operand result into registers A.
-	assembly += "\tpop\trax\n";
-
-	// Apply NOT to the register.
-	assembly += "\tnot\trax\n";
-
-	// Push the result.
-	assembly += "\tpush\trax\n";
-
-	return assembly;		
+        // Lower the operand, then apply NOT to it.
+	return ir.emit(IRInstruction.Opcode.NOT, operands[0].toIRValue(ir));
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
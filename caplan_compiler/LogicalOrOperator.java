@@ -47,38 +47,48 @@ public class LogicalOrOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	return fold_shortCircuit(operation, operands, true);
 
-        // Generate assembly for the operands in reverse order (so that evaluation is later done left-to-right).
-	for (int i = operands.length - 1; i >= 0; i -= 1) {
-	    assembly += operands[i].toAssembly();
-	}
+    } // fold ()
+    // =============================================================================================================================
 
-	// Perform each of the additions in turn.
-	for (int i = 0; i < operands.length - 1; i += 1) {
-	
-	    // Pop the top two operand results into registers A and B.
-	    // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-	    assembly += "\tpop\trax\n\tpop\trbx\n";
 
-	    // Apply OR to the registers.
-	    assembly += "\tor\trax,\trbx\n";
 
-	    // Push the result.
-	    assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-	}
+	return toIR_shortCircuit(ir, true, operands);
 
-	return assembly;
-	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
 
-    
-    
+
+    // =============================================================================================================================
+    @Override
+    public void toIR_branch (IRBuilder ir, BasicBlock ifTrue, BasicBlock ifFalse, Expression... operands) {
+
+	toIR_shortCircuit(ir, true, ifTrue, ifFalse, operands);
+
+    } // toIR_branch ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    @Override
+    public void toIR_effect (IRBuilder ir, Expression... operands) {
+
+	toIR_shortCircuitEffect(ir, true, operands);
+
+    } // toIR_effect ()
+    // =============================================================================================================================
+
+
+
 // =================================================================================================================================
 } // class LogicalOrOperator
 // =================================================================================================================================
@@ -0,0 +1,305 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Moves the computations that yield the same value on every iteration of a loop out of it, into a preheader that runs once
+ * before the loop is entered.
+ *
+ * Loops are found as the blocks that reach a back edge (an edge to a block that dominates its source) without passing its
+ * target, the header; inner loops are treated first, so that what they hoist may then leave the outer loops too.  The
+ * preheader is the header's one predecessor outside the loop, or a block inserted on that edge; a loop entered from several
+ * places is left alone.
+ *
+ * An instruction is invariant if all its operands are defined outside the loop or by invariant instructions.  Pure arithmetic
+ * may always be hoisted (but not comparisons, which are best left next to the branches that use them, nor arithmetic on no
+ * temporaries at all, which addressing modes absorb).  Division is not hoisted, since it could fault on a path that the loop
+ * never takes; for the same reason, only loads of variables (global variables and frame slots) are, never loads through
+ * pointers.  A load is hoisted only if nothing in the loop can write what it reads: the loop may make no calls, may store to
+ * the same variable by name nowhere, and may store through pointers only if the variable is a global one whose address is never
+ * taken (a frame slot is kept in memory only because its address is taken).
+ */
+public class LoopInvariantMotion {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The function whose loops are optimized. */
+    private final IRFunction                        _function;
+
+    /** The dominators of the function's blocks. */
+    private final Dominators                        _dominators;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Prepare to optimize a function's loops.
+     *
+     * @param function The function.
+     */
+    public LoopInvariantMotion (IRFunction function) {
+
+	_function   = function;
+	_dominators = new Dominators(function);
+
+    } // LoopInvariantMotion ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Hoist the invariant instructions out of every loop.
+     *
+     * @return the number of instructions hoisted (an instruction hoisted out of nested loops counts once for each).
+     */
+    public int hoist () {
+
+	// Gather each header's loop, from all the back edges to it.
+	List<BasicBlock>                 blocks = _function.getBlocks();
+	Map<BasicBlock, Set<BasicBlock>> loops  = new LinkedHashMap<BasicBlock, Set<BasicBlock>>();
+	for (BasicBlock block : blocks) {
+	    for (BasicBlock successor : block.getSuccessors()) {
+		if (_dominators.dominates(successor, block)) {
+		    Set<BasicBlock> loop = loops.computeIfAbsent(successor, key -> new HashSet<BasicBlock>());
+		    loop.add(successor);
+		    addLoopBlocks(loop, block);
+		}
+	    }
+	}
+
+	// Treat the inner loops first.
+	List<BasicBlock> headers = new ArrayList<BasicBlock>(loops.keySet());
+	headers.sort((left, right) -> loops.get(left).size() - loops.get(right).size());
+	int hoisted = 0;
+	for (BasicBlock header : headers) {
+	    Set<BasicBlock> loop      = loops.get(header);
+	    BasicBlock      preheader = findPreheader(header, loop);
+	    if (preheader == null) {
+		continue;
+	    }
+	    for (BasicBlock outer : headers) {
+		if (outer != header && loops.get(outer).contains(header)) {
+		    loops.get(outer).add(preheader);
+		}
+	    }
+	    hoisted = hoisted + hoist(loop, preheader);
+	}
+	return hoisted;
+
+    } // hoist ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a loop the blocks that reach the source of one of its back edges without passing the header (already in the loop).
+     *
+     * @param loop   The blocks of the loop.
+     * @param source The source of the back edge.
+     */
+    private static void addLoopBlocks (Set<BasicBlock> loop, BasicBlock source) {
+
+	List<BasicBlock> work = new ArrayList<BasicBlock>();
+	if (loop.add(source)) {
+	    work.add(source);
+	}
+	while (!work.isEmpty()) {
+	    BasicBlock block = work.remove(work.size() - 1);
+	    for (BasicBlock predecessor : block._predecessors) {
+		if (loop.add(predecessor)) {
+		    work.add(predecessor);
+		}
+	    }
+	}
+
+    } // addLoopBlocks ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the block that runs just before a loop is entered, inserting one on the entering edge if its source leads
+     * elsewhere too.
+     *
+     * @param header The header of the loop.
+     * @param loop   The blocks of the loop.
+     * @return the preheader, or <code>null</code> if the loop is entered from more than one block.
+     */
+    private BasicBlock findPreheader (BasicBlock header, Set<BasicBlock> loop) {
+
+	int edge = -1;
+	for (int i = 0; i < header._predecessors.size(); i += 1) {
+	    if (!loop.contains(header._predecessors.get(i))) {
+		if (edge >= 0) {
+		    return null;
+		}
+		edge = i;
+	    }
+	}
+	if (edge < 0) {
+	    return null;
+	}
+	BasicBlock entering = header._predecessors.get(edge);
+	if (entering.getSuccessors().size() == 1) {
+	    return entering;
+	}
+
+	List<BasicBlock> blocks    = _function.getBlocks();
+	BasicBlock       preheader = _function.newBlock();
+	blocks.remove(preheader);
+	blocks.add(blocks.indexOf(header), preheader);
+	IRInstruction jump = new IRInstruction(IRInstruction.Opcode.JUMP, null);
+	jump._targets.add(header);
+	preheader.add(jump);
+	preheader._predecessors.add(entering);
+	entering.retarget(header, preheader);
+	header._predecessors.set(edge, preheader);
+	return preheader;
+
+    } // findPreheader ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Hoist the invariant instructions of one loop into its preheader, in an order in which each follows those it uses.
+     *
+     * @param loop      The blocks of the loop.
+     * @param preheader The preheader.
+     * @return the number of instructions hoisted.
+     */
+    private int hoist (Set<BasicBlock> loop, BasicBlock preheader) {
+
+	// What the loop may write: whether it calls, or stores through a pointer, and the variables that it stores to by name.
+	boolean       calls    = false;
+	boolean       pointers = false;
+	List<IRValue> stored   = new ArrayList<IRValue>();
+	for (BasicBlock block : loop) {
+	    for (IRInstruction instruction : block._instructions) {
+		if (instruction._opcode == IRInstruction.Opcode.CALL) {
+		    calls = true;
+		} else if (instruction._opcode == IRInstruction.Opcode.STORE) {
+		    IRValue address = instruction.getOperand(0);
+		    if (address._kind == IRValue.Kind.SYMBOL || address._kind == IRValue.Kind.SLOT) {
+			stored.add(address);
+		    } else {
+			pointers = true;
+		    }
+		}
+	    }
+	}
+
+	// Mark the invariant instructions until no more are found, visiting the blocks in layout order.
+	List<IRInstruction> invariant = new ArrayList<IRInstruction>();
+	Set<IRValue>        hoisted   = new HashSet<IRValue>();
+	boolean             changed   = true;
+	while (changed) {
+	    changed = false;
+	    for (BasicBlock block : _function.getBlocks()) {
+		if (!loop.contains(block)) {
+		    continue;
+		}
+		for (IRInstruction instruction : block._instructions) {
+		    if (!hoisted.contains(instruction._result) && isInvariant(instruction, loop, hoisted) &&
+			(instruction._opcode != IRInstruction.Opcode.LOAD || !calls && !isWritten(instruction, stored, pointers))) {
+			invariant.add(instruction);
+			hoisted.add(instruction._result);
+			changed = true;
+		    }
+		}
+	    }
+	}
+
+	for (IRInstruction instruction : invariant) {
+	    instruction._block._instructions.remove(instruction);
+	    instruction._block = preheader;
+	    preheader.addBeforeTerminator(instruction);
+	}
+	return invariant.size();
+
+    } // hoist ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether an instruction may be hoisted, apart from what its loop may write to memory: whether it is of a kind that may be,
+     * and uses only values from outside the loop or hoisted already.
+     *
+     * @param instruction The instruction.
+     * @param loop        The blocks of the loop.
+     * @param hoisted     The values of the instructions to be hoisted so far.
+     * @return <code>true</code> if the instruction may be hoisted; <code>false</code> otherwise.
+     */
+    private static boolean isInvariant (IRInstruction instruction, Set<BasicBlock> loop, Set<IRValue> hoisted) {
+
+	boolean temporaries = false;
+	for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+	    IRValue operand = instruction.getOperand(i);
+	    if (operand.isTemporary()) {
+		temporaries = true;
+		if (loop.contains(operand.getDefinition()._block) && !hoisted.contains(operand)) {
+		    return false;
+		}
+	    }
+	}
+
+	if (instruction._opcode == IRInstruction.Opcode.LOAD) {
+	    IRValue address = instruction.getOperand(0);
+	    return address._kind == IRValue.Kind.SYMBOL || address._kind == IRValue.Kind.SLOT;
+	}
+	return instruction.isPure() && !instruction.isComparison() && temporaries;
+
+    } // isInvariant ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a load of a variable may read a value written within its loop.
+     *
+     * @param load     The load.
+     * @param stored   The variables stored to by name within the loop.
+     * @param pointers Whether the loop stores through pointers.
+     * @return <code>true</code> if the variable may be written in the loop; <code>false</code> otherwise.
+     */
+    private boolean isWritten (IRInstruction load, List<IRValue> stored, boolean pointers) {
+
+	IRValue variable = load.getOperand(0);
+	for (IRValue address : stored) {
+	    if (address._kind == variable._kind && address._number == variable._number &&
+		(address._symbol == null ? variable._symbol == null : address._symbol.equals(variable._symbol))) {
+		return true;
+	    }
+	}
+	return pointers && !_function.isUnescaped(variable);
+
+    } // isWritten ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class LoopInvariantMotion
+// =================================================================================================================================
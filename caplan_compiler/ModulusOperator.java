@@ -49,35 +49,30 @@ public class ModulusOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly(Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	// Dividing by zero is left to fail at run time.
+	if (Long.valueOf(0).equals(constantValue(operands[1]))) {
+	    return operation;
+	}
+	return fold_binary(operation, operands, (x, y) -> x % y);
 
-        // Generate assembly for the two operands; both get pushed to the stack
-        assembly = operands[0].toAssembly() + operands[1].toAssembly();
+    } // fold ()
+    // =============================================================================================================================
 
-        // Pop the operand result into registers A and B (which are in reverse order on the stack).  
-        // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-        assembly += "\tpop\trbx\n\tpop\trax\n";
 
-        // Apply modulus to the registers.
-        // To use idiv:  rdx:rax / rbx => rax (R edx)
-        //   rax already holds the lower half of the dividend; cdq sign-extends into rdx to complete it.
-        //   rbx already holds the divisor.
-        //   The result must be moved from rdx to rax.
-        assembly += "\tcdq\n\tidiv\trbx\n\tmov\trax,\trdx\n";
 
-        // Push the result.
-        assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        return assembly;
+	return toIR_binary(ir, IRInstruction.Opcode.MOD, operands[0], operands[1]);
 
-    }
+    } // toIR ()
     // =============================================================================================================================
 
 
 
-    
 // =================================================================================================================================
 } // class ModulusOperator
 // =================================================================================================================================
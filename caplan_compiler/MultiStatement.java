@@ -3,6 +3,7 @@
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -60,6 +61,24 @@ class MultiStatement extends Statement {
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which these statements refers: the variables that it uses and the procedures that it
+     * calls.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	for (Statement statement : _statements) {
+	    statement.findReferences(references);
+	}
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -82,21 +101,59 @@ class MultiStatement extends Statement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this statement.
+     * Fold constant expressions within this statement.  The statements after one that always returns cannot be reached, and so
+     * are removed.
      *
-     * @return the generated assembly code.
+     * @return this statement.
      */
-    public String toAssembly () {
+    public Statement fold () {
+
+	for (int i = 0; i < _statements.size(); i += 1) {
+	    _statements.set(i, _statements.get(i).fold());
+	    if (_statements.get(i).alwaysReturns()) {
+		_statements.subList(i + 1, _statements.size()).clear();
+	    }
+	}
+	return this;
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether every path through this statement returns: one of the statements always does.
+     *
+     * @return <code>true</code> if every path through this statement returns; <code>false</code> otherwise.
+     */
+    public boolean alwaysReturns () {
 
-	String assembly = "\t; Begin multi-statement @" + _position + '\n';
 	for (Statement statement : _statements) {
-	    assembly += statement.toAssembly();
+	    if (statement.alwaysReturns()) {
+		return true;
+	    }
 	}
-	assembly += "\t; End multi-statement @" + _position + '\n';
+	return false;
+
+    } // alwaysReturns ()
+    // =============================================================================================================================
+
 
-	return assembly;
 
-    } // toAssembly ()
+    // =============================================================================================================================
+    /**
+     * Lower this statement into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR (IRBuilder ir) {
+
+	for (Statement statement : _statements) {
+	    statement.toIR(ir);
+	}
+
+    } // toIR ()
     // =============================================================================================================================
 
 
@@ -105,16 +162,13 @@ class MultiStatement extends Statement {
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
-	String assembly = new String();
 	for (Statement statement : _statements) {
-	    assembly += statement.toStatics();
+	    statement.toStatics(out);
 	}
-
-	return assembly;
 	
     } // toStatics ()
     // =============================================================================================================================
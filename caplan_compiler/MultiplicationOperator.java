@@ -55,37 +55,26 @@ public class MultiplicationOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly(Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	return fold_associative(operation, operands, 1, 0L, (x, y) -> x * y);
 
-        // Generate assembly for the operands in reverse order (so that evaluation is later done left-to-right).
-	for (int i = operands.length - 1; i >= 0; i -= 1) {
-	    assembly += operands[i].toAssembly();
-	}
-
-	// Perform each of the additions in turn.
-	for (int i = 0; i < operands.length - 1; i += 1) {
-	
-	    // Pop the top two operand results into registers A and B.
-	    // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-	    assembly += "\tpop\trax\n\tpop\trbx\n";
+    } // fold ()
+    // =============================================================================================================================
 
-	    // Apply the multiplication to the registers.
-	    assembly += "\timul\trax,\trbx\n";
 
-	    // Push the result.
-	    assembly += "\tpush\trax\n";
 
-	}
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        return assembly;
+	return toIR_fold(ir, IRInstruction.Opcode.MUL, operands);
 
-    }
+    } // toIR ()
     // =============================================================================================================================
 
 
-    
+
 // =================================================================================================================================
 } // class MultiplicationOperator
 // =================================================================================================================================
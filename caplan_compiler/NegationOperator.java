@@ -35,25 +35,25 @@ public class NegationOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	Long       value   = constantValue(operands[0]);
+	Expression literal = (value == null) ? null : literal(operation, -value);
+	return literal != null ? literal : operation;
 
-        // Generate assembly for the operand, pushing it onto the stack.
-        assembly = operands[0].toAssembly();
+    } // fold ()
+    // =============================================================================================================================
 
-        // Pop the operand result into register A.
-        assembly += "\tpop\trax\n";
 
-        // Apply (two's complement) negation to the register.
-        assembly += "\tneg\trax\t\t; Negate\n";
 
-        // Push the result.
-        assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        return assembly;
+        // Lower the operand, then apply (two's complement) negation to it.
+	return ir.emit(IRInstruction.Opcode.NEG, operands[0].toIRValue(ir));
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
     
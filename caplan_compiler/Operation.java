@@ -3,6 +3,7 @@
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -55,6 +56,27 @@ public class Operation extends Expression {
     // =============================================================================================================================
 
 
+
+    
+    // =============================================================================================================================
+    /**
+     * Create a verified operation that applies the same operator as this one, yielding the same type, to different operands.
+     * 
+     * @param operands The operands on which to apply the operator.
+     * @return the new operation, which belongs to the same procedure as this one.
+     */
+    public Operation withOperands (List<Expression> operands) {
+
+	Operation operation = new Operation(_position, _token, operands);
+	operation._operator = _operator;
+	operation._type     = _type;
+	operation.setProcedure(getProcedure());
+	return operation;
+
+    } // withOperands ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -86,7 +108,7 @@ public class Operation extends Expression {
     public void bind (Procedure procedure, Map<String, Declaration> symbols) {
 
         determineOperator();
-	_operator.bind(symbols);
+	_operator.bind(procedure, symbols);
 
 	setProcedure(procedure);
         for (Expression operand : _operands) {
@@ -96,6 +118,25 @@ public class Operation extends Expression {
     } // bind ()
     // =============================================================================================================================
 
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this operation refers: the variables that it uses and the procedures that it
+     * calls, directly or in its operands.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	_operator.findReferences(references);
+	for (Expression operand : _operands) {
+	    operand.findReferences(references);
+	}
+
+    } // findReferences ()
+    // =============================================================================================================================
+
     
     
     // =============================================================================================================================
@@ -251,36 +292,99 @@ public class Operation extends Expression {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this expression.
+     * Fold the operands, then this operation as its operator directs.
      *
-     * @return the generated assembly code.
+     * @return the expression to use in place of this operation.
      */
-    public String toAssembly () {
+    public Expression fold () {
 
-        return _operator.toAssembly(_operands);
+	for (int i = 0; i < _operands.length; i += 1) {
+	    _operands[i] = _operands[i].fold();
+	}
+	return _operator.fold(this, _operands);
 
-    } // toAssembly ()
+    } // fold ()
     // =============================================================================================================================
 
 
-    
+
+    // =============================================================================================================================
+    /**
+     * Lower this operation into the intermediate representation, as its operator directs.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the operation.
+     */
+    public IRValue toIRValue (IRBuilder ir) {
+
+        return _operator.toIR(ir, _operands);
+
+    } // toIRValue ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this operation, as a statement, into the intermediate representation, as its operator directs.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    @Override
+    public void toIR (IRBuilder ir) {
+
+	_operator.toIR_effect(ir, _operands);
+
+    } // toIR ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this operation, as a condition, into the intermediate representation, as its operator directs.
+     *
+     * @param ir      The builder of the procedure's intermediate representation.
+     * @param ifTrue  The block to which control passes if the operation is true.
+     * @param ifFalse The block to which control passes if the operation is false.
+     */
+    public void toIR_branch (IRBuilder ir, BasicBlock ifTrue, BasicBlock ifFalse) {
+
+	_operator.toIR_branch(ir, ifTrue, ifFalse, _operands);
+
+    } // toIR_branch ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a return of this operation's value into the intermediate representation, as its operator directs.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR_return (IRBuilder ir) {
+
+	_operator.toIR_return(ir, _operands);
+
+    } // toIR_return ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Generate assembly code for any statics that are part of this expression.  The operands may generate statics, so recur to
      * them.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
-
-	String assembly = new String();
+    public void toStatics (AssemblyWriter out) {
 
 	for (Expression operand : _operands) {
-	    assembly += operand.toStatics();
+	    operand.toStatics(out);
 	}
 
-	return assembly;
-
     } // toStatics ()
     // =============================================================================================================================
 
@@ -310,17 +414,18 @@ public class Operation extends Expression {
     
     // =============================================================================================================================
     /**
-     * Generate assembly that will evaluate this operator as an l-value.
+     * Lower the address of this operation, as an l-value, into the intermediate representation.
      * 
-     * @return the generated assembly code.
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the address.
      */
     @Override
-    public String toAssembly_l () {
+    public IRValue toIR_l (IRBuilder ir) {
 
-	// Assume that verification has validated the ability to invoke l-value assembly generation on this operator.
-	return _operator.toAssembly_l(_operands);
-	
-    } // toAssembly_l ()
+	// Assume that verification has validated the ability to lower this operator as an l-value.
+	return _operator.toIR_l(ir, _operands);
+
+    } // toIR_l ()
     // =============================================================================================================================
 
 
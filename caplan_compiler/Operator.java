@@ -1,7 +1,11 @@
 // =================================================================================================================================
 // IMPORTS
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.LongBinaryOperator;
 // =================================================================================================================================
 
 
@@ -60,22 +64,447 @@ abstract public class Operator {
 
     // =============================================================================================================================
     /**
-     * Generate assembly opcode that will execute this operator. Temporary fix to specify arity of 2 in this project.
+     * Lower the application of this operator to its operands into the intermediate representation.
      * 
-     * @param operands list of operands to pass into the operator
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The operands to which to apply the operator.
+     * @return the value yielded.
+     */
+    abstract public IRValue toIR (IRBuilder ir, Expression... operands);
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a binary operator to a single instruction on the values of its operands, evaluated left then right.
      *
-     * @return the generated assembly code.
+     * @param ir     The builder of the procedure's intermediate representation.
+     * @param opcode The instruction that applies the operator.
+     * @param left   The left operand.
+     * @param right  The right operand.
+     * @return the value yielded.
      */
-    abstract public String toAssembly (Expression... operands);
+    protected IRValue toIR_binary (IRBuilder ir, IRInstruction.Opcode opcode, Expression left, Expression right) {
+
+	IRValue leftValue  = left.toIRValue(ir);
+	IRValue rightValue = right.toIRValue(ir);
+	return ir.emit(opcode, leftValue, rightValue);
+
+    } // toIR_binary ()
     // =============================================================================================================================
 
 
-    
+
+    // =============================================================================================================================
+    /**
+     * Lower an associative and commutative operator on any number of operands to a chain of instructions that combine them
+     * pairwise.  The operands are evaluated last first, as they always have been, and then combined in source order.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param opcode   The instruction that combines two values.
+     * @param operands The operands.
+     * @return the value yielded.
+     */
+    protected IRValue toIR_fold (IRBuilder ir, IRInstruction.Opcode opcode, Expression... operands) {
+
+	IRValue[] values = new IRValue[operands.length];
+	for (int i = operands.length - 1; i >= 0; i -= 1) {
+	    values[i] = operands[i].toIRValue(ir);
+	}
+
+	IRValue result = values[0];
+	for (int i = 1; i < values.length; i += 1) {
+	    result = ir.emit(opcode, result, values[i]);
+	}
+	return result;
+
+    } // toIR_fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower the application of this operator, as a condition, into the intermediate representation.  By default, the value is
+     * computed and then tested.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param ifTrue   The block to which control passes if the value is true.
+     * @param ifFalse  The block to which control passes if the value is false.
+     * @param operands The operands to which to apply the operator.
+     */
+    public void toIR_branch (IRBuilder ir, BasicBlock ifTrue, BasicBlock ifFalse, Expression... operands) {
+
+	ir.branch(toIR(ir, operands), ifTrue, ifFalse);
+
+    } // toIR_branch ()
+    // =============================================================================================================================
+
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a return of the value of this operator's application into the intermediate representation.  By default, the value
+     * is computed and then returned.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The operands to which to apply the operator.
+     */
+    public void toIR_return (IRBuilder ir, Expression... operands) {
+
+	ir.ret(toIR(ir, operands));
+
+    } // toIR_return ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower the application of this operator, as a statement, into the intermediate representation: it is evaluated for its
+     * effects, and its value is discarded.  By default, the value is computed and then left unused, so that the instructions
+     * that would compute it are removed unless they have effects of their own.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The operands to which to apply the operator.
+     */
+    public void toIR_effect (IRBuilder ir, Expression... operands) {
+
+	toIR(ir, operands);
+
+    } // toIR_effect ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a short-circuit boolean operator to branches: the operands are evaluated first to last, and those that remain are
+     * skipped once one yields the deciding value (false for <code>&amp;&amp;</code>, true for <code>||</code>), which is then
+     * the result.  Otherwise, the result is that of the last operand.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param decisive The value of an operand that decides the result.
+     * @param operands The operands.
+     * @return the value yielded.
+     */
+    protected IRValue toIR_shortCircuit (IRBuilder ir, boolean decisive, Expression... operands) {
+
+	// Every edge into the join from an operand but the last carries the deciding value.
+	BasicBlock join  = ir.newBlock();
+	IRValue    last  = toIR_untilDecided(ir, decisive, join, operands).toIRValue(ir);
+	int        edges = join._predecessors.size();
+	ir.jump(join);
+	ir.seal(join);
+	ir.startBlock(join);
+
+	List<IRValue> values = new ArrayList<IRValue>(edges + 1);
+	for (int i = 0; i < edges; i += 1) {
+	    values.add(ir.constant(decisive ? 1 : 0));
+	}
+	values.add(last);
+	return ir.phi(values);
+
+    } // toIR_shortCircuit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a short-circuit boolean operator, as a condition, to branches.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param decisive The value of an operand that decides the result.
+     * @param ifTrue   The block to which control passes if the value is true.
+     * @param ifFalse  The block to which control passes if the value is false.
+     * @param operands The operands.
+     */
+    protected void toIR_shortCircuit (IRBuilder ir, boolean decisive, BasicBlock ifTrue, BasicBlock ifFalse,
+				      Expression... operands) {
+
+	toIR_untilDecided(ir, decisive, decisive ? ifTrue : ifFalse, operands).toIR_branch(ir, ifTrue, ifFalse);
+
+    } // toIR_shortCircuit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower a short-circuit boolean operator, as a statement, to branches: the operands are evaluated as for its value, but
+     * control simply rejoins once the result is decided, with no value merged at the join.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param decisive The value of an operand that decides the result.
+     * @param operands The operands.
+     */
+    protected void toIR_shortCircuitEffect (IRBuilder ir, boolean decisive, Expression... operands) {
+
+	BasicBlock join = ir.newBlock();
+	toIR_untilDecided(ir, decisive, join, operands).toIR(ir);
+	ir.jump(join);
+	ir.seal(join);
+	ir.startBlock(join);
+
+    } // toIR_shortCircuitEffect ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower all but the last operand of a short-circuit boolean operator to branches that leave for a given block once one
+     * yields the deciding value, and otherwise go on to the next operand.
+     *
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param decisive The value of an operand that decides the result.
+     * @param decided  The block to which control passes once the result is decided.
+     * @param operands The operands.
+     * @return the last operand, still to be lowered in the current block.
+     */
+    private Expression toIR_untilDecided (IRBuilder ir, boolean decisive, BasicBlock decided, Expression... operands) {
+
+	for (int i = 0; i < operands.length - 1; i += 1) {
+	    BasicBlock next = ir.newBlock();
+	    if (decisive) {
+		operands[i].toIR_branch(ir, decided, next);
+	    } else {
+		operands[i].toIR_branch(ir, next, decided);
+	    }
+	    ir.seal(next);
+	    ir.startBlock(next);
+	}
+	return operands[operands.length - 1];
+
+    } // toIR_untilDecided ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Simplify the application of this operator to its (already folded) operands, evaluating it at compile time where the
+     * operands are literals.  By default, no simplification is made.
+     *
+     * @param operation The operation that applies this operator.
+     * @param operands  The operands.
+     * @return the expression to use in place of the operation, of the same type; the operation itself if it is unchanged.
+     */
+    public Expression fold (Operation operation, Expression... operands) {
+
+	return operation;
+
+    } // fold ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Fold a binary operator whose operands are both literals.
+     *
+     * @param operation The operation that applies this operator.
+     * @param operands  The two operands.
+     * @param combine   Computes the value of the operation, with the 64-bit wrapping arithmetic of the generated code.
+     * @return the literal, or the operation itself if either operand is not a literal or the value cannot be a literal.
+     */
+    protected Expression fold_binary (Operation operation, Expression[] operands, LongBinaryOperator combine) {
+
+	Long left  = constantValue(operands[0]);
+	Long right = constantValue(operands[1]);
+	if (left == null || right == null) {
+	    return operation;
+	}
+	Expression literal = literal(operation, combine.applyAsLong(left, right));
+	return literal != null ? literal : operation;
+
+    } // fold_binary ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Fold an associative and commutative operator on any number of operands: the literal operands are combined into one, which
+     * is dropped if it is the identity, and the whole operation becomes that literal if it is absorbing (such as 0 for
+     * multiplication) and the other operands have no effects.  The other operands keep their order of evaluation.
+     *
+     * @param operation The operation that applies this operator.
+     * @param operands  The operands.
+     * @param identity  The value that leaves any other unchanged.
+     * @param absorbing The value that makes the result its own; <code>null</code> if there is none.
+     * @param combine   Combines two values, with the 64-bit wrapping arithmetic of the generated code.
+     * @return the expression to use in place of the operation.
+     */
+    protected Expression fold_associative (Operation operation, Expression[] operands, long identity, Long absorbing,
+					   LongBinaryOperator combine) {
+
+	// Combine the literals, and set aside the rest.
+	long             value     = identity;
+	boolean          pure      = true;
+	List<Expression> remaining = new ArrayList<Expression>(operands.length);
+	for (Expression operand : operands) {
+	    Long constant = constantValue(operand);
+	    if (constant != null) {
+		value = combine.applyAsLong(value, constant);
+	    } else {
+		remaining.add(operand);
+		pure = pure && isPure(operand);
+	    }
+	}
+
+	// Nothing else matters if the literals alone decide the value.
+	if (remaining.isEmpty() || (absorbing != null && value == absorbing && pure)) {
+	    Expression literal = literal(operation, value);
+	    return literal != null ? literal : operation;
+	}
+	if (value != identity) {
+	    Expression literal = literal(operation, value);
+	    if (literal == null) {
+		return operation;
+	    }
+	    remaining.add(literal);
+	}
+
+	if (remaining.size() == operands.length) {
+	    return operation;
+	} else if (remaining.size() == 1) {
+	    return remaining.get(0);
+	}
+	return operation.withOperands(remaining);
+
+    } // fold_associative ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Fold a short-circuit boolean operator: operands that cannot decide the result are dropped, and those after one that
+     * always does are never evaluated, so they are dropped too.  The operation becomes a literal if the operands that remain
+     * have no effects.
+     *
+     * @param operation The operation that applies this operator.
+     * @param operands  The operands.
+     * @param decisive  The value of an operand that decides the result.
+     * @return the expression to use in place of the operation.
+     */
+    protected Expression fold_shortCircuit (Operation operation, Expression[] operands, boolean decisive) {
+
+	List<Expression> remaining = new ArrayList<Expression>(operands.length);
+	boolean          pure      = true;
+	for (Expression operand : operands) {
+	    Long constant = constantValue(operand);
+	    if (constant == null) {
+		remaining.add(operand);
+		pure = pure && isPure(operand);
+	    } else if ((constant != 0) == decisive) {
+		if (pure) {
+		    return literal(operation, decisive ? 1 : 0);
+		}
+		remaining.add(operand);
+		break;
+	    }
+	}
+
+	if (remaining.isEmpty()) {
+	    return literal(operation, decisive ? 0 : 1);
+	} else if (remaining.size() == 1) {
+	    return remaining.get(0);
+	} else if (remaining.size() == operands.length) {
+	    return operation;
+	}
+	return operation.withOperands(remaining);
+
+    } // fold_shortCircuit ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the value of a literal operand, as the generated code would represent it.
+     *
+     * @param operand The operand.
+     * @return the value, or <code>null</code> if the operand is not an integer, character, or boolean literal.
+     */
+    protected static Long constantValue (Expression operand) {
+
+	if (operand instanceof IntegerLiteral literal) {
+	    return (long)literal._value;
+	} else if (operand instanceof CharacterLiteral literal) {
+	    return (long)literal._value;
+	} else if (operand instanceof BooleanLiteral literal) {
+	    return literal._value ? 1L : 0L;
+	}
+	return null;
+
+    } // constantValue ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether an operand can be dropped without changing what the program does: evaluating it has no effect and cannot fail.
+     *
+     * @param operand The operand.
+     * @return <code>true</code> for a literal or a variable; <code>false</code> otherwise.
+     */
+    protected static boolean isPure (Expression operand) {
+
+	return operand instanceof Literal || operand instanceof Variable;
+
+    } // isPure ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a literal that stands for the value of an operation.
+     *
+     * @param operation The operation, whose type the literal takes.
+     * @param value     The value.
+     * @return the literal, or <code>null</code> if no literal of the operation's type can hold the value.
+     */
+    protected static Expression literal (Operation operation, long value) {
+
+	Type type = operation.getType();
+	if (type instanceof TypeInteger && value == (int)value) {
+	    return new IntegerLiteral(operation._position, (int)value);
+	} else if (type instanceof TypeBoolean && (value == 0 || value == 1)) {
+	    return new BooleanLiteral(operation._position, value == 1);
+	}
+	return null;
+
+    } // literal ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Bind the operator against a symbol table's entries.  By default, operators have nothing to bind.
+     *
+     * @param procedure The procedure in which the operation appears.
+     * @param symbols   A symbol table of declarations.
      */
-    public void bind (Map<String, Declaration> symbols) {}
+    public void bind (Procedure procedure, Map<String, Declaration> symbols) {}
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which the operator itself refers.  By default, operators refer to none.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {}
     // =============================================================================================================================
 
 
@@ -112,15 +541,16 @@ abstract public class Operator {
     
     // =============================================================================================================================
     /**
-     * Generate assembly opcode that will execute this operator as an l-value.
+     * Lower the address that this operator yields, as an l-value, into the intermediate representation.
      * 
-     * @param operands list of operands to pass into the operator
-     * @return the generated assembly code.
+     * @param ir       The builder of the procedure's intermediate representation.
+     * @param operands The operands to which to apply the operator.
+     * @return the address.
      */
-    public String toAssembly_l (Expression... operands) {
+    public IRValue toIR_l (IRBuilder ir, Expression... operands) {
 
 	Utility.abort("This operator cannot be an l-value");
-        return null;
+	return null;
 	
     }
     // =============================================================================================================================
@@ -1,9 +1,8 @@
 // =================================================================================================================================
 // IMPORTS
 
-import java.util.List;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.List;
 // =================================================================================================================================
 
 
@@ -20,20 +19,55 @@ public class Parser {
     // =============================================================================================================================
     // DATA MEMBERS
 
-    /** The list of tokens to parse. */
-    private final List<Token> _tokens;
+    /** The tokens to parse. */
+    private final TokenBuffer _tokens;
 
-    /** The position within the token list during the parsing. */
+    /** The position within the token buffer during the parsing. */
     private int               _index;
+
+    /** The diagnostics of the compilation. */
+    private final Diagnostics _diagnostics;
+
+    /** The number of AST nodes (declarations, statements, and expressions) created so far. */
+    private int               _nodeCount;
+    // =============================================================================================================================
+
+
+
+    
+    // =============================================================================================================================
+    /**
+     * An operation whose open parenthesis and operator have been parsed, and whose operands are still being collected.
+     */
+    private static final class OpenOperation {
+
+	/** The position of the open parenthesis. */
+	final int              _position;
+
+	/** The operator token. */
+	final Token            _operator;
+
+	/** The operands parsed so far. */
+	final List<Expression> _operands;
+
+	OpenOperation (int position, Token operator) {
+	    _position = position;
+	    _operator = operator;
+	    _operands = new ArrayList<Expression>();
+	}
+
+    } // class OpenOperation
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
-    public Parser (List<Token> tokens) {
+    public Parser (TokenBuffer tokens, Diagnostics diagnostics) {
 
-	_tokens = tokens;
-	_index  = -1;
+	_tokens      = tokens;
+	_diagnostics = diagnostics;
+	_index       = -1;
+	_nodeCount   = 0;
 
     } // Parser ()
     // =============================================================================================================================
@@ -58,61 +92,84 @@ public class Parser {
 	List<Procedure> procedures = parseProcedureList();
 
 	// Return the newly constructed program from this list of expressions.
-	return new Program(procedures, variables);
+	return node(new Program(procedures, variables, _diagnostics));
 
     } // parse ()
     // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of AST nodes that parsing created.
+     *
+     * @return the count.
+     */
+    public int getNodeCount () {
+
+	return _nodeCount;
+
+    } // getNodeCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Count a newly created AST node.
+     *
+     * @param node The node.
+     * @return the same node.
+     */
+    private <T> T node (T node) {
+
+	_nodeCount = _nodeCount + 1;
+	return node;
+
+    } // node ()
+    // =============================================================================================================================
 	
 
 
     // =============================================================================================================================
     private List<VariableDeclaration> parseParameterList () {
 	
-	List<VariableDeclaration> variables = new LinkedList<>();
+	List<VariableDeclaration> variables = new ArrayList<>();
 
-	consumeWhitespace();
 	if(endOfTokens()) return null;
 
-	Token first = _tokens.get(_index++);
-	if (first._type != Token.Type.OPENPAREN) {
-	    Utility.error("Expected parameter list", first._position);
+	if (_tokens.type(_index) != Token.Type.OPENPAREN) {
+	    Utility.error("Expected parameter list", _tokens.position(_index));
 	}
-
-	consumeWhitespace();
+	_index++;
 
 	// iterate over every variable declared
-	while (_index < _tokens.size() && _tokens.get(_index)._type != Token.Type.CLOSEPAREN) {
+	while (!endOfTokens() && _tokens.type(_index) != Token.Type.CLOSEPAREN) {
 	    //First check if it is an etcetera declaration:
-	    Token t = _tokens.get(_index++);
-	    if (t._type == Token.Type.ETCETERA) {
-		variables.add(new EtceteraDecl(t));
+	    if (_tokens.type(_index) == Token.Type.ETCETERA) {
+		variables.add(node(new EtceteraDecl(_tokens.get(_index++))));
 	    } else {
 		// parse this variable declaration
-		_index--;
 		variables.add(parseVariableDeclaration(true));
 	    }
 
-
-
-
 	    // break out if last variable
-	    if (_tokens.get(_index)._type != Token.Type.COMMA) {
+	    if (_tokens.type(_index) != Token.Type.COMMA) {
 		break;
 	    }
 
 	    _index++;
-	    consumeWhitespace();
 
 	}
 
 	if(endOfTokens()) return null;
 
-	if (_tokens.get(_index)._type != Token.Type.CLOSEPAREN) {
-	    Utility.error("Expected close bracket at " + _tokens.get(_index)._position);
+	if (_tokens.type(_index) != Token.Type.CLOSEPAREN) {
+	    Utility.error("Expected close bracket at " + _tokens.position(_index));
 	}
 
 	_index++;
-	Utility.debug(2, "Variable List: " + variables);
+	_diagnostics.debug(2, () -> "Variable List: " + variables);
 	return variables;
 
     } // parseParameterList ()
@@ -133,43 +190,38 @@ public class Parser {
      */
     private List<VariableDeclaration> parseVariableDeclarationList (boolean isLocal) {
 
-	List<VariableDeclaration> variables = new LinkedList<>();
+	List<VariableDeclaration> variables = new ArrayList<>();
 
-	consumeWhitespace();
 	if(endOfTokens()) return null;
 
-	Token first = _tokens.get(_index++);
-	if (first._type != Token.Type.OPENBRACKET) {
-	    _index--;
+	if (_tokens.type(_index) != Token.Type.OPENBRACKET) {
 	    return variables;
 	}
-
-	consumeWhitespace();
+	_index++;
 
 	// iterate over every variable declared
-	while (_index < _tokens.size() && _tokens.get(_index)._type != Token.Type.CLOSEBRACKET) {
+	while (!endOfTokens() && _tokens.type(_index) != Token.Type.CLOSEBRACKET) {
 	    
 	    // parse this variable declaration
 	    variables.add(parseVariableDeclaration(isLocal));
 
 	    // break out if last variable
-	    if (_tokens.get(_index)._type != Token.Type.COMMA) {
+	    if (_tokens.type(_index) != Token.Type.COMMA) {
 		break;
 	    }
 
 	    _index++;
-	    consumeWhitespace();
 
 	}
 
 	if(endOfTokens()) return null;
 
-	if (_tokens.get(_index)._type != Token.Type.CLOSEBRACKET) {
-	    Utility.error("Expected close bracket at " + _tokens.get(_index)._position);
+	if (_tokens.type(_index) != Token.Type.CLOSEBRACKET) {
+	    Utility.error("Expected close bracket at " + _tokens.position(_index));
 	}
 
 	_index++;
-	Utility.debug(2, "Variable List: " + variables);
+	_diagnostics.debug(2, () -> "Variable List: " + variables);
 	return variables;
 
     } // parseVariableList ()
@@ -189,18 +241,15 @@ public class Parser {
 	
 	// parse the type of this variable
 	Type type = parseType();
-	consumeWhitespace();
 	// parse the name of this variable
 	if(endOfTokens()) return null;
 	
-	Token current = _tokens.get(_index++);
-
-	if (current._type != Token.Type.NAME) {
-	    Utility.error("Expected variable name at " + current._position);
+	if (_tokens.type(_index) != Token.Type.NAME) {
+	    Utility.error("Expected variable name at " + _tokens.position(_index));
 	}
-	consumeWhitespace();
+	Token current = _tokens.get(_index++);
 
-	return isLocal ? new LocalVariableDecl(current,type) : new GlobalVariableDecl(current, type);
+	return node(isLocal ? new LocalVariableDecl(current,type) : new GlobalVariableDecl(current, type));
 	
     } // parseVariableDeclaration ()
     // =============================================================================================================================
@@ -209,16 +258,15 @@ public class Parser {
 
     // =============================================================================================================================
     private List<Procedure> parseProcedureList () {
-	Procedure procedure = parseProcedure();
-	if (procedure == null) {
-	    return new LinkedList<Procedure>();
-	}
 
-	List<Procedure> procedures = parseProcedureList();
-	procedures.addFirst(procedure);
+	List<Procedure> procedures = new ArrayList<Procedure>();
+	for (Procedure procedure = parseProcedure(); procedure != null; procedure = parseProcedure()) {
+	    procedures.add(procedure);
+	}
 
 	return procedures;
-    }
+
+    } // parseProcedureList ()
     // =============================================================================================================================
 
     
@@ -226,36 +274,34 @@ public class Parser {
     // =============================================================================================================================
     private Procedure parseProcedure () {
 	
-	int startIndex = _index;
-	consumeWhitespace();
 	if (endOfTokens()) return null;
 
-	Token proc_token = _tokens.get(_index++);
-	if (proc_token._type != Token.Type.PROC && proc_token._type != Token.Type.EXTERN) {
-	    _index = startIndex;
+	Token.Type procType = _tokens.type(_index);
+	if (procType != Token.Type.PROC && procType != Token.Type.EXTERN) {
 	    return null;
 	}
+	_index++;
 	
 	Type type = parseType();
-	if (type == null) Utility.error("Expected return type", _index);
+	if (type == null) Utility.error("Expected return type", _tokens.position(_index));
 	
+	if (_tokens.type(_index) != Token.Type.NAME) Utility.error("Invalid name", _tokens.position(_index));
 	Token name = _tokens.get(_index++);
-	if (name == null) Utility.error("Invalid name", _index);
 	
 	List<VariableDeclaration> params = parseParameterList();
-	if (params == null) Utility.error("Invalid Parameter List", _index);
+	if (params == null) Utility.error("Invalid Parameter List", _tokens.position(_index));
 	
-	if (proc_token._type == Token.Type.EXTERN) {
-		return new ExternalProcedure(name, type, params);
+	if (procType == Token.Type.EXTERN) {
+		return node(new ExternalProcedure(name, type, params));
 	}
 
 	List<VariableDeclaration> locals = parseVariableDeclarationList(true);
-	if (locals == null) Utility.error("Invalid Locals List", _index);
+	if (locals == null) Utility.error("Invalid Locals List", _tokens.position(_index));
 	
 	Statement body = parseStatement();
-	if (body == null) Utility.error("Invalid Procedure Body",_index);
+	if (body == null) Utility.error("Invalid Procedure Body", _tokens.position(_index));
 
-	return new InternalProcedure(name, type, params, locals, body);
+	return node(new InternalProcedure(name, type, params, locals, body));
     
     }
     // =============================================================================================================================
@@ -271,18 +317,12 @@ public class Parser {
      */
     private List<Statement> parseStatementList () {
 
-	// <statement>
-	Statement statement = parseStatement();
-
-	// If there was no statement, return the empty list of expressions.
-	if (statement == null) {
-	    return new LinkedList<Statement>();
+	// <statement>*, stopping at the first token that cannot begin a statement.
+	List<Statement> statements = new ArrayList<Statement>();
+	for (Statement statement = parseStatement(); statement != null; statement = parseStatement()) {
+	    statements.add(statement);
 	}
 
-	// <stmt list>
-	List<Statement> statements = parseStatementList();
-	statements.addFirst(statement);
-
 	return statements;
 
     } // parseStatementList ()
@@ -292,40 +332,25 @@ public class Parser {
 
     // =============================================================================================================================
     /**
-     * Parse a statement.
-     *   <statement> ::= <multi-stmt> | <print stmt> | <control stmt> | <expression>
+     * Parse a statement.  The kind of statement is determined by its first token alone.
+     *   <statement> ::= <multi-stmt> | <control stmt> | <return stmt> | <expression>
      *
      * @return A statement if one is parsed; <code>null</code> otherwise.
      */
     private Statement parseStatement () {
 
-	int startIndex = _index;
-	Statement statement = null;
-
-	// <multi-stmt>
-	statement = parseMultiStatement();
-
-
-	// ... | <control stmt>
-	if (statement == null) {
-	    statement = parseControlStatement();
-	}
-
-	// ... | return statement
-		if (statement == null) {
-			statement = parseReturnStatement();
-		}
-
-	// ... | <expression>
-	if (statement == null) {
-	    statement = parseExpression();
-	}
-
-	if (statement == null) {
-	    _index = startIndex;
+	Token.Type type = _tokens.type(_index);
+	if (type == null) {
+	    return null;
 	}
 
-	return statement;
+	return switch (type) {
+	case Token.Type.OPENBRACE       -> parseMultiStatement();     // <multi-stmt>
+	case Token.Type.IF,
+	     Token.Type.WHILE           -> parseControlStatement();   // ... | <control stmt>
+	case Token.Type.RETURN          -> parseReturnStatement();    // ... | <return stmt>
+	default                         -> parseExpression();         // ... | <expression>
+	};
 	
     } // parseStatement ()
     // =============================================================================================================================
@@ -346,38 +371,31 @@ public class Parser {
 
 
 	// '{'
-	consumeWhitespace();
-	Token open = null;
-	if ( endOfTokens() || (open = _tokens.get(_index++))._type != Token.Type.OPENBRACE ) {
+	if (_tokens.type(_index) != Token.Type.OPENBRACE) {
 	    _index = startIndex;
 	    return null;
 	}
+	int openPosition = _tokens.position(_index++);
 
 	// <stmt list>
 	List<Statement> statements = parseStatementList();
 
 	// '}'
-	consumeWhitespace();
-	Token close = null;
 	if (endOfTokens()) {
-	    Utility.error("Input ends before close of multi-statement", open._position);
+	    Utility.error("Input ends before close of multi-statement", openPosition);
 	}
-	if ((close = _tokens.get(_index++))._type != Token.Type.CLOSEBRACE) {
-	    Utility.error("Expected closing brace for multi-statement started at @" + open._position, close._position);
+	if (_tokens.type(_index) != Token.Type.CLOSEBRACE) {
+	    Utility.error("Expected closing brace for multi-statement started at @" + openPosition, _tokens.position(_index));
 	}
+	_index++;
 
-	return new MultiStatement(open._position, statements);
+	return node(new MultiStatement(openPosition, statements));
 	
     } // parseMultiStatement ()
     // =============================================================================================================================
 
 
 
-    // =============================================================================================================================
-	// =============================================================================================================================
-
-
-
     // =============================================================================================================================
     /**
      * Parses a control statement.
@@ -387,27 +405,15 @@ public class Parser {
      */
     private ControlStatement parseControlStatement () {
 
-	int startIndex = _index;
-	consumeWhitespace();
-	if (endOfTokens()) {
-		return null;
+	Token.Type type = _tokens.type(_index);
+	if (type == Token.Type.IF) {
+	    return parseConditional();                    // <conditional>
+	} else if (type == Token.Type.WHILE) {
+	    return parseLoop();                           // ... | <loop>
 	}
+	return null;
 
-	// <conditional> 
-	ControlStatement statement = parseConditional();
-
-	// ... | <loop>
-	if (statement == null) {
-	    statement = parseLoop();
-	}
-
-	if (statement == null) {
-	    _index = startIndex;
-	}
-
-	return statement;
-
-    } // ControlStatement ()
+    } // parseControlStatement ()
     // =============================================================================================================================
 
 	// =============================================================================================================================
@@ -419,21 +425,13 @@ public class Parser {
 	 */
 	private ReturnStatement parseReturnStatement () {
 
-		int startIndex = _index;
-		consumeWhitespace();
-		if (endOfTokens()) {
+		if (_tokens.type(_index) != Token.Type.RETURN) {
 			return null;
 		}
 		Token t = _tokens.get(_index++);
-		if (t._type != Token.Type.RETURN) {
-			_index--;
-			return null;
-		}
 
-		ReturnStatement rs =  new ReturnStatement(t, parseExpression());
-		consumeWhitespace();
 		//Currently parsing without assuming semicolon termination (currently whitespace terminated)
-		return rs;
+		return node(new ReturnStatement(t, parseExpression()));
 
 
 	} // ReturnStatement ()
@@ -454,48 +452,40 @@ public class Parser {
 	int startIndex = _index;
 
 	// 'if'
-	consumeWhitespace();
-	if (endOfTokens()) {
-	    _index = startIndex;
-	    return null;
-	}
-	Token ifToken = _tokens.get(_index++);
-	if (ifToken._type != Token.Type.IF) {
+	if (_tokens.type(_index) != Token.Type.IF) {
 	    _index = startIndex;
 	    return null;
 	}
+	int ifPosition = _tokens.position(_index++);
 
 	// <expression>
 	Expression condition = parseExpression();
 	if (condition == null) {
-	    Utility.error("Conditional expression expected", ifToken._position);
+	    Utility.error("Conditional expression expected", ifPosition);
 	}
 
 	// <statement>
 	Statement thenBranch = parseStatement();
 	if (thenBranch == null) {
-	    Utility.error("Conditional then-branch expected", ifToken._position);
+	    Utility.error("Conditional then-branch expected", ifPosition);
 	}
 
 	// [ 'else'
-	int   endOfThenIndex = _index;
-	Token elseToken      = null;
-	consumeWhitespace();
-	if ( endOfTokens() || (elseToken = _tokens.get(_index++))._type != Token.Type.ELSE ) {
-
-	    // No 'else', so reset to the end of the then-branch and return the complete if-then.
-	    _index = endOfThenIndex;
-	    return new IfThenStatement(ifToken._position, condition, thenBranch);
+	if (_tokens.type(_index) != Token.Type.ELSE) {
+
+	    // No 'else', so return the complete if-then.
+	    return node(new IfThenStatement(ifPosition, condition, thenBranch));
 	    
 	} else {
 
 	    // There is an 'else', so complete it and return the resulting if-then-else.
 	    // <statement> ]
+	    int elsePosition = _tokens.position(_index++);
 	    Statement elseBranch = parseStatement();
 	    if (elseBranch == null) {
-		Utility.error("Incomplete else-branch", elseToken._position);
+		Utility.error("Incomplete else-branch", elsePosition);
 	    }
-	    return new IfThenElseStatement(ifToken._position, condition, thenBranch, elseBranch);
+	    return node(new IfThenElseStatement(ifPosition, condition, thenBranch, elseBranch));
 
 	}
 
@@ -517,30 +507,25 @@ public class Parser {
 	int startIndex = _index;
 
 	// 'while'
-	consumeWhitespace();
-	if (endOfTokens()) {
-	    _index = startIndex;
-	    return null;
-	}
-	Token whileToken = _tokens.get(_index++);
-	if (whileToken._type != Token.Type.WHILE) {
+	if (_tokens.type(_index) != Token.Type.WHILE) {
 	    _index = startIndex;
 	    return null;
 	}
+	int whilePosition = _tokens.position(_index++);
 
 	// <expression>
 	Expression condition = parseExpression();
 	if (condition == null) {
-	    Utility.error("Loop condition expected", whileToken._position);
+	    Utility.error("Loop condition expected", whilePosition);
 	}	    
 
 	// <statement>
 	Statement body = parseStatement();
 	if (body == null) {
-	    Utility.error("Loop body expected", whileToken._position);
+	    Utility.error("Loop body expected", whilePosition);
 	}
 
-	return new WhileStatement(whileToken._position, condition, body);
+	return node(new WhileStatement(whilePosition, condition, body));
 
     } // parseLoop ()
     // =============================================================================================================================
@@ -549,52 +534,90 @@ public class Parser {
     
     // =============================================================================================================================
     /**
-     * Parses an expression,
-     *   <exp> ::= <literal> | <memory> | <sizeof> | <operation> | <name>
+     * Parses an expression.
+     *   <exp>             ::= <literal> | <sizeof> | <operation> | <name>
+     *   <operation>       ::= '(' <operator> <expression list> ')'
+     *   <expression list> ::= <exp>*
+     *
+     * Each step looks only at the current token to decide what comes next, so nothing is ever re-parsed.  Operations are not
+     * parsed recursively: those that have been opened but not yet closed are kept on an explicit stack, and each completed
+     * expression is added as an operand to the innermost one.  Nesting depth is therefore limited only by memory.
      *
      * @return An expression if one is parsed; <code>null</code> otherwise.
      */
     private Expression parseExpression () {
 
-	int startIndex = _index;
-	consumeWhitespace();
-	if (endOfTokens()) {
-	    return null;
-	}
-	Expression expression = null;
+	// The operations opened so far and not yet closed, innermost last.
+	ArrayList<OpenOperation> open = new ArrayList<OpenOperation>();
 
-	// ... | <literal>
-	if (expression == null) {
-	    _index = startIndex;
-	    expression = parseLiteral();
-	}
+	while (true) {
 
-	// ... | <sizeof>
-	if (expression == null) {
-	    _index = startIndex;
-	    expression = parseSizeOf();
-	}
+	    Token.Type type       = _tokens.type(_index);
+	    Expression expression = null;
 
-	// ... | <operation>
-	if (expression == null) {
-	    _index = startIndex;
-	    expression = parseOperation();
-	}
+	    if (type == null) {
+
+		// Out of tokens: fine before any expression, but not within an operation.
+		if (open.isEmpty()) {
+		    return null;
+		}
+		Utility.error("Input ends before close of operation", open.getLast()._position);
 
-	// ... | <name>
-	if (expression == null) {
-	    consumeWhitespace();
-	    Token token = _tokens.get(_index++);
-	    if (token._type == Token.Type.NAME) {
-		expression = new Variable(token);
 	    }
-	}
 
-	if (expression == null) {
-		_index = startIndex;
-	}
+	    switch (type) {
+
+	    // <literal>
+	    case Token.Type.INTEGER, Token.Type.CHAR, Token.Type.BOOLEAN, Token.Type.STRING:
+		expression = parseLiteral();
+		break;
+
+	    // ... | <sizeof>
+	    case Token.Type.SIZEOF:
+		expression = parseSizeOf();
+		break;
+
+	    // ... | <name>
+	    case Token.Type.NAME:
+		expression = node(new Variable(_tokens.get(_index++)));
+		break;
+
+	    // ... | '(' <operator> -- the start of an operation, whose operands follow.
+	    // Get only the operator token since the specific operator will depend later on the operands.
+	    case Token.Type.OPENPAREN:
+		int openPosition = _tokens.position(_index++);
+		if (endOfTokens()) {
+		    Utility.error("Operator expected after open parenthesis", openPosition);
+		}
+		open.add(new OpenOperation(openPosition, _tokens.get(_index++)));
+		continue;
+
+	    // ')' -- the end of the innermost operation.
+	    case Token.Type.CLOSEPAREN:
+		if (open.isEmpty()) {
+		    return null;
+		}
+		_index++;
+		OpenOperation operation = open.removeLast();
+		expression = node(new Operation(operation._position, operation._operator, operation._operands));
+		break;
+
+	    // Anything else cannot begin an expression.
+	    default:
+		if (open.isEmpty()) {
+		    return null;
+		}
+		Utility.error("Close parentheses expected at end of operation", _tokens.position(_index));
+
+	    }
 
-	return expression;
+	    // A complete expression: either it is the whole result, or it is the next operand of the innermost operation.
+	    if (open.isEmpty()) {
+		return expression;
+	    }
+	    open.getLast()._operands.add(expression);
+
+	}
 
     } // parseExpression ()
     // =============================================================================================================================
@@ -608,19 +631,21 @@ public class Parser {
      */
     private Literal parseLiteral () {
 
-	int startIndex = _index;
-	consumeWhitespace();
-		
-	Token token = _tokens.get(_index++);
-	Literal literal = switch (token._type) {
-	case Token.Type.INTEGER -> new IntegerLiteral(token);
-	case Token.Type.CHAR    -> new CharacterLiteral(token);
-	case Token.Type.BOOLEAN -> new BooleanLiteral(token);
-	case Token.Type.STRING  -> new StringLiteral(token);
+	Token.Type type = _tokens.type(_index);
+	if (type == null) return null;
+
+	Literal literal = switch (type) {
+	case Token.Type.INTEGER -> new IntegerLiteral(_tokens.get(_index));
+	case Token.Type.CHAR    -> new CharacterLiteral(_tokens.get(_index));
+	case Token.Type.BOOLEAN -> new BooleanLiteral(_tokens.get(_index));
+	case Token.Type.STRING  -> new StringLiteral(_tokens.get(_index));
 	default                 -> null;
 	};
 
-	if (literal == null) _index = startIndex;
+	if (literal != null) {
+	    node(literal);
+	    _index++;
+	}
 	
 	return literal;
 
@@ -628,74 +653,6 @@ public class Parser {
     // =============================================================================================================================
 
 
-    // =============================================================================================================================
-    /**
-     * Parse an operation.
-     * <operation> ::= '(' <operator> <expression list> ')'
-     *
-     * @return An operation, if parsed; <code>null</code> otherwise.
-     */
-    private Operation parseOperation () {
-
-	// Mark beginning.
-	int startIndex = _index;
-
-        // '('
-        consumeWhitespace();
-        Token openToken;
-        if ( endOfTokens() || (openToken = _tokens.get(_index++))._type != Token.Type.OPENPAREN ) {
-            _index = startIndex;
-            return null;
-        }
-
-        // <operator>
-	// Get only the token since the specific operator will depend later on the operands.
-        Token operatorToken = _tokens.get(_index++);
-
-	// <expression list>
-        List<Expression> operands = parseExpressionList();
-
-        // ')'
-        consumeWhitespace();
-        if ( endOfTokens() || _tokens.get(_index++)._type != Token.Type.CLOSEPAREN ) {
-            Utility.error("Close parentheses expected at end of operation", _tokens.get(_index-1)._position);
-        }
-
-        return new Operation(openToken._position, operatorToken, operands);
-
-    } // parseOperation ()
-    // =============================================================================================================================
-
-
-
-    // =============================================================================================================================
-    /**
-     * Parses a list of expressions
-     * <expression list> ::= <expression> <expression list> | <EMPTY>
-     * @return A list of expressions.
-     */
-    private List<Expression> parseExpressionList () {
-
-	// Attempt to parse one expression.
-	Expression expression = parseExpression();
-	System.out.println(_index + " : " + expression);
-
-	// If there was none, return the empty list of expressions
-	if (expression == null) {
-	    return new LinkedList<Expression>();
-	}
-
-	// There was an expression, so parse the remaining list of them, and then combine the one with the many to return.
-	List<Expression> expressions = parseExpressionList();
-	expressions.addFirst(expression);
-
-	return expressions;
-
-    } // parseExpressionList ()
-    // =============================================================================================================================
-
-
-
     // =============================================================================================================================
     /**
      * Parse a sizeof() expression.
@@ -708,59 +665,51 @@ public class Parser {
 	int startIndex = _index;
 
 	// 'sizeof'
-	consumeWhitespace();
-	Token sizeofToken = null;
-	if ( endOfTokens() || (sizeofToken = _tokens.get(_index++))._type != Token.Type.SIZEOF ) {
+	if (_tokens.type(_index) != Token.Type.SIZEOF) {
 	    _index = startIndex;
             return null;
 	}
+	int sizeofPosition = _tokens.position(_index++);
 
 	// '('
-	consumeWhitespace();
-	Token openToken = null;
-	if ( endOfTokens() || (openToken = _tokens.get(_index++))._type != Token.Type.OPENPAREN ) {
-	    Utility.error("Open parenthesis expected after sizeof", sizeofToken._position);
+	if (_tokens.type(_index) != Token.Type.OPENPAREN) {
+	    Utility.error("Open parenthesis expected after sizeof", sizeofPosition);
 	}
+	int openPosition = _tokens.position(_index++);
 
 	// <type>
-	consumeWhitespace();
 	Type type = parseType();
 	if (type == null) {
-	    Utility.error("sizeof requires type", openToken._position);
+	    Utility.error("sizeof requires type", openPosition);
 	}
 
 	// ')'
-        consumeWhitespace();
-	Token closeToken = null;
-	if ( endOfTokens() || (closeToken = _tokens.get(_index++))._type != Token.Type.CLOSEPAREN ) {
+	if (_tokens.type(_index) != Token.Type.CLOSEPAREN) {
 	    Utility.error("Close parenthesis expected at end of sizeof", type._position);
 	}
+	_index++;
 
-	return new IntegerLiteral(sizeofToken._position, type.getSize());
+	return node(new IntegerLiteral(sizeofPosition, type.getSize()));
 	
     } // parseSizeOf ()
     // =============================================================================================================================
 
 
     
-    // =============================================================================================================================
-	// =============================================================================================================================
-
-
-    
     // =============================================================================================================================
     /**
      * Parse a type declaration. It is always known unambiguously when a type is expected (before a variable declaration or inside a
      * sizeof()), so this method does not fail silently; it signals an error directly.
-     *parseType () {
+     *   <type> ::= <name> '*'*
+     *
+     * @return the type parsed.
+     */
+    private Type parseType () {
 	
-	int startIndex = _index;
-	consumeWhitespace();
-
-	Token nameToken = _tokens.get(_index++);
-	if (nameToken._type != Token.Type.NAME) {
-	    Utility.error("Expected type name at " + nameToken._position );
+	if (_tokens.type(_index) != Token.Type.NAME) {
+	    Utility.error("Expected type name at " + _tokens.position(_index));
 	}
+	Token nameToken = _tokens.get(_index++);
 	
 	Type type = switch(nameToken._text) {
 	case "char" -> new TypeCharacter(nameToken);
@@ -774,51 +723,18 @@ public class Parser {
 	    Utility.error("Invalid type name " + nameToken._text + " at " + nameToken._position );
 	}
 
-	consumeWhitespace();
-	Token nextToken = _tokens.get(_index++);
-
 	// Determine the number of indirections to the base type.
-	while (nextToken._type == Token.Type.STAR) {
-	    type = new TypePointer(nextToken, type);
-	    consumeWhitespace();
-	    if (endOfTokens()) break;
-	    nextToken = _tokens.get(_index++);
+	while (_tokens.type(_index) == Token.Type.STAR) {
+	    type = new TypePointer(_tokens.position(_index++), type);
 	}
 		
-	_index--;
 	return type;
-    }
-    // =============================================================================================================================
-
 
-    
+    } // parseType ()
     // =============================================================================================================================
-    /**
-     * Consume whitespace tokens, leaving the position at the first non-whitespace token encountered.
-     * @return The sequence of consecutive whitespace tokens consumed.
-     */
-    private List<Token> consumeWhitespace () {
-
-	// Read whitespace tokens until there are no more, or we encounter a non-whitespace token.
-	List<Token> whitespaces = new LinkedList<Token>();
-	Token       token       = null;
-	while ( !endOfTokens() && (token = _tokens.get(_index++)).isWhitespace() ) {
-	    whitespaces.add(token);
-	}
-
-	// Put the final token back into play if we didn't hit the end of the input
-	// or if the final token of the input was not whitespace (and might be meaningful).
-	if ( !endOfTokens() || (token != null && !token.isWhitespace()) ) {
-	    _index -= 1;
-	}
 
-	return whitespaces;
-
-    } // consumeWhitespace ()
-    // =============================================================================================================================
 
     
-
     // =============================================================================================================================
     private boolean endOfTokens () {
 
@@ -841,39 +757,25 @@ public class Parser {
 	testSizeOf();
     }
 
-    public static void testVariableDeclarationList() {
-	ArrayList<Token> tokens = new ArrayList<>();
-	tokens.add(new Token("[", 0, Token.Type.OPENBRACKET));
-	tokens.add(new Token("one", 1, Token.Type.NAME));
-	tokens.add(new Token(2, Token.Type.STAR));
-	tokens.add(new Token(3, Token.Type.STAR));
-	tokens.add(new Token(4, Token.Type.STAR));
-	tokens.add(new Token("two", 5, Token.Type.NAME));
-	tokens.add(new Token(",", 6, Token.Type.COMMA));
-	tokens.add(new Token("char", 7, Token.Type.NAME));
-	tokens.add(new Token("three", 8, Token.Type.NAME));
-	tokens.add(new Token("]", 9, Token.Type.CLOSEBRACKET));
+    private static Parser scanned(String source) {
+	SourceBuffer buffer      = new SourceBuffer("Parser", source);
+	Diagnostics  diagnostics = new Diagnostics(0, System.err);
+	Parser parser = new Parser(new Lexer(buffer, diagnostics).scan(), diagnostics);
+	parser._index = 0; // Since we aren't calling parse() directly, we need to tell the parser where to start.
+	return parser;
+    }
 
+    public static void testVariableDeclarationList() {
 	System.out.println("Testing variable declaration list parsing...");
-	System.out.println("Scanned variable list should be: [one*** two, char three]");
-	Parser parser = new Parser(tokens);
-	parser._index = 0;
+	System.out.println("Scanned variable list should be: [int*** two, char three]");
+	Parser parser = scanned("[int*** two, char three]");
 	System.out.println(parser.parseVariableDeclarationList(false));
     }
 
     public static void testType() {
-	// int***
-	ArrayList<Token> tokens = new ArrayList<>();
-	tokens.add(new Token("int", 0, Token.Type.NAME));
-	tokens.add(new Token(1, Token.Type.STAR));
-	tokens.add(new Token(2, Token.Type.STAR));
-	tokens.add(new Token(3, Token.Type.STAR));
-	tokens.add(new Token(4, Token.Type.NEWLINE)); // All token lists must end with a newline!
-
 	System.out.println("Testing type parsing...");
 
-	Parser parser = new Parser(tokens);
-	parser._index = 0; // Since we aren't calling parse() directly, _index is -1. We need to tell the parser that this is not a mistake, and we really do want to call a submethod directly
+	Parser parser = scanned("int***");
 	Type t = parser.parseType();
 
 	System.out.println("Scanned type (should be int***): " + t);
@@ -882,39 +784,16 @@ public class Parser {
 
 
     public static void testMemory() {
-	// memory(5)
-	ArrayList<Token> tokens = new ArrayList<>();
-	tokens.add(new Token("memory", 0, Token.Type.NAME));
-	tokens.add(new Token(3, Token.Type.OPENPAREN));
-	tokens.add(new Token(4, Token.Type.SPACE));
-	tokens.add(new Token(5, Token.Type.SPACE));
-
-	tokens.add(new Token("5", 6, Token.Type.INTEGER));
-
-	tokens.add(new Token(7, Token.Type.NEWLINE));
-	tokens.add(new Token(8, Token.Type.CLOSEPAREN));
-	tokens.add(new Token(2, Token.Type.NEWLINE)); // All token lists must end with a newline!
-
-
 	System.out.println("Testing memory parsing...");
-	Parser parser = new Parser(tokens);
-	parser._index = 0; // Since we aren't calling parse() directly, _index is -1. We need to tell the parser that this is not a mistake, and we really do want to call a submethod directly
+	Parser parser = scanned("(memory  5\n)");
 	Expression memory = parser.parseExpression();
 	System.out.println("Scanned memory token (should be (memory 5)): " + memory);
     }
 
     public static void testSizeOf() {
-	// sizeof(int)
-	ArrayList<Token> tokens = new ArrayList<>();
-	tokens.add(new Token("sizeof", 0, Token.Type.NAME));
-	tokens.add(new Token(1, Token.Type.OPENPAREN));
-	tokens.add(new Token("int", 2, Token.Type.NAME));
-	tokens.add(new Token(4, Token.Type.CLOSEPAREN));
-
 	System.out.println("Testing sizeOf...");
 	System.out.println("Scanned sizeOf token (should be (sizeof int))");
-	Parser parser = new Parser(tokens);
-	parser._index = 0;
+	Parser parser = scanned("sizeof(int)");
 	System.out.println(parser.parseExpression());
     }
 
@@ -1,6 +1,3 @@
-import java.util.ArrayList;
-import java.util.List;
-
 public class ParserTester {
 	public static void main(String[] args) {
 	//Anthonys test code
@@ -20,29 +17,25 @@ public class ParserTester {
             """;
 
 
-	    List<Character> sourceCharacters = new ArrayList<Character>();
-	    
-	// read source into list of characters to pass
-	for (char c : sourceCode.toCharArray()) {
-		sourceCharacters.add(c);
-	}
+	    SourceBuffer source      = new SourceBuffer("ParserTester", sourceCode);
+	    Diagnostics  diagnostics = new Diagnostics(0, System.err);
 
 	// Pass to Lexer
-	Lexer lexer = new Lexer(sourceCharacters);
-	List<Token> tokens = lexer.scan();
+	Lexer lexer = new Lexer(source, diagnostics);
+	TokenBuffer tokens = lexer.scan();
 
 	System.out.println("Tokens:");
-	for (Token token : tokens) {
-		System.out.println(token);
+	for (int i = 0; i < tokens.size(); i++) {
+		System.out.println(tokens.toString(i));
 	}
 
-	Parser parser = new Parser(tokens);
+	Parser parser = new Parser(tokens, diagnostics);
 	try {
 		Program program = parser.parse();
 		System.out.println("\nParsed Program:");
 		System.out.println(program);
-	} catch (Exception e) {
-		System.err.println("Error parsing/not our fault: " + e.getMessage());
+	} catch (CompilationException e) {
+		System.err.println(e._diagnostic.format(source.map()));
 	}
 	}
  }  
@@ -0,0 +1,489 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * A peephole optimizer over generated assembly.  It slides a window of a few lines over a procedure's code, held as a list of
+ * <code>Instruction</code>s, and rewrites short sequences that have a cheaper equivalent:
+ * <ul>
+ *   <li><code>jump-to-jump</code>: a jump (or branch) to a label whose code is only a jump goes straight to the final target;</li>
+ *   <li><code>jump-to-next</code>: a <code>jmp</code> to the label that immediately follows it is dropped;</li>
+ *   <li><code>unreachable</code>: after a <code>jmp</code> or <code>ret</code>, instructions and labels that nothing refers to
+ *       are dropped, up to the next label still in use;</li>
+ *   <li><code>copy-back</code>: <code>mov a, b; mov b, a</code> between registers loses the second move, since <code>b</code>
+ *       already holds the value.</li>
+ * </ul>
+ * The jumps are threaded across the whole procedure: which labels lead only to a jump, and which labels are referred to at
+ * all, are gathered afresh before each pass.  Comment and blank lines are invisible to the rules, and are kept.  The window
+ * bounds how many of the other lines (instructions and labels) one rewrite may span; a window of 0 disables the optimizer.
+ *
+ * Procedures may be optimized concurrently by one optimizer, which counts, across all of them, the rewrites that each rule
+ * made.
+ */
+public class PeepholeOptimizer {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The window used unless another is chosen: wide enough for every rule. */
+    public static final int DEFAULT_WINDOW = 3;
+
+    /**
+     * The most passes made over one procedure.  Each rewrite can expose another (dropping unreachable code one line a pass
+     * can leave a jump to the next label), so chains of several passes are common; this bound only guards against a cycle.
+     */
+    private static final int MAX_PASSES = 16;
+
+    /** The rules, in the order in which they are tried at each position. */
+    private static final Rule[] RULES = {
+	new JumpToJumpRule(), new JumpToNextRule(), new UnreachableRule(), new CopyBackRule()
+    };
+
+    /** The number of lines (instructions and labels) that one rewrite may span. */
+    private final int             _window;
+
+    /** The number of rewrites made by each rule, indexed as <code>RULES</code>. */
+    private final AtomicLongArray _rewrites;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a peephole optimizer.
+     *
+     * @param window The number of lines (instructions and labels) that one rewrite may span; 0 to disable optimization.
+     */
+    public PeepholeOptimizer (int window) {
+
+	_window   = window;
+	_rewrites = new AtomicLongArray(RULES.length);
+
+    } // PeepholeOptimizer ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether this optimizer rewrites anything at all.
+     *
+     * @return <code>true</code> if the window is wide enough for at least one rule; <code>false</code> otherwise.
+     */
+    public boolean isEnabled () {
+
+	return _window > 0;
+
+    } // isEnabled ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Optimize a sequence of assembly lines, making passes over it until no rule applies (or the limit on passes is reached).
+     *
+     * @param lines The lines, which are not changed.
+     * @return the optimized lines.
+     */
+    public List<Instruction> optimize (List<Instruction> lines) {
+
+	if (!isEnabled()) {
+	    return lines;
+	}
+	for (int pass = 0; pass < MAX_PASSES; pass += 1) {
+	    List<Instruction> optimized = optimizePass(lines);
+	    if (optimized == lines) {
+		break;
+	    }
+	    lines = optimized;
+	}
+	return lines;
+
+    } // optimize ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Make one pass over a sequence of assembly lines, applying at each position the first rule that matches.
+     *
+     * @param lines The lines.
+     * @return the rewritten lines, or the same list if no rule applied.
+     */
+    private List<Instruction> optimizePass (List<Instruction> lines) {
+
+	Labels            labels      = new Labels(lines);
+	List<Instruction> optimized   = new ArrayList<Instruction>(lines.size());
+	List<Instruction> window      = new ArrayList<Instruction>(_window);
+	List<Integer>     positions   = new ArrayList<Integer>(_window);
+	List<Instruction> replacement = new ArrayList<Instruction>();
+	boolean           changed     = false;
+
+	int i = 0;
+	while (i < lines.size()) {
+
+	    // Comments and blank lines are passed through untouched.
+	    if (!isSignificant(lines.get(i))) {
+		optimized.add(lines.get(i));
+		i += 1;
+		continue;
+	    }
+
+	    // Gather the window: the significant lines from here, skipping over the others.
+	    window.clear();
+	    positions.clear();
+	    for (int j = i; j < lines.size() && window.size() < _window; j += 1) {
+		if (isSignificant(lines.get(j))) {
+		    window.add(lines.get(j));
+		    positions.add(j);
+		}
+	    }
+
+	    // Try each rule in turn.
+	    int consumed = 0;
+	    for (int r = 0; r < RULES.length && consumed == 0; r += 1) {
+		replacement.clear();
+		consumed = RULES[r].apply(window, labels, replacement);
+		if (consumed > 0) {
+		    _rewrites.incrementAndGet(r);
+		}
+	    }
+	    if (consumed == 0) {
+		optimized.add(lines.get(i));
+		i += 1;
+		continue;
+	    }
+
+	    // Keep the comment and blank lines among those rewritten, then the replacement.
+	    int end = positions.get(consumed - 1);
+	    for (int j = i; j < end; j += 1) {
+		if (!isSignificant(lines.get(j))) {
+		    optimized.add(lines.get(j));
+		}
+	    }
+	    optimized.addAll(replacement);
+	    i       = end + 1;
+	    changed = true;
+
+	}
+
+	return changed ? optimized : lines;
+
+    } // optimizePass ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of rewrites that each rule has made so far.
+     *
+     * @return the counts, by rule name, in the order in which the rules are tried.
+     */
+    public Map<String, Long> getRewriteCounts () {
+
+	Map<String, Long> counts = new LinkedHashMap<String, Long>();
+	for (int r = 0; r < RULES.length; r += 1) {
+	    counts.put(RULES[r]._name, _rewrites.get(r));
+	}
+	return counts;
+
+    } // getRewriteCounts ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a line can take part in a rewrite: an instruction or a label, as opposed to a comment or blank line.
+     *
+     * @param line The line.
+     * @return <code>true</code> if the line is significant; <code>false</code> otherwise.
+     */
+    private static boolean isSignificant (Instruction line) {
+
+	return line._kind == Instruction.Kind.INSTRUCTION || line._kind == Instruction.Kind.LABEL;
+
+    } // isSignificant ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a line is an instruction with the given opcode and number of operands.
+     *
+     * @param line     The line.
+     * @param opcode   The opcode.
+     * @param operands The number of operands.
+     * @return <code>true</code> if it is; <code>false</code> otherwise.
+     */
+    private static boolean is (Instruction line, String opcode, int operands) {
+
+	return line._kind == Instruction.Kind.INSTRUCTION && line._opcode.equals(opcode) && line._operands.length == operands;
+
+    } // is ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a line is an unconditional transfer of control: a <code>jmp</code> or a <code>ret</code>.
+     *
+     * @param line The line.
+     * @return <code>true</code> if it is; <code>false</code> otherwise.
+     */
+    private static boolean isUnconditional (Instruction line) {
+
+	return is(line, "jmp", 1) || is(line, "ret", 0);
+
+    } // isUnconditional ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a line is a jump or conditional branch to a label.
+     *
+     * @param line The line.
+     * @return <code>true</code> if it is; <code>false</code> otherwise.
+     */
+    private static boolean isJump (Instruction line) {
+
+	return line._kind == Instruction.Kind.INSTRUCTION && line._opcode.startsWith("j") && line._operands.length == 1;
+
+    } // isJump ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether an operand is a register (as opposed to memory or an immediate).
+     *
+     * @param operand The operand.
+     * @return <code>true</code> if it names a general-purpose register; <code>false</code> otherwise.
+     */
+    private static boolean isRegister (String operand) {
+
+	try {
+	    Register.valueOf(operand.toUpperCase());
+	    return true;
+	} catch (IllegalArgumentException e) {
+	    return false;
+	}
+
+    } // isRegister ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * What is known of the labels of one procedure's code, as it stands at the start of a pass.
+     */
+    private static final class Labels {
+
+	/** The labels referred to by some instruction. */
+	final Set<String>         _referenced = new HashSet<String>();
+
+	/** For each label whose code is only a jump, where the jump (and any jumps that it leads to) ends up. */
+	final Map<String, String> _forwarded  = new HashMap<String, String>();
+
+	Labels (List<Instruction> lines) {
+
+	    // The labels used, and those that are immediately followed (past other labels) by a jump.
+	    Map<String, String> jumps   = new HashMap<String, String>();
+	    List<String>        pending = new ArrayList<String>();
+	    for (Instruction line : lines) {
+		if (line._kind == Instruction.Kind.LABEL) {
+		    pending.add(line._label);
+		} else if (line._kind == Instruction.Kind.INSTRUCTION) {
+		    if (isJump(line)) {
+			_referenced.add(line._operands[0]);
+		    }
+		    if (is(line, "jmp", 1)) {
+			for (String label : pending) {
+			    jumps.put(label, line._operands[0]);
+			}
+		    }
+		    pending.clear();
+		}
+	    }
+
+	    // Follow each chain of jumps to its end, stopping if it loops.
+	    for (String label : jumps.keySet()) {
+		Set<String> visited = new HashSet<String>();
+		String      target  = label;
+		while (jumps.containsKey(target) && visited.add(target)) {
+		    target = jumps.get(target);
+		}
+		if (!visited.contains(target)) {
+		    _forwarded.put(label, target);
+		}
+	    }
+	}
+
+    } // class Labels
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * A rewrite of a short sequence of lines.
+     */
+    private static abstract class Rule {
+
+	/** The name under which the rule's rewrites are reported. */
+	final String _name;
+
+	Rule (String name) {
+	    _name = name;
+	}
+
+	/**
+	 * Rewrite the lines at the start of a window, if the rule applies to them.
+	 *
+	 * @param window      The significant lines from the current position; at least one.
+	 * @param labels      What is known of the labels of the procedure.
+	 * @param replacement The list to which to add the lines that replace those rewritten.
+	 * @return the number of lines at the start of the window rewritten; 0 if the rule does not apply.
+	 */
+	abstract int apply (List<Instruction> window, Labels labels, List<Instruction> replacement);
+
+    } // class Rule
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * <code>j<i>cc</i> L</code>, where the code at <code>L</code> is only <code>jmp M</code> (perhaps through further such
+     * jumps), becomes <code>j<i>cc</i> M</code>.
+     */
+    private static final class JumpToJumpRule extends Rule {
+
+	JumpToJumpRule () {
+	    super("jump-to-jump");
+	}
+
+	int apply (List<Instruction> window, Labels labels, List<Instruction> replacement) {
+	    Instruction jump = window.get(0);
+	    if (!isJump(jump) || !labels._forwarded.containsKey(jump._operands[0])) {
+		return 0;
+	    }
+	    String target = labels._forwarded.get(jump._operands[0]);
+	    replacement.add(Instruction.instruction(jump._opcode, target).comment(jump.getComment()));
+	    return 1;
+	}
+
+    } // class JumpToJumpRule
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * <code>jmp L</code> followed by <code>L:</code> is dropped: control falls through to <code>L</code> anyway.
+     */
+    private static final class JumpToNextRule extends Rule {
+
+	JumpToNextRule () {
+	    super("jump-to-next");
+	}
+
+	int apply (List<Instruction> window, Labels labels, List<Instruction> replacement) {
+	    if (window.size() < 2 || !is(window.get(0), "jmp", 1)) {
+		return 0;
+	    }
+	    Instruction next = window.get(1);
+	    if (next._kind != Instruction.Kind.LABEL || !next._label.equals(window.get(0)._operands[0])) {
+		return 0;
+	    }
+	    return 1;
+	}
+
+    } // class JumpToNextRule
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * <code>jmp L</code> or <code>ret</code> followed by an instruction, or by a label that nothing refers to, loses what
+     * follows: control can never reach it.
+     */
+    private static final class UnreachableRule extends Rule {
+
+	UnreachableRule () {
+	    super("unreachable");
+	}
+
+	int apply (List<Instruction> window, Labels labels, List<Instruction> replacement) {
+	    if (window.size() < 2 || !isUnconditional(window.get(0))) {
+		return 0;
+	    }
+	    Instruction next = window.get(1);
+	    if (next._kind == Instruction.Kind.LABEL && labels._referenced.contains(next._label)) {
+		return 0;
+	    }
+	    replacement.add(window.get(0));
+	    return 2;
+	}
+
+    } // class UnreachableRule
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * <code>mov a, b; mov b, a</code>, with <code>a</code> and <code>b</code> registers, becomes <code>mov a, b</code>.
+     */
+    private static final class CopyBackRule extends Rule {
+
+	CopyBackRule () {
+	    super("copy-back");
+	}
+
+	int apply (List<Instruction> window, Labels labels, List<Instruction> replacement) {
+	    if (window.size() < 2 || !is(window.get(0), "mov", 2) || !is(window.get(1), "mov", 2)) {
+		return 0;
+	    }
+	    String[] there = window.get(0)._operands;
+	    String[] back  = window.get(1)._operands;
+	    if (!isRegister(there[0]) || !isRegister(there[1]) || !back[0].equals(there[1]) || !back[1].equals(there[0])) {
+		return 0;
+	    }
+	    replacement.add(window.get(0));
+	    return 2;
+	}
+
+    } // class CopyBackRule
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class PeepholeOptimizer
+// =================================================================================================================================
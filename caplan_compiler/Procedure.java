@@ -4,6 +4,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -25,6 +26,9 @@ abstract public class Procedure extends Declaration {
 
     // The local variable table, mapping names to declarations (for both parameters and locals).
     public final Map<String, Declaration>  _localsTable;
+
+    /** The program to which this procedure belongs. */
+    private Program                        _program;
     // =============================================================================================================================
 
 
@@ -47,9 +51,8 @@ abstract public class Procedure extends Declaration {
 	for (Declaration variable : _parameters) {
 	    Declaration oldVariable = _localsTable.put(variable._name, variable);
 	    if (oldVariable != null) {
-		Utility.error("Duplicate variable declaration\nPrevious declaration " +
-			       Utility.positionToLineColumn(oldVariable._position) + oldVariable._position + ")",
-			      variable._position);
+		Utility.error("Duplicate variable declaration", variable._position,
+			      "Previous declaration", oldVariable._position);
 	    }
 	}	
 	
@@ -58,6 +61,36 @@ abstract public class Procedure extends Declaration {
 
 
 
+    // =============================================================================================================================
+    /**
+     * Provide the program to which this procedure belongs.
+     *
+     * @return the containing program.
+     */
+    public Program getProgram () {
+
+	return _program;
+
+    } // getProgram ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Set the program to which this procedure belongs.
+     *
+     * @param program The containing program.
+     */
+    public void setProgram (Program program) {
+
+	_program = program;
+
+    } // setProgram ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Bind the local variables of a procedure to the global variables declarations and arguments passed in
@@ -81,6 +114,42 @@ abstract public class Procedure extends Declaration {
     
 
 
+    // =============================================================================================================================
+    /**
+     * Fold constant expressions in this procedure (see <code>Program.fold()</code>).  By default, there is nothing to fold.
+     */
+    public void fold () {}
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which the body of this procedure refers: the variables that it uses and the procedures
+     * that it calls.  By default, there is no body.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {}
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove the local variables to which the body does not refer.  By default, there are none.
+     *
+     * @return the local variables removed.
+     */
+    public List<VariableDeclaration> removeUnusedLocals () {
+
+	return List.of();
+
+    } // removeUnusedLocals ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Provide whether the procedure uses variadic arguments.
@@ -96,9 +165,9 @@ abstract public class Procedure extends Declaration {
     /**
      * Generate assembly for this procedure.
      *
-     * @return the code-segment assembly for this procedure.
+     * @param out The destination for the code-segment assembly.
      */
-    abstract public String toAssembly ();
+    abstract public void toAssembly (AssemblyWriter out);
     // =============================================================================================================================
 
 
@@ -107,9 +176,9 @@ abstract public class Procedure extends Declaration {
     /**
      * Generate assembly for any statically allocated elements in this procedure.
      *
-     * @return the statics-segment assembly for this procedure.
+     * @param out The destination for the statics-segment assembly.
      */
-    abstract public String toStatics ();
+    abstract public void toStatics (AssemblyWriter out);
     // =============================================================================================================================
 
 
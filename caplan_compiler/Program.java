@@ -1,11 +1,18 @@
 // =================================================================================================================================
 // IMPORTS
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 // =================================================================================================================================
 
 
@@ -14,7 +21,7 @@ import java.util.Set;
 /**
  * A single program, which is a list statements to evaluate.
  */
-public class Program {
+public final class Program {
 // =================================================================================================================================
 
 
@@ -25,6 +32,9 @@ public class Program {
     /** The expressions in order in which they appear in the source. */
     public List<Procedure>           _procedures;
 
+    /** The fewest procedures for which code generation is done in parallel (given more than one processor). */
+    private static final int         PARALLEL_THRESHOLD = 64;
+
     /** The procedure table, mapping procedure names to their declarations. */
     public Map<String, Declaration>  _procedureTable;
 
@@ -33,6 +43,38 @@ public class Program {
 
     /** The global variable table, mapping variable names to their declarations. */
     public Map<String, Declaration>  _variableTable;
+
+    /** The diagnostics of the compilation that produced this program. */
+    private final Diagnostics        _diagnostics;
+
+    /** The policy by which calls are inlined as code is generated; <code>null</code> until then. */
+    private Inliner                  _inliner;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * The assembly generated for one procedure apart from the rest of the program: its code (if it is defined here and still
+     * called) and its statics.
+     */
+    private static final class GeneratedProcedure {
+
+	/** The code of the procedure, once optimized. */
+	final AssemblyBuffer _code    = new AssemblyBuffer();
+
+	/** The statics of the procedure. */
+	final AssemblyBuffer _statics = new AssemblyBuffer();
+
+	GeneratedProcedure (Procedure procedure, IRFunction function, PeepholeOptimizer optimizer) {
+	    if (function != null) {
+		((InternalProcedure)procedure).toAssembly(function, _code);
+		_code.optimize(optimizer);
+	    }
+	    procedure.toStatics(_statics);
+	}
+
+    } // class GeneratedProcedure
     // =============================================================================================================================
 
 
@@ -41,37 +83,72 @@ public class Program {
     /**
      * Create a new program from a given list of statements.
      *
-     * @param statements A list of statments.
+     * @param procedures  The procedures, in the order declared.
+     * @param variables   The global variables, in the order declared.
+     * @param diagnostics The diagnostics of the compilation.
      */
-    public Program (List<Procedure> procedures, List<VariableDeclaration> variables) {
+    public Program (List<Procedure> procedures, List<VariableDeclaration> variables, Diagnostics diagnostics) {
 
-	_procedures = procedures;
-        _variables  = variables;
+	_procedures  = procedures;
+        _variables   = variables;
+	_diagnostics = diagnostics;
 
 	// Create the procedure and variable symbol tables.
 	_procedureTable = new HashMap<String, Declaration>();
 	for (Declaration procedure : _procedures) {
 	    Declaration oldProcedure = _procedureTable.put(procedure._name, procedure);
 	    if (oldProcedure != null) {
-		Utility.error("Duplicate procedure declaration\nPrevious declaration " +
-			       Utility.positionToLineColumn(oldProcedure._position),
-			      procedure._position);
+		Utility.error("Duplicate procedure declaration", procedure._position,
+			      "Previous declaration", oldProcedure._position);
 	    }
 	}
 	_variableTable = new HashMap<String, Declaration>();
 	for (Declaration variable : _variables) {
 	    Declaration oldVariable = _variableTable.put(variable._name, variable);
 	    if (oldVariable != null) {
-		Utility.error("Duplicate variable declaration\nPrevious declaration " +
-			       Utility.positionToLineColumn(oldVariable._position) + oldVariable._position + ")",
-			      variable._position);
+		Utility.error("Duplicate variable declaration", variable._position,
+			      "Previous declaration", oldVariable._position);
 	    }
 	}
 
+	for (Procedure procedure : _procedures) {
+	    procedure.setProgram(this);
+	}
+
     } // Program ()
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Provide the diagnostics of the compilation that produced this program.
+     *
+     * @return the diagnostics.
+     */
+    public Diagnostics getDiagnostics () {
+
+	return _diagnostics;
+
+    } // getDiagnostics ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the policy by which calls are inlined as code is generated.
+     *
+     * @return the inliner; <code>null</code> if code is not being generated.
+     */
+    public Inliner getInliner () {
+
+	return _inliner;
+
+    } // getInliner ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -103,46 +180,272 @@ public class Program {
 
     
 
+    // =============================================================================================================================
+    /**
+     * Fold constant expressions throughout the verified program: operations on literals are evaluated at compile time, and
+     * identities such as <code>x * 1</code> and <code>x + 0</code> are simplified away.  Each folded expression keeps the type
+     * that verification gave it.
+     */
+    public void fold () {
+
+        for (Procedure procedure : _procedures) {
+            procedure.fold();
+        }
+	
+    } // fold ()
+    // =============================================================================================================================
+
+
+    
+
+    // =============================================================================================================================
+    /**
+     * Remove what cannot affect the running program: the procedures that cannot be reached from <code>main</code> through the
+     * call graph, the global variables and <code>extern</code> declarations to which no remaining procedure refers, and the
+     * local variables to which their own procedure does not refer.  The statements that cannot be reached within a procedure
+     * are removed by <code>fold()</code>, which should come first.  Without a <code>main</code>, nothing is known to be
+     * called, so only unused locals are removed.
+     */
+    public void removeDeadCode () {
+
+	// Walk the call graph from main, collecting every declaration referred to along the way.
+	Set<Declaration> reached = new HashSet<Declaration>();
+	Declaration      main    = _procedureTable.get("main");
+	if (main != null) {
+	    List<Procedure> work = new ArrayList<Procedure>();
+	    reached.add(main);
+	    work.add((Procedure)main);
+	    while (!work.isEmpty()) {
+		Set<Declaration> references = new HashSet<Declaration>();
+		work.remove(work.size() - 1).findReferences(references);
+		for (Declaration reference : references) {
+		    if (reached.add(reference) && reference instanceof Procedure procedure) {
+			work.add(procedure);
+		    }
+		}
+	    }
+
+	    for (Procedure procedure : _procedures) {
+		if (!reached.contains(procedure)) {
+		    _diagnostics.debug(1, () -> "Removed unreachable procedure " + procedure._name);
+		}
+	    }
+	    for (VariableDeclaration variable : _variables) {
+		if (!reached.contains(variable)) {
+		    _diagnostics.debug(1, () -> "Removed unused global " + variable._name);
+		}
+	    }
+	    _procedures.removeIf(procedure -> !reached.contains(procedure));
+	    _procedureTable.values().removeIf(procedure -> !reached.contains(procedure));
+	    _variables.removeIf(variable -> !reached.contains(variable));
+	    _variableTable.values().removeIf(variable -> !reached.contains(variable));
+	}
+
+	for (Procedure procedure : _procedures) {
+	    for (VariableDeclaration local : procedure.removeUnusedLocals()) {
+		_diagnostics.debug(1, () -> "Removed unused local " + local._name + " of " + procedure._name);
+	    }
+	}
+
+    } // removeDeadCode ()
+    // =============================================================================================================================
+
+    
+
     // =============================================================================================================================
     /**
      * Generate assembly code that will execute this program.
      *
-     * @return the generated assembly code.
+     * @param out       The destination for the generated assembly.
+     * @param optimizer The peephole optimizer through which to pass the code of each procedure.
+     * @param inliner   The policy by which calls are inlined.
      */
-    public String toAssembly() {
+    public void toAssembly (AssemblyWriter out, PeepholeOptimizer optimizer, Inliner inliner) {
+
+	_inliner = inliner;
 
         // Prologue: stub code, setting up and starting the code portion of the
         // assembly.
-        String assembly = "\tglobal\tmain\n";
+        out.directive("global", "main");
 
 	// Declare all extern procedures.
 	for (Procedure procedure : _procedures) {
 	    if (procedure instanceof ExternalProcedure) {
-		assembly += procedure.toAssembly();
+		procedure.toAssembly(out);
+	    }
+	}
+
+	out.directive("section", ".text");
+	out.blank();
+
+	// Lower each defined (internal) procedure, then generate the code of those lowered, and then the statics.  Once
+	// verified, procedures are independent of one another, so a large program lowers and generates them in parallel, each
+	// into its own buffers, and splices the buffers in source order; the output is the same as generating them one after
+	// another.  Either way, the code of each procedure is held until it has been through the peephole optimizer.
+	boolean          parallel  = _procedures.size() >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() >= 2;
+	List<IRFunction> functions = forEachProcedure(parallel, i ->
+						      _procedures.get(i) instanceof InternalProcedure procedure ? procedure.lower() : null);
+	removeInlinedProcedures(functions);
+
+	if (!parallel) {
+	    for (int i = 0; i < _procedures.size(); i += 1) {
+		IRFunction function = functions.get(i);
+		if (function == null) {
+		    continue;
+		}
+		InternalProcedure procedure = (InternalProcedure)_procedures.get(i);
+		if (optimizer.isEnabled()) {
+		    AssemblyBuffer code = new AssemblyBuffer();
+		    procedure.toAssembly(function, code);
+		    code.optimize(optimizer);
+		    code.replayTo(out);
+		} else {
+		    procedure.toAssembly(function, out);
+		}
 	    }
+	    toDataSection(out);
+	    for (Procedure procedure : _procedures) {
+		procedure.toStatics(out);
+	    }
+	    return;
 	}
 
-	assembly += "\tsection\t.text\n\n";
+	List<GeneratedProcedure> generated = forEachProcedure(true, i ->
+							      new GeneratedProcedure(_procedures.get(i), functions.get(i), optimizer));
+	for (GeneratedProcedure procedure : generated) {
+	    procedure._code.replayTo(out);
+	}
+	toDataSection(out);
+	for (GeneratedProcedure procedure : generated) {
+	    procedure._statics.replayTo(out);
+	}
 
-        // Generate the code of each defined (internal) procedure.
-        for (Procedure procedure : _procedures) {
-	    if (procedure instanceof InternalProcedure) {
-		assembly += procedure.toAssembly();
+    } // toAssembly ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Apply a task to each procedure, in source order or in parallel.
+     *
+     * @param parallel Whether to apply the task to the procedures in parallel.
+     * @param task     The task, given the index of a procedure.
+     * @return the result of the task for each procedure, in source order.
+     */
+    private <T> List<T> forEachProcedure (boolean parallel, IntFunction<T> task) {
+
+	List<T> results = new ArrayList<T>(_procedures.size());
+	if (!parallel) {
+	    for (int i = 0; i < _procedures.size(); i += 1) {
+		results.add(task.apply(i));
 	    }
-        }
-			    
+	    return results;
+	}
+
+	// Generating code recurses over the program tree as the earlier phases do, so the pool's threads need stacks as large.
+	ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+							    CompilerSession::newThread);
+	try {
+	    List<Future<T>> futures = new ArrayList<Future<T>>(_procedures.size());
+	    for (int i = 0; i < _procedures.size(); i += 1) {
+		int index = i;
+		futures.add(pool.submit(() -> task.apply(index)));
+	    }
+	    for (Future<T> future : futures) {
+		results.add(future.get());
+	    }
+	} catch (ExecutionException e) {
+	    // Fail as applying the task on this thread would have.
+	    if (e.getCause() instanceof RuntimeException failure) {
+		throw failure;
+	    } else if (e.getCause() instanceof Error failure) {
+		throw failure;
+	    }
+	    throw new IllegalStateException(e.getCause());
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    Utility.abort("Code generation interrupted");
+	} finally {
+	    pool.shutdownNow();
+	}
+	return results;
+
+    } // forEachProcedure ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Drop the functions of the internal procedures that are no longer called once calls have been inlined: those that no
+     * call left in the functions reachable from <code>main</code> can reach.  Their statics are kept, since code inlined from
+     * them may use them.
+     *
+     * @param functions The function lowered from each procedure, in source order; <code>null</code> for an external procedure.
+     *                  Those dropped are set to <code>null</code>.
+     */
+    private void removeInlinedProcedures (List<IRFunction> functions) {
+
+	if (!_procedureTable.containsKey("main")) {
+	    return;
+	}
+
+	// Walk the calls left in the functions, from main.
+	Map<String, IRFunction> byName  = new HashMap<String, IRFunction>();
+	for (IRFunction function : functions) {
+	    if (function != null) {
+		byName.put(function._name, function);
+	    }
+	}
+	Set<String>  reached = new HashSet<String>();
+	List<String> work    = new ArrayList<String>();
+	reached.add("main");
+	work.add("main");
+	while (!work.isEmpty()) {
+	    IRFunction function = byName.get(work.remove(work.size() - 1));
+	    if (function == null) {
+		continue;
+	    }
+	    for (BasicBlock block : function.getBlocks()) {
+		for (IRInstruction instruction : block._instructions) {
+		    if (instruction._opcode == IRInstruction.Opcode.CALL && reached.add(instruction.getCallee())) {
+			work.add(instruction.getCallee());
+		    }
+		}
+	    }
+	}
+
+	for (int i = 0; i < functions.size(); i += 1) {
+	    String name = _procedures.get(i)._name;
+	    if (functions.get(i) != null && !reached.contains(name)) {
+		_diagnostics.debug(1, () -> "Removed procedure " + name + ", inlined wherever it was called");
+		functions.set(i, null);
+	    }
+	}
+
+    } // removeInlinedProcedures ()
+    // =============================================================================================================================
+
+
+    
+    // =============================================================================================================================
+    /**
+     * Begin the data section, defining the global variables.  The procedures' statics follow.
+     *
+     * @param out The destination for the generated assembly.
+     */
+    private void toDataSection (AssemblyWriter out) {
+
         // Epilogue stub code: Add any statically allocated string literals.
-        assembly += "\n\tsection\t.data\n\n";
+	out.blank();
+        out.directive("section", ".data");
+	out.blank();
         for (VariableDeclaration variable : _variables) {
-            assembly += variable.toStatics();
+            variable.toStatics(out);
         }
-        for (Procedure procedure : _procedures) {
-            assembly += procedure.toStatics();
-        }
-
-        return assembly;
 
-    } // toAssembly ()
+    } // toDataSection ()
     // =============================================================================================================================
 
 
@@ -37,6 +37,11 @@ public class ReferenceOperator extends Operator {
 	    Utility.error("Reference Operation's operand not an l-value, cannot be referenced", operands[0]._position);
 	}
 
+	// A variable whose address is taken must be kept in memory, where the pointer can reach it.
+	if (operands[0] instanceof Variable variable) {
+	    variable.getDeclaration().setAddressTaken();
+	}
+
         // Type of this expression is a ptr to whatever the type of its operand is
         return new TypePointer(_position, expr_type);
 
@@ -47,13 +52,13 @@ public class ReferenceOperator extends Operator {
 
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-	// To evaluate a reference of the operand, simply evaluate it as an l-value, which are the only operands that can be
+	// To evaluate a reference of the operand, simply lower it as an l-value, which are the only operands that can be
 	// referenced.
-	return operands[0].toAssembly_l();
+	return operands[0].toIR_l(ir);
 	
-    } // toAssembly ()
+    } // toIR ()
     // =============================================================================================================================
 
     
@@ -0,0 +1,100 @@
+// =================================================================================================================================
+/**
+ * A general-purpose x86-64 register, by its full (64-bit) and low-byte names.
+ */
+public enum Register {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // VALUES
+
+    RAX ("rax", "al"),
+    RBX ("rbx", "bl"),
+    RCX ("rcx", "cl"),
+    RDX ("rdx", "dl"),
+    RSI ("rsi", "sil"),
+    RDI ("rdi", "dil"),
+    R8  ("r8",  "r8b"),
+    R9  ("r9",  "r9b"),
+    R10 ("r10", "r10b"),
+    R11 ("r11", "r11b"),
+    R12 ("r12", "r12b"),
+    R13 ("r13", "r13b"),
+    R14 ("r14", "r14b"),
+    R15 ("r15", "r15b");
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The registers in which procedure arguments are passed, in order. */
+    public static final Register[] ARGUMENTS = { RDI, RSI, RDX, RCX, R8, R9 };
+
+    /** The 64-bit name. */
+    private final String _name;
+
+    /** The name of the lowest byte. */
+    private final String _byteName;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private Register (String name, String byteName) {
+
+	_name     = name;
+	_byteName = byteName;
+
+    } // Register ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the name of the part of this register that holds a value of the given type.
+     *
+     * @param type The type of value.
+     * @return the low-byte name for one-byte types; the 64-bit name otherwise.
+     */
+    public String sized (Type type) {
+
+	return type.getSize() == 1 ? _byteName : _name;
+
+    } // sized ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the name of the lowest byte of this register.
+     *
+     * @return the name.
+     */
+    public String low () {
+
+	return _byteName;
+
+    } // low ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	return _name;
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // enum Register
+// =================================================================================================================================
@@ -0,0 +1,167 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.EnumSet;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The registers available for holding values, and which of them are in use at one point of a linear scan over a procedure
+ * (<code>LinearScan</code>), which takes a register when a live interval begins and returns it when the interval ends.
+ *
+ * Caller-saved registers are handed out first, since generated procedures need not preserve them; but no value may be kept
+ * in one across a call, so an interval that spans a call can only have a callee-saved register (which the procedure must
+ * then save and restore).  RAX and RDX are kept back for the fixed roles they play (return values, division), R11 for forming
+ * addresses and operands that cannot be used directly, and RCX is the last caller-saved register handed out because shifts
+ * need CL.
+ */
+public class RegisterPool {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The registers that may be allocated, in order of preference. */
+    private static final Register[] ALLOCATABLE = {
+	Register.R10, Register.R8, Register.R9, Register.RSI, Register.RDI, Register.RCX,
+	Register.RBX, Register.R12, Register.R13, Register.R14, Register.R15
+    };
+
+    /** The allocatable registers that a called procedure preserves. */
+    private static final EnumSet<Register> PRESERVED = EnumSet.of(Register.RBX, Register.R12, Register.R13, Register.R14,
+								  Register.R15);
+
+    /** The registers currently in use. */
+    private final EnumSet<Register> _inUse;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a pool in which every register is free.
+     */
+    public RegisterPool () {
+
+	_inUse = EnumSet.noneOf(Register.class);
+
+    } // RegisterPool ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Take a free register.
+     *
+     * @param preserved Whether the register must be preserved across calls.
+     * @return the register, or <code>null</code> if none is free (in which case the caller must spill to the stack).
+     */
+    public Register allocate (boolean preserved) {
+
+	for (Register register : ALLOCATABLE) {
+	    if ((!preserved || isPreserved(register)) && _inUse.add(register)) {
+		return register;
+	    }
+	}
+	return null;
+
+    } // allocate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Take a particular register, which must be free.
+     *
+     * @param register The register.
+     */
+    public void reserve (Register register) {
+
+	if (!_inUse.add(register)) {
+	    Utility.abort("RegisterPool.reserve(): " + register + " is already in use");
+	}
+
+    } // reserve ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a register is free.
+     *
+     * @param register The register.
+     * @return <code>true</code> if the register may be allocated and is not in use; <code>false</code> otherwise.
+     */
+    public boolean isFree (Register register) {
+
+	return isAllocatable(register) && !_inUse.contains(register);
+
+    } // isFree ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a register is preserved across calls: whether a procedure that uses it must save and restore it.
+     *
+     * @param register The register.
+     * @return <code>true</code> if the register is callee-saved; <code>false</code> otherwise.
+     */
+    public static boolean isPreserved (Register register) {
+
+	return PRESERVED.contains(register);
+
+    } // isPreserved ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether a register is ever handed out by a pool.
+     *
+     * @param register The register.
+     * @return <code>true</code> if the register may be allocated; <code>false</code> otherwise.
+     */
+    public static boolean isAllocatable (Register register) {
+
+	for (Register allocatable : ALLOCATABLE) {
+	    if (allocatable == register) {
+		return true;
+	    }
+	}
+	return false;
+
+    } // isAllocatable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Return a register to the pool.
+     *
+     * @param register The register, which must have been allocated from this pool.
+     */
+    public void free (Register register) {
+
+	if (!_inUse.remove(register)) {
+	    Utility.abort("RegisterPool.free(): " + register + " is not in use");
+	}
+
+    } // free ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class RegisterPool
+// =================================================================================================================================
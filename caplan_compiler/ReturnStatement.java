@@ -1,4 +1,5 @@
 import java.util.Map;
+import java.util.Set;
 
 public class ReturnStatement extends Statement {
 
@@ -36,19 +37,39 @@ public class ReturnStatement extends Statement {
     }
 
     @Override
-    public String toAssembly() {
-        String assembly = new String();
+    public Statement fold() {
         if (exp != null) {
-            assembly += exp.toAssembly();
-            assembly += "\tpop rax ; Save return value in rax\n";
+            exp = exp.fold();
         }
-        assembly += "\tjmp\treturn_" + getProcedure()._name + "\t; Return from procedure PROCEDURENAME\n";
-        return assembly;
+        return this;
     }
 
     @Override
-    public String toStatics() {
-        return exp.toStatics();
+    public void findReferences(Set<Declaration> references) {
+        if (exp != null) {
+            exp.findReferences(references);
+        }
+    }
+
+    @Override
+    public boolean alwaysReturns() {
+        return true;
+    }
+
+    @Override
+    public void toIR(IRBuilder ir) {
+        if (exp != null) {
+            exp.toIR_return(ir);
+        } else {
+            ir.ret(null);
+        }
+    }
+
+    @Override
+    public void toStatics(AssemblyWriter out) {
+        if (exp != null) {
+            exp.toStatics(out);
+        }
     }
 
     public String toString() {
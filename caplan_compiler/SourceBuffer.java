@@ -0,0 +1,189 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The complete text of one source file, held as a single unboxed character array.  The lexer and the error reporting read from
+ * this buffer directly.
+ */
+public class SourceBuffer implements CharSequence {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The pathname (or other descriptive name) of the source. */
+    public final String  _name;
+
+    /** The characters of the source.  Only the first <code>_length</code> of them are meaningful. */
+    private final char[] _chars;
+
+    /** The number of characters in the source. */
+    private final int    _length;
+
+    /** The index of line starts, built on first use. */
+    private SourceMap    _map;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a source buffer over an existing character array.  The array is adopted, not copied.
+     *
+     * @param name   A descriptive name for the source.
+     * @param chars  The characters of the source.
+     * @param length The number of meaningful characters at the start of <code>chars</code>.
+     */
+    public SourceBuffer (String name, char[] chars, int length) {
+
+	_name   = name;
+	_chars  = chars;
+	_length = length;
+
+    } // SourceBuffer ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a source buffer holding a copy of some text.
+     *
+     * @param name A descriptive name for the source.
+     * @param text The text of the source.
+     */
+    public SourceBuffer (String name, CharSequence text) {
+
+	this(name, text.toString().toCharArray(), text.length());
+
+    } // SourceBuffer ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Read an entire source file.  The file is memory-mapped and decoded in a single pass, one character per byte (ISO-8859-1),
+     * so that positions within the buffer are exactly byte offsets within the file.
+     *
+     * @param path The pathname of the source file.
+     * @return a buffer holding the file's text.
+     * @throws IOException if the file cannot be opened or read.
+     */
+    public static SourceBuffer read (String path) throws IOException {
+
+	try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+
+	    long size = channel.size();
+	    if (size > Integer.MAX_VALUE) {
+		throw new IOException("Source file too large: " + path);
+	    }
+
+	    MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	    CharBuffer       chars = StandardCharsets.ISO_8859_1.decode(bytes);
+	    if (chars.hasArray() && chars.arrayOffset() == 0) {
+		return new SourceBuffer(path, chars.array(), chars.remaining());
+	    }
+
+	    // The decoder did not hand back a plain array, so copy out of its buffer.
+	    char[] copy = new char[chars.remaining()];
+	    chars.get(copy);
+	    return new SourceBuffer(path, copy, copy.length);
+
+	}
+
+    } // read ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public char charAt (int index) {
+
+	if (index >= _length) {
+	    throw new IndexOutOfBoundsException(index);
+	}
+	return _chars[index];
+
+    } // charAt ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public int length () {
+
+	return _length;
+
+    } // length ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Copy a range of the source out as a string.
+     *
+     * @param start The position of the first character (inclusive).
+     * @param end   The position after the last character (exclusive).
+     * @return the text in the range.
+     */
+    public String subSequence (int start, int end) {
+
+	if (start < 0 || end > _length || start > end) {
+	    throw new IndexOutOfBoundsException("[" + start + ", " + end + ") in source of length " + _length);
+	}
+	return new String(_chars, start, end - start);
+
+    } // subSequence ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the line index of this source, building it the first time it is needed.
+     *
+     * @return the source map.
+     */
+    public SourceMap map () {
+
+	SourceMap map = _map;
+	if (map == null) {
+	    map  = new SourceMap(this);
+	    _map = map;
+	}
+	return map;
+
+    } // map ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    public String toString () {
+
+	return new String(_chars, 0, _length);
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class SourceBuffer
+// =================================================================================================================================
@@ -0,0 +1,218 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * An index of where each line of a source begins, built in one pass over the text.  Any position can then be turned into a line
+ * and column by a binary search over the line starts, without rescanning the source.
+ */
+public class SourceMap {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The source being indexed. */
+    private final SourceBuffer _source;
+
+    /** The position at which each line begins, in ascending order.  Line <i>n</i> (1-based) begins at <code>_lineStarts[n-1]</code>. */
+    private final int[]        _lineStarts;
+
+    /** The number of lines in the source. */
+    private final int          _lineCount;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Index the lines of a source.
+     *
+     * @param source The source to index.
+     */
+    public SourceMap (SourceBuffer source) {
+
+	int[] lineStarts = new int[64];
+	int   lineCount  = 1;
+	for (int i = 0; i < source.length(); i += 1) {
+	    if (source.charAt(i) == '\n') {
+		if (lineCount == lineStarts.length) {
+		    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+		}
+		lineStarts[lineCount++] = i + 1;
+	    }
+	}
+
+	_source     = source;
+	_lineStarts = lineStarts;
+	_lineCount  = lineCount;
+
+    } // SourceMap ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of lines in the source.  A source that ends with a newline has an empty last line.
+     *
+     * @return the number of lines.
+     */
+    public int lineCount () {
+
+	return _lineCount;
+
+    } // lineCount ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Find the line that contains a position.  A newline belongs to the line that it ends.  Positions past the end of the source
+     * are treated as being at its end.
+     *
+     * @param position The position within the source.
+     * @return the line number (1-based).
+     */
+    public int line (int position) {
+
+	position = clamp(position);
+
+	// Find the last line that starts at or before the position.
+	int low  = 0;
+	int high = _lineCount - 1;
+	while (low < high) {
+	    int middle = (low + high + 1) >>> 1;
+	    if (_lineStarts[middle] <= position) {
+		low = middle;
+	    } else {
+		high = middle - 1;
+	    }
+	}
+
+	return low + 1;
+
+    } // line ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Find the column of a position within its line.
+     *
+     * @param position The position within the source.
+     * @return the number of characters (0-based) between the start of the line and the position.
+     */
+    public int column (int position) {
+
+	return clamp(position) - lineStart(line(position));
+
+    } // column ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the position at which a line begins.
+     *
+     * @param line The line number (1-based).
+     * @return the position of the first character of the line.
+     */
+    public int lineStart (int line) {
+
+	return _lineStarts[line - 1];
+
+    } // lineStart ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the position at which a line ends.
+     *
+     * @param line The line number (1-based).
+     * @return the position of the newline that ends the line, or the end of the source for the last line.
+     */
+    public int lineEnd (int line) {
+
+	return line < _lineCount ? _lineStarts[line] - 1 : _source.length();
+
+    } // lineEnd ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the text of a line, without its newline.
+     *
+     * @param line The line number (1-based).
+     * @return the line's text.
+     */
+    public String lineText (int line) {
+
+	return _source.subSequence(lineStart(line), lineEnd(line));
+
+    } // lineText ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Describe a position for a diagnostic: its line and column, the line of code itself, and a marker beneath the column.
+     *
+     * @param position The position within the source.
+     * @return a string that, when printed, shows the line of code and highlights the column in that line.
+     */
+    public String describe (int position) {
+
+	int line      = line(position);
+	int lineStart = lineStart(line);
+	int column    = clamp(position) - lineStart;
+
+	StringBuilder message = new StringBuilder();
+
+	//   1. The location information itself...
+	message.append('@').append(position).append(" (").append(line).append(',').append(column).append("):\n");
+
+	//   2. The line of code itself.
+	message.append(_source, lineStart, lineEnd(line)).append('\n');
+
+	//   3. A marker at the given column, beneath the line of code.
+	for (int i = lineStart; i < lineStart + column; i += 1) {
+	    message.append(_source.charAt(i) == '\t' ? '\t' : ' ');
+	}
+	message.append("^\n");
+
+	return message.toString();
+
+    } // describe ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    private int clamp (int position) {
+
+	return Math.max(0, Math.min(position, _source.length()));
+
+    } // clamp ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class SourceMap
+// =================================================================================================================================
@@ -2,6 +2,7 @@
 // IMPORTS
 
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -97,11 +98,49 @@ abstract public class Statement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this statement.
+     * Fold constant expressions within this statement (see <code>Program.fold()</code>).
      *
-     * @return the generated assembly code.
+     * @return the statement to use in place of this one.
      */
-    abstract public String toAssembly ();
+    abstract public Statement fold ();
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this statement refers: the variables that it uses and the procedures that it
+     * calls.
+     *
+     * @param references The declarations referred to so far.
+     */
+    abstract public void findReferences (Set<Declaration> references);
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether control never passes beyond this statement, because every path through it returns.  By default, it may pass.
+     *
+     * @return <code>true</code> if every path through this statement returns; <code>false</code> otherwise.
+     */
+    public boolean alwaysReturns () {
+
+	return false;
+
+    } // alwaysReturns ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Lower this statement into the intermediate representation, appending its code at the builder's current point.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    abstract public void toIR (IRBuilder ir);
     // =============================================================================================================================
 
 
@@ -110,9 +149,9 @@ abstract public class Statement {
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    abstract public String toStatics ();
+    abstract public void toStatics (AssemblyWriter out);
     // =============================================================================================================================
 
 
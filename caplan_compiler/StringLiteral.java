@@ -46,29 +46,31 @@ public class StringLiteral extends Literal {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this expression.
+     * Lower this expression into the intermediate representation.
      *
-     * @return the generated assembly code.
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the literal.
      */
-    public String toAssembly() {
+    public IRValue toIRValue (IRBuilder ir) {
 
-	return "\tpush\t" + _label + "\n";
+	// The value of a string is the address of its characters in the statics.
+	return ir.symbol(_label);
 
-    } // toAssembly ()
+    } // toIRValue ()
     // =============================================================================================================================
 
 
-    
+
     // =============================================================================================================================
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
 	// Generate a labeled string with null termination.
-	return _label + ":\tdb\t\"" + _value + "\", 0\n";
+	out.data(_label, "db", '"' + _value + '"', 0);
 	
     } // toStatics ()
     // =============================================================================================================================
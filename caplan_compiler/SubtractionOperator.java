@@ -55,30 +55,30 @@ public class SubtractionOperator extends Operator {
     
     // =============================================================================================================================
     @Override
-    public String toAssembly (Expression... operands) {
+    public Expression fold (Operation operation, Expression... operands) {
 
-        String assembly = new String();
+	// Subtracting zero changes nothing (even from a pointer).
+	if (Long.valueOf(0).equals(constantValue(operands[1]))) {
+	    return operands[0];
+	}
+	return fold_binary(operation, operands, (x, y) -> x - y);
 
-        // Generate assembly for the two operands; both get pushed to the stack
-        assembly = operands[0].toAssembly() + operands[1].toAssembly();
+    } // fold ()
+    // =============================================================================================================================
 
-        // Pop the operand result into registers A and B (which are in reverse order on the stack).  
-        // x86-64 performs push/pop only with 64-bit registers, so specify rax/rbx.
-        assembly += "\tpop\trbx\n\tpop\trax\n";
 
-        // Apply subtraction to the registers.
-        assembly += "\tsub\trax,\trbx\n";
 
-        // Push the result.
-        assembly += "\tpush\trax\n";
+    // =============================================================================================================================
+    @Override
+    public IRValue toIR (IRBuilder ir, Expression... operands) {
 
-        return assembly;
+	return toIR_binary(ir, IRInstruction.Opcode.SUB, operands[0], operands[1]);
 
-    }
+    } // toIR ()
     // =============================================================================================================================
 
 
-    
+
 // =================================================================================================================================
 } // class SubtractionOperator
 // =================================================================================================================================
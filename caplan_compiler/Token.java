@@ -10,10 +10,7 @@ public class Token {
     // =============================================================================================================================
     public enum Type {
 
-	// Whitespaces & separators
-	SPACE,
-	TAB,
-	NEWLINE,
+	// Separators
 	COMMA,
 
 	// Enclosures
@@ -106,9 +103,6 @@ public class Token {
 	_position = position;
 	_type     = type;
 	switch (_type) {
-	case SPACE:            _text = " ";  break;
-	case TAB:              _text = "\t"; break;
-	case NEWLINE:          _text = "\n"; break;
 	case COMMA:            _text = ",";  break;
 	case OPENPAREN:        _text = "(";  break;
 	case CLOSEPAREN:       _text = ")";  break;
@@ -148,14 +142,6 @@ public class Token {
 		
 	
 	
-    // =============================================================================================================================
-    public boolean isWhitespace () {
-	return _type == Type.SPACE || _type == Type.TAB || _type == Type.NEWLINE;
-    }
-    // =============================================================================================================================
-	
-	
-	
     // =============================================================================================================================
     public boolean isOperator () {
 	return ( _type == Type.AT               ||
@@ -0,0 +1,202 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * The sequence of tokens scanned from a source, packed into parallel arrays.  A token is identified by its index; its type, start
+ * and length are stored as <code>int</code>s, and its text is a slice of the source that is only copied out on request.
+ */
+public class TokenBuffer {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** All token types, indexed by ordinal. */
+    private static final Token.Type[] _typeValues = Token.Type.values();
+
+    /** The source from which the tokens were scanned. */
+    private final SourceBuffer _source;
+
+    /** The type of each token (as a <code>Token.Type</code> ordinal). */
+    private int[]              _types;
+
+    /** The position in the source at which each token begins. */
+    private int[]              _starts;
+
+    /** The number of source characters spanned by each token. */
+    private int[]              _lengths;
+
+    /** The number of tokens held. */
+    private int                _size;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create an empty token buffer.
+     *
+     * @param source   The source from which the tokens will be scanned.
+     * @param capacity The number of tokens to make room for initially.
+     */
+    public TokenBuffer (SourceBuffer source, int capacity) {
+
+	capacity = Math.max(capacity, 16);
+	_source  = source;
+	_types   = new int[capacity];
+	_starts  = new int[capacity];
+	_lengths = new int[capacity];
+	_size    = 0;
+
+    } // TokenBuffer ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Append a token.
+     *
+     * @param type   The type of the token.
+     * @param start  The position in the source at which the token begins.
+     * @param length The number of source characters that the token spans.
+     */
+    public void add (Token.Type type, int start, int length) {
+
+	if (_size == _types.length) {
+	    int capacity = _size * 2;
+	    _types   = Arrays.copyOf(_types,   capacity);
+	    _starts  = Arrays.copyOf(_starts,  capacity);
+	    _lengths = Arrays.copyOf(_lengths, capacity);
+	}
+
+	_types[_size]   = type.ordinal();
+	_starts[_size]  = start;
+	_lengths[_size] = length;
+	_size += 1;
+
+    } // add ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the number of tokens.
+     *
+     * @return the number of tokens held.
+     */
+    public int size () {
+
+	return _size;
+
+    } // size ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the type of a token.
+     *
+     * @param index The index of the token.
+     * @return the token's type; <code>null</code> if the index is past the last token.
+     */
+    public Token.Type type (int index) {
+
+	return index < _size ? _typeValues[_types[index]] : null;
+
+    } // type ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the position in the source of a token.
+     *
+     * @param index The index of the token.
+     * @return the position at which the token begins; the end of the source if the index is past the last token.
+     */
+    public int position (int index) {
+
+	return index < _size ? _starts[index] : _source.length();
+
+    } // position ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the text of a token.  For most tokens, this is the slice of the source that the token spans.  Character and string
+     * literals are unquoted and have their escape sequences decoded.
+     *
+     * @param index The index of the token.
+     * @return the token's text.
+     */
+    public String text (int index) {
+
+	int start = _starts[index];
+	int end   = start + _lengths[index];
+	switch (type(index)) {
+	case CHAR:
+	    return Lexer.decode(_source, start, end);
+	case STRING:
+	    return Lexer.decode(_source, start + 1, end - 1);
+	default:
+	    return _source.subSequence(start, end);
+	}
+
+    } // text ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Create a stand-alone <code>Token</code> for one of the tokens.  Only the tokens that the parser keeps in the program tree
+     * need be materialized this way.
+     *
+     * @param index The index of the token.
+     * @return the token; <code>null</code> if the index is past the last token.
+     */
+    public Token get (int index) {
+
+	if (index >= _size) {
+	    return null;
+	}
+	return new Token(text(index), _starts[index], type(index));
+
+    } // get ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Describe a token in the same form as <code>Token.toString()</code>.
+     *
+     * @param index The index of the token.
+     * @return the description.
+     */
+    public String toString (int index) {
+
+	return text(index) + " (" + type(index) + ") @" + _starts[index];
+
+    } // toString ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class TokenBuffer
+// =================================================================================================================================
@@ -0,0 +1,295 @@
+// =================================================================================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+// =================================================================================================================================
+
+
+
+// =================================================================================================================================
+/**
+ * Removes redundant computations from a function: an instruction that computes what an earlier one already has is dropped, and
+ * its uses take the earlier value instead.
+ *
+ * Arithmetic (division included, which cannot fault a second time) is numbered across the whole function: since the IR is in
+ * SSA form, the same operation on the same values yields the same value wherever it is, so an instruction is redundant if an
+ * equal one is in a block that dominates it (or earlier in its own block).  Commutative operations are matched with their
+ * operands either way round.  Comparisons are left alone, since each is best made just before the branch that uses it.
+ *
+ * Loads are numbered only within a block, from its start, since memory may change on other paths.  A load is redundant if an
+ * equal one, or a store to the same address (of a whole word, which a load reads back unchanged), precedes it with nothing
+ * between that may write what it reads.  A call may write anything.  A store to a variable by name may write only that
+ * variable, and what pointers reach; a store through a pointer may write any variable that a pointer can reach (every frame
+ * slot, and any global variable whose address is taken) and anything read through another pointer.
+ */
+public class ValueNumbering {
+// =================================================================================================================================
+
+
+
+    // =============================================================================================================================
+    // DATA MEMBERS
+
+    /** The function whose computations are numbered. */
+    private final IRFunction                        _function;
+
+    /** The dominators of the function's blocks. */
+    private final Dominators                        _dominators;
+
+    /** The values computed by arithmetic so far, by what computes them. */
+    private final Map<String, List<IRValue>>        _computed;
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Prepare to number a function's computations.
+     *
+     * @param function The function.
+     */
+    public ValueNumbering (IRFunction function) {
+
+	_function   = function;
+	_dominators = new Dominators(function);
+	_computed   = new HashMap<String, List<IRValue>>();
+
+    } // ValueNumbering ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Remove the redundant instructions.
+     *
+     * @return the number of instructions removed.
+     */
+    public int eliminate () {
+
+	int removed = 0;
+	for (BasicBlock block : _dominators.getReversePostorder()) {
+
+	    // The value that each location is known to hold, by address and size.
+	    Map<String, IRValue>    memory       = new HashMap<String, IRValue>();
+	    Map<String, IRValue>    addresses    = new HashMap<String, IRValue>();
+	    Iterator<IRInstruction> instructions = block._instructions.iterator();
+	    while (instructions.hasNext()) {
+
+		IRInstruction instruction = instructions.next();
+		IRValue       value       = null;
+		switch (instruction._opcode) {
+
+		case ADD: case SUB: case MUL: case DIV: case MOD: case AND: case OR: case XOR: case NEG: case NOT: {
+		    String key = key(instruction);
+		    value = available(key, block);
+		    if (value == null) {
+			_computed.computeIfAbsent(key, k -> new ArrayList<IRValue>()).add(instruction._result);
+		    }
+		    break;
+		}
+
+		case LOAD: {
+		    String key = location(instruction.getOperand(0), instruction._size);
+		    value = memory.get(key);
+		    if (value == null) {
+			memory.put(key, instruction._result);
+			addresses.put(key, instruction.getOperand(0));
+		    }
+		    break;
+		}
+
+		case STORE: {
+		    IRValue address = instruction.getOperand(0);
+		    forget(memory, addresses, address);
+		    if (instruction._size == Utility._bytesPerWord) {
+			memory.put(location(address, instruction._size), instruction.getOperand(1));
+			addresses.put(location(address, instruction._size), address);
+		    }
+		    break;
+		}
+
+		case CALL:
+		    memory.clear();
+		    addresses.clear();
+		    break;
+
+		default:
+		    break;
+
+		}
+
+		if (value != null) {
+		    instruction._result.replaceWith(value);
+		    instructions.remove();
+		    removed = removed + 1;
+		}
+
+	    }
+	}
+
+	// Every operand now refers to a value still defined.
+	for (BasicBlock block : _function.getBlocks()) {
+	    for (IRInstruction instruction : block._instructions) {
+		for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+		    instruction.setOperand(i, instruction.getOperand(i));
+		}
+	    }
+	}
+	return removed;
+
+    } // eliminate ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide a value computed already that is available in a block: one computed in a block that dominates it, or earlier in
+     * the block itself (since blocks are visited with each after its dominators, and each block in order).
+     *
+     * @param key   What computes the value.
+     * @param block The block.
+     * @return the value, or <code>null</code> if there is none.
+     */
+    private IRValue available (String key, BasicBlock block) {
+
+	List<IRValue> values = _computed.get(key);
+	if (values != null) {
+	    for (IRValue value : values) {
+		if (_dominators.dominates(value.getDefinition()._block, block)) {
+		    return value;
+		}
+	    }
+	}
+	return null;
+
+    } // available ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Forget what is known of the locations that a store may write.
+     *
+     * @param memory    The value that each location is known to hold.
+     * @param addresses The address of each location.
+     * @param address   The address stored to.
+     */
+    private void forget (Map<String, IRValue> memory, Map<String, IRValue> addresses, IRValue address) {
+
+	boolean named = isVariable(address);
+	Iterator<Map.Entry<String, IRValue>> known = addresses.entrySet().iterator();
+	while (known.hasNext()) {
+	    Map.Entry<String, IRValue> entry = known.next();
+	    IRValue                    other = entry.getValue();
+	    boolean                    written;
+	    if (named) {
+		// This variable, and (if a pointer can reach it) whatever is read through a pointer.
+		written = name(other).equals(name(address)) || (!isVariable(other) && !_function.isUnescaped(address));
+	    } else {
+		// Anything read through a pointer, and any variable that a pointer can reach.
+		written = !isVariable(other) || !_function.isUnescaped(other);
+	    }
+	    if (written) {
+		memory.remove(entry.getKey());
+		known.remove();
+	    }
+	}
+
+    } // forget ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Whether an address is that of a variable, named directly, as opposed to a pointer.
+     *
+     * @param address The address.
+     * @return <code>true</code> for a symbol or a slot; <code>false</code> otherwise.
+     */
+    private static boolean isVariable (IRValue address) {
+
+	return address._kind == IRValue.Kind.SYMBOL || address._kind == IRValue.Kind.SLOT;
+
+    } // isVariable ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the key of an arithmetic instruction: its opcode and operands, the operands of a commutative operation in a
+     * fixed order.
+     *
+     * @param instruction The instruction.
+     * @return the key.
+     */
+    private static String key (IRInstruction instruction) {
+
+	List<String> operands = new ArrayList<String>();
+	for (int i = 0; i < instruction.getOperandCount(); i += 1) {
+	    operands.add(name(instruction.getOperand(i)));
+	}
+	switch (instruction._opcode) {
+	case ADD: case MUL: case AND: case OR: case XOR:
+	    operands.sort(null);
+	    break;
+	default:
+	    break;
+	}
+	return instruction._opcode + " " + String.join(" ", operands);
+
+    } // key ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Provide the key of a location in memory: its address and the size of the access.
+     *
+     * @param address The address.
+     * @param size    The size, in bytes.
+     * @return the key.
+     */
+    private static String location (IRValue address, int size) {
+
+	return name(address) + ":" + size;
+
+    } // location ()
+    // =============================================================================================================================
+
+
+
+    // =============================================================================================================================
+    /**
+     * Name a value uniquely within its function: <code>t</code> and the number for a temporary, <code>s</code> and the number
+     * for a slot, <code>@</code> and the label for a symbol, and <code>#</code> and the value for a constant.
+     *
+     * @param value The value.
+     * @return the name.
+     */
+    private static String name (IRValue value) {
+
+	switch (value._kind) {
+	case TEMPORARY: return "t" + value._number;
+	case SLOT:      return "s" + value._number;
+	case SYMBOL:    return "@" + value._symbol;
+	default:        return "#" + value._number;
+	}
+
+    } // name ()
+    // =============================================================================================================================
+
+
+
+// =================================================================================================================================
+} // class ValueNumbering
+// =================================================================================================================================
@@ -2,6 +2,7 @@
 // IMPORTS
 
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -85,6 +86,21 @@ public class Variable extends Expression {
 
 
 
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this expression refers: that of the variable.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	references.add(_declaration);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
+
     // =============================================================================================================================
     /**
      * Verify that variables have a valid type
@@ -132,38 +148,39 @@ public class Variable extends Expression {
     
     // =============================================================================================================================
     /**
-     * Generate assembly to use this variable as an r-value.
+     * Lower a use of this variable, as an r-value, into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the value of the variable.
      */
-    public String toAssembly () {
+    public IRValue toIRValue (IRBuilder ir) {
 
-	// Get the correct type of register for this data type.
-	String register = getType().getSizedRegister("a");
-
-	// Special case: x86-64, for half-word or byte values, does not clear upper bytes of the register, so we clear it here.
-	String assembly = ( getType().getSize() < Utility._dwordSize ?
-			    "\txor\trax,\trax\t; Clear register for small value\n" :
-			    "" );
-
-	// Load the value into the register, then push that value onto the stack
-	assembly += ( "\tmov\t" + register + ",\t" + _declaration.toAssembly() + "\t; Load " + _name + '\n' +
-		      "\tpush\trax\t\t; Push as whole register\n" );
+	// A variable kept as an SSA value is read as such; any other is loaded from its memory.
+	if (ir.isValue(_declaration)) {
+	    return ir.readVariable(_declaration);
+	}
+	return ir.load(getType().getSize(), ir.addressOf(_declaration));
 
-	return assembly;
-	
-    } // toAssembly ()
+    } // toIRValue ()
     // =============================================================================================================================
 
 
 
     // =============================================================================================================================
     /**
-     * Generate assembly to use this variable as an l-value.
+     * Lower the address of this variable, as an l-value, into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     * @return the address.
      */
-    public String toAssembly_l () {
+    public IRValue toIR_l (IRBuilder ir) {
 
-	return _declaration.toAssembly_l();
+	if (ir.isValue(_declaration)) {
+	    Utility.abort("Variable.toIR_l(): " + _name + " has no address");
+	}
+	return ir.addressOf(_declaration);
 
-    } // toAssembly_l ()
+    } // toIR_l ()
     // =============================================================================================================================
 
 
@@ -185,6 +202,21 @@ public class Variable extends Expression {
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Provide the declaration to which this variable is bound.
+     *
+     * @return the declaration.
+     */
+    public VariableDeclaration getDeclaration () {
+
+	return _declaration;
+
+    } // getDeclaration ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     public String toString () {
@@ -4,6 +4,15 @@ abstract public class VariableDeclaration extends Declaration {
 
 
 
+    // =================================================================================================================================
+    // DATA MEMBERS
+
+    /** Whether the address of this variable is taken anywhere. */
+    private boolean _addressTaken;
+    // =================================================================================================================================
+
+
+
     // =================================================================================================================================
     /**
      * Create a new variable declaration.
@@ -21,34 +30,36 @@ abstract public class VariableDeclaration extends Declaration {
 
 
     // =================================================================================================================================
-    /**
-     * Provide assembly for access to the variable.  This code depends on the memory region in which the variable is allocated.
-     *
-     * @return assmebly for accessing this variable.
-     */
-    abstract public String toAssembly();
+    public boolean isAddressTaken () {
+
+	return _addressTaken;
+
+    } // isAddressTaken ()
     // =================================================================================================================================
 
 
 
     // =================================================================================================================================
     /**
-     * Provide assembly for access to the variable's address.  This code depends on the memory region in which the variable is
-     * allocated.
-     *
-     * @return assmebly for accessing this variable's address.
+     * Record that the address of this variable is taken (by a reference), so that it must be kept in memory rather than as a
+     * value.
      */
-    abstract public String toAssembly_l();
+    public void setAddressTaken () {
+
+	_addressTaken = true;
+
+    } // setAddressTaken ()
     // =================================================================================================================================
 
 
 
     // =================================================================================================================================
     /**
-     * Provide assembly for the statics section as needed for each variable declaration
-     * @return
+     * Provide assembly for the statics section as needed for each variable declaration.
+     *
+     * @param out The destination for the generated assembly.
      */
-    abstract public String toStatics();
+    abstract public void toStatics (AssemblyWriter out);
     // =================================================================================================================================
 
     
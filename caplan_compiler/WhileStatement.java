@@ -1,7 +1,9 @@
 // =================================================================================================================================
 // IMPORTS
 
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 // =================================================================================================================================
 
 
@@ -19,7 +21,7 @@ class WhileStatement extends ControlStatement {
     // DATA MEMBERS
 
     /** The body to execute with each iteration. */
-    public final Statement  _body;
+    public Statement _body;
     // =============================================================================================================================
 
 
@@ -59,6 +61,23 @@ class WhileStatement extends ControlStatement {
     // =============================================================================================================================
 
 
+
+    // =============================================================================================================================
+    /**
+     * Add to a set the declarations to which this statement refers: the variables that it uses and the procedures that it
+     * calls.
+     *
+     * @param references The declarations referred to so far.
+     */
+    public void findReferences (Set<Declaration> references) {
+
+	_condition.findReferences(references);
+	_body.findReferences(references);
+
+    } // findReferences ()
+    // =============================================================================================================================
+
+
     
     // =============================================================================================================================
     /**
@@ -82,25 +101,49 @@ class WhileStatement extends ControlStatement {
     
     // =============================================================================================================================
     /**
-     * Generate assembly code that will execute this statement.
+     * Fold constant expressions within this statement.
      *
-     * @return the generated assembly code.
+     * @return this statement.
      */
-    public String toAssembly () {
+    public Statement fold () {
+
+	_condition = _condition.fold();
+	_body      = _body.fold();
+	if (_condition instanceof BooleanLiteral literal && !literal._value) {
+	    return new MultiStatement(_position, new ArrayList<Statement>());
+	}
+	return this;
+
+    } // fold ()
+    // =============================================================================================================================
 
-        String start_label = "WHILE_START_" + _position;
-        String end_label   = "POST_WHILE_"  + _position;
 
-        return ( start_label + ":\n" +
-		 _condition.toAssembly() +
-		 "\tpop\trax\t\t; Place the result of evaluating the condition in the register\n" +
-		 "\tand\trax,\trax\t; Set the zero flag based on the condition\n" +
-		 "\tjz\t" + end_label + "\n" +
-		 _body.toAssembly() +
-		 "\tjmp\t" + start_label + "\n" +
-		 end_label + ":\n" );
 
-    } // toAssembly ()
+    // =============================================================================================================================
+    /**
+     * Lower this statement into the intermediate representation.
+     *
+     * @param ir The builder of the procedure's intermediate representation.
+     */
+    public void toIR (IRBuilder ir) {
+
+	// The header, which tests the condition, is reached from before the loop and from the end of the body, so it cannot be
+	// sealed until the body has been lowered.
+	BasicBlock headerBlock = ir.newBlock();
+	BasicBlock bodyBlock   = ir.newBlock();
+	BasicBlock endBlock    = ir.newBlock();
+	ir.jump(headerBlock);
+	ir.startBlock(headerBlock);
+	_condition.toIR_branch(ir, bodyBlock, endBlock);
+	ir.seal(bodyBlock);
+	ir.startBlock(bodyBlock);
+	_body.toIR(ir);
+	ir.jump(headerBlock);
+	ir.seal(headerBlock);
+	ir.seal(endBlock);
+	ir.startBlock(endBlock);
+
+    } // toIR ()
     // =============================================================================================================================
 
 
@@ -109,11 +152,12 @@ class WhileStatement extends ControlStatement {
     /**
      * Generate assembly code for any statics that are part of this expression.
      *
-     * @return the generated assembly code.
+     * @param out The destination for the generated assembly.
      */
-    public String toStatics () {
+    public void toStatics (AssemblyWriter out) {
 
-	return _condition.toStatics() + _body.toStatics();
+	_condition.toStatics(out);
+	_body.toStatics(out);
 	
     } // toStatics ()
     // =============================================================================================================================
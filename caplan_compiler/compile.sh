@@ -24,9 +24,47 @@ compilationLogPath=${base}.compile.log
 assemblyLogPath=${base}.assemble.log
 linkLogPath=${base}.link.log
 
-# Compile
-java Compiler ${sourcePath} > ${compilationLogPath} 2>&1
-if [[ $? != 0 ]]; then
+# Ask the resident compiler (see CompileDaemon) to compile a source, speaking its protocol directly so that no JVM is started;
+# only if neither socat nor nc is installed does CompileClient send the request.  Exits as CompileClient does: 0 if the
+# compilation succeeded, 1 if it failed, and 2 if the daemon could not be reached.
+compile_with_daemon () {
+    local request="COMPILE $(realpath "$1")"
+    local response
+    if command -v socat > /dev/null 2>&1; then
+        response=$(printf '%s\n' "${request}" | socat -t 600 - UNIX-CONNECT:${CAPLAN_DAEMON_SOCKET} 2>&1) || return 2
+    elif command -v nc > /dev/null 2>&1; then
+        response=$(printf '%s\n' "${request}" | nc -U ${CAPLAN_DAEMON_SOCKET} 2>&1) || return 2
+    else
+        java CompileClient ${CAPLAN_DAEMON_SOCKET} "$1"
+        return $?
+    fi
+
+    # Header: <status> <request number> <microseconds> [<assembly pathname>], then the diagnostics, if any.
+    local header=${response%%$'\n'*}
+    local status number microseconds
+    read -r status number microseconds _ <<< "${header}"
+    if [[ ${status} != OK && ${status} != FAILED ]]; then
+        printf "ERROR: Compile daemon did not respond\n"
+        return 2
+    fi
+    if [[ ${response} == *$'\n'* ]]; then
+        printf "%s\n" "${response#*$'\n'}"
+    fi
+    printf "Compile daemon request %s: %s us compiling\n" "${number}" "${microseconds}"
+    [[ ${status} == OK ]]
+}
+
+# Compile, using the resident compiler if one is running, and otherwise starting one cold.
+status=2
+if [[ -n ${CAPLAN_DAEMON_SOCKET} && -S ${CAPLAN_DAEMON_SOCKET} ]]; then
+    compile_with_daemon ${sourcePath} > ${compilationLogPath} 2>&1
+    status=$?
+fi
+if [[ ${status} == 2 ]]; then
+    java Compiler ${sourcePath} > ${compilationLogPath} 2>&1
+    status=$?
+fi
+if [[ ${status} != 0 ]]; then
     printf "ERROR: Compilation failed\n"
     cat ${compilationLogPath}
     exit 1